@@ -0,0 +1,67 @@
+package org.example.user;
+
+import org.example.user.dao.ConnectionPool;
+import org.example.user.dao.UserDaoJdbc;
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 벤치마크마다 독립된 임베디드 H2(MySQL 모드) DB를 schema.sql로 띄우고 사용자 데이터를 채워주는 도우미
+ */
+public class BenchmarkDatabase {
+    private final ConnectionPool connectionPool;
+    private final UserDaoJdbc userDao;
+
+    public BenchmarkDatabase(String name) {
+        SimpleDriverDataSource h2DataSource = new SimpleDriverDataSource();
+        h2DataSource.setDriverClass(org.h2.Driver.class);
+        // 테스트와 같은 schema.sql로 테이블을 만든다. 스크립트는 모두 create if not exists라서 연결마다 다시 실행돼도 된다.
+        h2DataSource.setUrl("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'");
+        h2DataSource.setUsername("sa");
+        h2DataSource.setPassword("");
+
+        connectionPool = new ConnectionPool();
+        connectionPool.setTargetDataSource(h2DataSource);
+        connectionPool.setMaxTotal(Runtime.getRuntime().availableProcessors() + 1);
+
+        userDao = new UserDaoJdbc();
+        userDao.setJdbcTemplate(connectionPool);
+        userDao.setBatchSize(1000);
+    }
+
+    public void fill(int size) {
+        userDao.deleteAll();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            users.add(user(i));
+            if (users.size() == 10000) {
+                userDao.batchAdd(users);
+                users.clear();
+            }
+        }
+        userDao.batchAdd(users);
+    }
+
+    public static User user(int i) {
+        return new User(String.format("u%07d", i), "유저" + i, "p1234", Level.valueOf(i % 3 + 1), i % 100, i % 50, "u" + i + "@kakao.com");
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    public UserDaoJdbc getUserDao() {
+        return userDao;
+    }
+
+    public void close() {
+        new JdbcTemplate(connectionPool).execute("drop all objects");
+        connectionPool.close();
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 비교 기준용. UserRowMapper 이전의 UserDaoJdbc.userMapper처럼 매 행마다 컬럼 이름으로 값을 찾는다.
+ */
+class ByNameUserMapper implements RowMapper<User> {
+    @Override
+    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getString("id"));
+        user.setName(rs.getString("name"));
+        user.setPassword(rs.getString("password"));
+        user.setLevel(Level.valueOf(rs.getInt("level")));
+        user.setLogin(rs.getInt("login"));
+        user.setRecommend(rs.getInt("recommend"));
+        user.setEmail(rs.getString("email"));
+        return user;
+    }
+}
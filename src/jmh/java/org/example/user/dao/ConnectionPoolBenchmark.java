@@ -0,0 +1,74 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 UserDaoJdbc.get() 호출을 SimpleDriverDataSource와 ConnectionPool로 각각 반복해서 호출당 지연시간을 비교한다.
+ * 기본은 임베디드 H2지만 커넥션을 맺는 비용은 네트워크를 타는 DB에서 훨씬 크므로 MySQL에서는
+ * -p url=jdbc:mysql://localhost/testdb -p username=root 처럼 지정해서 잰다. MySQL에는 users 테이블이 있어야 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConnectionPoolBenchmark {
+    @Param({"simple", "pool"})
+    String dataSource;
+
+    @Param({"jdbc:h2:mem:pool;MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'"})
+    String url;
+
+    @Param({"sa"})
+    String username;
+
+    @Param({""})
+    String password;
+
+    ConnectionPool connectionPool;
+    UserDaoJdbc userDao;
+
+    @Setup
+    public void setUp() throws SQLException {
+        SimpleDriverDataSource simpleDataSource = new SimpleDriverDataSource();
+        simpleDataSource.setDriver(DriverManager.getDriver(url));
+        simpleDataSource.setUrl(url);
+        simpleDataSource.setUsername(username);
+        simpleDataSource.setPassword(password);
+
+        connectionPool = new ConnectionPool();
+        connectionPool.setTargetDataSource(simpleDataSource);
+        connectionPool.setMaxTotal(1);
+
+        UserDaoJdbc setUpDao = new UserDaoJdbc();
+        setUpDao.setJdbcTemplate(simpleDataSource);
+        setUpDao.deleteAll();
+        setUpDao.add(new User("bench", "벤치", "p1234", Level.BASIC, 1, 0, "bench@kakao.com"));
+
+        userDao = new UserDaoJdbc();
+        userDao.setJdbcTemplate(dataSource.equals("pool") ? connectionPool : simpleDataSource);
+    }
+
+    @TearDown
+    public void tearDown() {
+        connectionPool.close();
+    }
+
+    @Benchmark
+    public User get() {
+        return userDao.get("bench");
+    }
+}
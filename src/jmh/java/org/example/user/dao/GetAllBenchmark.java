@@ -0,0 +1,57 @@
+package org.example.user.dao;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 대량의 getAll()에서 select * + 컬럼 이름 매핑과, 명시적 컬럼 목록 + UserRowMapper를 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class GetAllBenchmark {
+    @Param({"1000000"})
+    int tableSize;
+
+    BenchmarkDatabase database;
+    JdbcTemplate jdbcTemplate;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase("getAll");
+        database.fill(tableSize);
+        jdbcTemplate = new JdbcTemplate(database.getConnectionPool());
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> selectStarByName() {
+        return jdbcTemplate.query("select * from users order by id", new ByNameUserMapper());
+    }
+
+    @Benchmark
+    public List<User> getAll() {
+        return database.getUserDao().getAll();
+    }
+}
@@ -0,0 +1,92 @@
+package org.example.user.dao;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 데이터로 H2 위의 UserDaoJdbc와 파일 하나에 매핑한 MappedJournalUserDao의 처리량을 비교한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MappedJournalUserDaoBenchmark {
+    @Param({"jdbc", "mapped"})
+    String dao;
+
+    @Param({"10000"})
+    int tableSize;
+
+    BenchmarkDatabase database;
+    File file;
+    MappedJournalUserDao mappedDao;
+    UserDao userDao;
+    int nextId;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void setUp() throws IOException {
+        if (dao.equals("jdbc")) {
+            database = new BenchmarkDatabase("mapped" + tableSize);
+            database.fill(tableSize);
+            userDao = database.getUserDao();
+        } else {
+            file = File.createTempFile("users", ".journal");
+            mappedDao = new MappedJournalUserDao(file);
+            List<User> users = new ArrayList<>();
+            for (int i = 0; i < tableSize; i++) {
+                users.add(BenchmarkDatabase.user(i));
+            }
+            mappedDao.batchAdd(users);
+            userDao = mappedDao;
+        }
+        nextId = tableSize;
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+    public void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+        if (mappedDao != null) {
+            mappedDao.close();
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public void add() {
+        userDao.add(BenchmarkDatabase.user(nextId++));
+    }
+
+    @Benchmark
+    public User get() {
+        return userDao.get(String.format("u%07d", ThreadLocalRandom.current().nextInt(tableSize)));
+    }
+
+    @Benchmark
+    public void update() {
+        User user = userDao.get(String.format("u%07d", ThreadLocalRandom.current().nextInt(tableSize)));
+        user.setLogin(user.getLogin() + 1);
+        userDao.update(user);
+    }
+
+    @Benchmark
+    public List<User> getAfter() {
+        return userDao.getAfter(String.format("u%07d", ThreadLocalRandom.current().nextInt(tableSize)), 100);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.user.dao;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QueryMetrics를 켰을 때와 껐을 때 UserDaoJdbc 호출 시간을 비교하고, 기록 자체에 드는 비용을 따로 잰다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QueryMetricsBenchmark {
+    private static final int TABLE_SIZE = 10000;
+
+    @Param({"false", "true"})
+    boolean metrics;
+
+    BenchmarkDatabase database;
+    UserDaoJdbc userDao;
+    QueryMetrics queryMetrics;
+    Object[] args = {"u0000001"};
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase("metrics" + metrics);
+        database.fill(TABLE_SIZE);
+        userDao = database.getUserDao();
+        queryMetrics = new QueryMetrics();
+        if (metrics) {
+            userDao.setQueryMetrics(queryMetrics);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public User get() {
+        return userDao.get(String.format("u%07d", ThreadLocalRandom.current().nextInt(TABLE_SIZE)));
+    }
+
+    @Benchmark
+    public int getCount() {
+        return userDao.getCount();
+    }
+
+    // 여러 스레드가 같은 메서드의 히스토그램에 동시에 기록하는 비용
+    @Benchmark
+    @Threads(4)
+    public void record() {
+        queryMetrics.record("get", "select ...", args, ThreadLocalRandom.current().nextLong(1_000_000), 1);
+    }
+}
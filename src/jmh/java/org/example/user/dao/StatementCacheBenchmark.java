@@ -0,0 +1,60 @@
+package org.example.user.dao;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectionPool의 statementCacheSize에 따른 UserDaoJdbc의 get/update 처리량을 비교한다.
+ * 캐시가 없으면 호출마다 SQL을 다시 준비(파싱)하고, 있으면 커넥션에 준비해둔 문장을 다시 쓴다.
+ * H2는 같은 JVM 안에서 파싱만 아끼므로, 문장 준비에 왕복이 더 드는 MySQL(useServerPrepStmts)에서는 차이가 더 크다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StatementCacheBenchmark {
+    @Param({"0", "50"})
+    int statementCacheSize;
+
+    @Param({"10000"})
+    int tableSize;
+
+    BenchmarkDatabase database;
+    UserDaoJdbc userDao;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase("statements" + statementCacheSize);
+        database.getConnectionPool().setStatementCacheSize(statementCacheSize);
+        database.fill(tableSize);
+        userDao = database.getUserDao();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public User get() {
+        return userDao.get(String.format("u%07d", ThreadLocalRandom.current().nextInt(tableSize)));
+    }
+
+    @Benchmark
+    public void update() {
+        User user = userDao.get(String.format("u%07d", ThreadLocalRandom.current().nextInt(tableSize)));
+        user.setLogin(user.getLogin() + 1);
+        userDao.update(user);
+    }
+}
@@ -0,0 +1,126 @@
+package org.example.user.dao;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.user.service.UserServiceImpl.MIN_LOGIN_COUNT_FOR_SILVER;
+import static org.example.user.service.UserServiceImpl.MIN_RECOMMEND_COUNT_FOR_GOLD;
+
+/**
+ * 같은 사용자들을 List<User>와 UserBatch로 읽을 때의 적재 시간, 업그레이드 대상을 훑는 시간, 메모리 사용량을 비교한다.
+ * 메모리 사용량은 setUp에서 GC 후 힙 사용량 차이로 재서 출력한다. 읽는 동안 만드는 garbage는 -prof gc로 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserBatchBenchmark {
+    @Param({"1000000"})
+    int tableSize;
+
+    BenchmarkDatabase database;
+    List<User> users;
+    UserBatch batch;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase("batch" + tableSize);
+        database.fill(tableSize);
+
+        long before = usedHeap();
+        users = copyStrings(database.getUserDao().getAfter(null, tableSize));
+        long afterUsers = usedHeap();
+        batch = new UserBatch(tableSize);
+        database.getUserDao().getRange(null, null, tableSize, batch);
+        long afterBatch = usedHeap();
+
+        System.out.printf("%nfootprint of %d users: List<User> %.1fMB, UserBatch %.1fMB%n",
+                tableSize, (afterUsers - before) / 1048576.0, (afterBatch - afterUsers) / 1048576.0);
+    }
+
+    /**
+     * H2 메모리 DB는 저장해둔 String을 그대로 돌려주므로, 네트워크로 받는 드라이버처럼 행마다 문자열을 새로 만들어서 잰다.
+     */
+    private static List<User> copyStrings(List<User> users) {
+        List<User> copied = new ArrayList<>(users.size());
+        for (User user : users) {
+            copied.add(new User(copy(user.getId()), copy(user.getName()), copy(user.getPassword()), user.getLevel(),
+                    user.getLogin(), user.getRecommend(), copy(user.getEmail())));
+        }
+        return copied;
+    }
+
+    private static String copy(String value) {
+        return value == null ? null : new String(value.toCharArray());
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<User> loadUsers() {
+        return database.getUserDao().getAfter(null, tableSize);
+    }
+
+    @Benchmark
+    public UserBatch loadBatch() {
+        UserBatch loaded = new UserBatch(tableSize);
+        database.getUserDao().getRange(null, null, tableSize, loaded);
+        return loaded;
+    }
+
+    @Benchmark
+    public int scanUsers() {
+        int upgradable = 0;
+        for (User user : users) {
+            if (canUpgradeLevel(user.getLevel(), user.getLogin(), user.getRecommend())) {
+                upgradable++;
+            }
+        }
+        return upgradable;
+    }
+
+    @Benchmark
+    public int scanBatch() {
+        int upgradable = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            if (canUpgradeLevel(batch.getLevel(row), batch.getLogin(row), batch.getRecommend(row))) {
+                upgradable++;
+            }
+        }
+        return upgradable;
+    }
+
+    // UserServiceImpl.canUpgradeLevel()과 같은 규칙
+    private static boolean canUpgradeLevel(Level level, int login, int recommend) {
+        switch (level) {
+            case BASIC: return login >= MIN_LOGIN_COUNT_FOR_SILVER;
+            case SILVER: return recommend >= MIN_RECOMMEND_COUNT_FOR_GOLD;
+            default: return false;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.user.dao;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserDaoJdbcBenchmark {
+    @Param({"1000", "10000"})
+    int tableSize;
+
+    BenchmarkDatabase database;
+    UserDaoJdbc userDao;
+    int nextId;
+
+    @Setup(org.openjdk.jmh.annotations.Level.Iteration)
+    public void setUp() {
+        database = new BenchmarkDatabase("dao" + tableSize);
+        database.fill(tableSize);
+        userDao = database.getUserDao();
+        nextId = tableSize;
+    }
+
+    @TearDown(org.openjdk.jmh.annotations.Level.Iteration)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void add() {
+        userDao.add(BenchmarkDatabase.user(nextId++));
+    }
+
+    @Benchmark
+    public User get() {
+        return userDao.get(String.format("u%07d", ThreadLocalRandom.current().nextInt(tableSize)));
+    }
+
+    @Benchmark
+    public List<User> getAll() {
+        return userDao.getAll();
+    }
+
+    @Benchmark
+    public int getCount() {
+        return userDao.getCount();
+    }
+}
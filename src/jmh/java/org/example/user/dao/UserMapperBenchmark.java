@@ -0,0 +1,76 @@
+package org.example.user.dao;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.RowMapper;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DB 왕복을 빼고 RowMapper가 한 행을 User로 만드는 비용만 잰다.
+ * H2에서 읽은 결과를 메모리의 CachedRowSet에 담아두고 반복해서 매핑한다.
+ * byName은 매 행 컬럼 이름으로 찾는 이전 방식, byIndex는 UserRowMapper다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserMapperBenchmark {
+    static final int ROWS = 1000;
+
+    CachedRowSet rows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        BenchmarkDatabase database = new BenchmarkDatabase("mapper");
+        database.fill(ROWS);
+
+        rows = RowSetProvider.newFactory().createCachedRowSet();
+        try (Connection c = database.getConnectionPool().getConnection();
+             Statement statement = c.createStatement();
+             ResultSet rs = statement.executeQuery("select * from users order by id")) {
+            rows.populate(rs);
+        }
+        database.close();
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        rows.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void byName(Blackhole blackhole) throws SQLException {
+        map(new ByNameUserMapper(), blackhole);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void byIndex(Blackhole blackhole) throws SQLException {
+        map(new UserRowMapper(), blackhole);
+    }
+
+    private void map(RowMapper<User> mapper, Blackhole blackhole) throws SQLException {
+        rows.beforeFirst();
+        int rowNum = 0;
+        while (rows.next()) {
+            blackhole.consume(mapper.mapRow(rows, rowNum++));
+        }
+    }
+}
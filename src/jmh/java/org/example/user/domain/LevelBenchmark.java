@@ -0,0 +1,23 @@
+package org.example.user.domain;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LevelBenchmark {
+    int value = 0;
+
+    @Benchmark
+    public Level valueOf() {
+        value = value % 3 + 1; // 1, 2, 3을 번갈아 가며 변환해서 분기 예측이 한쪽으로 고정되지 않게 한다.
+        return Level.valueOf(value);
+    }
+}
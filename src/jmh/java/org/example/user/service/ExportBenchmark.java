@@ -0,0 +1,82 @@
+package org.example.user.service;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getAll()로 전체 목록을 만든 뒤 CSV로 쓰는 방식과 UserExporter의 스트리밍 내보내기를 비교한다.
+ * 출력은 버리고, gc 프로파일러의 할당량과 GC 횟수로 힙 사용량 차이를 본다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ExportBenchmark {
+    @Param({"1000000"})
+    int tableSize;
+
+    BenchmarkDatabase database;
+    UserExporter userExporter;
+    final OutputStream discard = new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase("export");
+        database.fill(tableSize);
+        database.getUserDao().setStreamingFetchSize(1000); // H2는 MySQL의 Integer.MIN_VALUE 스트리밍 힌트를 받지 않는다.
+
+        userExporter = new UserExporter();
+        userExporter.setUserDao(database.getUserDao());
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public int getAllThenWrite() throws IOException {
+        List<User> users = database.getUserDao().getAll();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(discard, StandardCharsets.UTF_8), 64 * 1024);
+        for (User user : users) {
+            writer.write(user.getId() + "," + user.getName() + ",," + user.getLevel() + "," + user.getLogin()
+                    + "," + user.getRecommend() + "," + user.getEmail() + "\n");
+        }
+        writer.flush();
+        return users.size();
+    }
+
+    @Benchmark
+    public long streamingExport() throws IOException {
+        return userExporter.export(discard, null);
+    }
+}
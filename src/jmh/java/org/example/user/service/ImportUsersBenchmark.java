@@ -0,0 +1,90 @@
+package org.example.user.service;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.dao.UserDaoJdbc;
+import org.example.user.domain.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 사용자를 한 명씩 add() 하는 것과 importUsers()로 청크마다 멀티 로우 insert 하는 것을 비교한다.
+ * 입력은 Iterator로 그때그때 만들어서 사용자 목록이 메모리에 쌓이지 않게 한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+public class ImportUsersBenchmark {
+    @Param({"10000"})
+    int users;
+
+    @Param({"100", "1000"})
+    int chunkSize;
+
+    BenchmarkDatabase database;
+    UserDaoJdbc userDao;
+    UserServiceImpl userService;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase("import" + chunkSize);
+        userDao = database.getUserDao();
+        userDao.setBatchSize(chunkSize);
+
+        userService = new UserServiceImpl();
+        userService.setUserDao(userDao);
+        userService.setChunkSize(chunkSize);
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Invocation)
+    public void clear() {
+        userDao.deleteAll();
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void addOneByOne() {
+        Iterator<User> input = generate(users);
+        while (input.hasNext()) {
+            userService.add(input.next());
+        }
+    }
+
+    @Benchmark
+    public long importUsers() {
+        return userService.importUsers(generate(users), null);
+    }
+
+    private static Iterator<User> generate(final int count) {
+        return new Iterator<User>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < count;
+            }
+
+            @Override
+            public User next() {
+                return BenchmarkDatabase.user(i++);
+            }
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package org.example.user.service;
+
+import org.example.user.BenchmarkDatabase;
+import org.example.user.domain.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 임베디드 H2(MySQL 모드)에 사용자를 채워두고 UserServiceTx의 parallelism을 늘려가며 upgradeLevels() 한 번의 실행 시간을 잰다.
+ * 업그레이드가 데이터를 바꾸므로 매 실행 전에 레벨을 BASIC으로 되돌린다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ParallelUpgradeBenchmark {
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    @Param({"200000"})
+    int tableSize;
+
+    BenchmarkDatabase database;
+    JdbcTemplate jdbcTemplate;
+    UserServiceTx userService;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase("parallel" + parallelism);
+        database.fill(tableSize);
+        jdbcTemplate = new JdbcTemplate(database.getConnectionPool());
+
+        UserServiceImpl userServiceImpl = new UserServiceImpl();
+        userServiceImpl.setUserDao(database.getUserDao());
+        userServiceImpl.setMailSender(new DummyMailSender());
+        userServiceImpl.setChunkSize(1000);
+
+        userService = new UserServiceTx();
+        userService.setUserService(userServiceImpl);
+        userService.setTransactionManager(new DataSourceTransactionManager(database.getConnectionPool()));
+        userService.setParallelism(parallelism);
+    }
+
+    @Setup(org.openjdk.jmh.annotations.Level.Invocation)
+    public void resetLevels() {
+        jdbcTemplate.update("update users set level = ?", Level.BASIC.intValue());
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public void upgradeLevels() {
+        userService.upgradeLevels();
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.user.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 손으로 짠 UserServiceTx와 TxProxyFactoryBean의 JDK/CGLIB 프록시가 호출마다 더하는 비용을 비교한다.
+ * DB 비용이 섞이지 않도록 아무 일도 하지 않는 트랜잭션 매니저와 타깃을 쓰고, UserServiceTx도 트랜잭션을 거는 upgradeLevelsAfter()를 호출한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionProxyBenchmark {
+    CountingUserService target;
+    UserUpgradeBatch handWritten;
+    UserUpgradeBatch jdkProxy;
+    UserUpgradeBatch cglibProxy;
+
+    @Setup
+    public void setUp() {
+        target = new CountingUserService();
+        NoOpTransactionManager transactionManager = new NoOpTransactionManager();
+
+        UserServiceTx userServiceTx = new UserServiceTx();
+        userServiceTx.setUserService(target);
+        userServiceTx.setTransactionManager(transactionManager);
+        handWritten = userServiceTx;
+
+        jdkProxy = (UserUpgradeBatch) txProxy(transactionManager, false).getObject();
+        cglibProxy = (UserUpgradeBatch) txProxy(transactionManager, true).getObject();
+    }
+
+    private TxProxyFactoryBean txProxy(NoOpTransactionManager transactionManager, boolean proxyTargetClass) {
+        TxProxyFactoryBean txProxyFactoryBean = new TxProxyFactoryBean();
+        txProxyFactoryBean.setTarget(target);
+        txProxyFactoryBean.setTransactionManager(transactionManager);
+        txProxyFactoryBean.setServiceInterface(UserUpgradeBatch.class);
+        txProxyFactoryBean.setProxyTargetClass(proxyTargetClass);
+        Properties methodRules = new Properties();
+        methodRules.setProperty("*", "PROPAGATION_REQUIRED");
+        txProxyFactoryBean.setMethodRules(methodRules);
+        return txProxyFactoryBean;
+    }
+
+    @Benchmark
+    public String direct() {
+        return target.upgradeLevelsAfter(null);
+    }
+
+    @Benchmark
+    public String handWritten() {
+        return handWritten.upgradeLevelsAfter(null);
+    }
+
+    @Benchmark
+    public String jdkProxy() {
+        return jdkProxy.upgradeLevelsAfter(null);
+    }
+
+    @Benchmark
+    public String cglibProxy() {
+        return cglibProxy.upgradeLevelsAfter(null);
+    }
+
+    public static class CountingUserService extends UserServiceImpl {
+        long count;
+
+        @Override
+        public String upgradeLevelsAfter(String lastId) {
+            return upgradeLevelsAfter(lastId, null);
+        }
+
+        @Override
+        public String upgradeLevelsAfter(String lastId, String toId) {
+            count++;
+            return lastId;
+        }
+    }
+
+    static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
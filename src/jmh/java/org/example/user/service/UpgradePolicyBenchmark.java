@@ -0,0 +1,83 @@
+package org.example.user.service;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.UserBatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.user.service.UserServiceImpl.MIN_LOGIN_COUNT_FOR_SILVER;
+import static org.example.user.service.UserServiceImpl.MIN_RECOMMEND_COUNT_FOR_GOLD;
+
+/**
+ * UserBatch 한 청크에서 업그레이드 대상을 고르는 시간을, 레벨마다 분기하던 switch와 UpgradePolicy 규칙표로 비교한다.
+ * 레벨과 login, recommend는 무작위라서 분기 예측이 잘 맞지 않는 경우다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UpgradePolicyBenchmark {
+    @Param({"100000"})
+    int batchSize;
+
+    UserBatch batch;
+    int[] targets;
+    UpgradePolicy standardPolicy;
+    UpgradePolicy chainedPolicy;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        batch = new UserBatch(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            Level level = Level.values()[random.nextInt(Level.values().length)];
+            batch.add("u" + i, "유저" + i, "p1234", level, random.nextInt(100), random.nextInt(60), null, 1);
+        }
+        targets = new int[batchSize];
+
+        standardPolicy = UpgradePolicy.standard();
+        chainedPolicy = UpgradePolicy.standard();
+        chainedPolicy.setChained(true);
+    }
+
+    @Benchmark
+    public int switchScan() {
+        int upgrades = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            if (canUpgradeLevel(batch.getLevel(row), batch.getLogin(row), batch.getRecommend(row))) {
+                targets[row] = batch.getLevelValue(row) + 1;
+                upgrades++;
+            } else {
+                targets[row] = 0;
+            }
+        }
+        return upgrades;
+    }
+
+    @Benchmark
+    public int standardPolicy() {
+        return standardPolicy.evaluate(batch, targets);
+    }
+
+    @Benchmark
+    public int chainedPolicy() {
+        return chainedPolicy.evaluate(batch, targets);
+    }
+
+    // 규칙표를 도입하기 전 UserServiceImpl.canUpgradeLevel()의 규칙
+    private static boolean canUpgradeLevel(Level level, int login, int recommend) {
+        switch (level) {
+            case BASIC: return login >= MIN_LOGIN_COUNT_FOR_SILVER;
+            case SILVER: return recommend >= MIN_RECOMMEND_COUNT_FOR_GOLD;
+            default: return false;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.user.service;
+
+import org.example.user.dao.ConnectionPool;
+import org.example.user.dao.UserDaoJdbc;
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 동시에 호출하는 쪽이 CALLERS 개일 때 같은 커넥션 풀을 쓰는 세 가지 실행 모델의 처리량과 스레드 수, 힙 사용량을 비교한다.
+ * platform-pool은 지금처럼 고정 크기 스레드 풀에서 블로킹 호출을 하고, platform-per-caller는 호출마다 플랫폼 스레드를 하나씩 쓴다.
+ * virtual은 AsyncUserService를 통해 가상 스레드에서 실행하고, 호출하는 쪽은 스레드를 잡지 않고 CompletableFuture를 이어 붙인다.
+ * ./gradlew loadTest 로 실행한다.
+ */
+public class VirtualThreadLoadBenchmark {
+    private static final int USERS = 10000;
+    private static final int CALLERS = 10000;
+    private static final int REQUESTS_PER_CALLER = 20;
+    private static final int PLATFORM_POOL_SIZE = 200;
+
+    private static final AtomicInteger nextId = new AtomicInteger(USERS);
+
+    public static void main(String[] args) throws Exception {
+        int poolSize = Runtime.getRuntime().availableProcessors() + 1;
+
+        SimpleDriverDataSource h2DataSource = new SimpleDriverDataSource();
+        h2DataSource.setDriverClass(org.h2.Driver.class);
+        h2DataSource.setUrl("jdbc:h2:mem:load;MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'");
+        h2DataSource.setUsername("sa");
+        h2DataSource.setPassword("");
+
+        ConnectionPool connectionPool = new ConnectionPool();
+        connectionPool.setTargetDataSource(h2DataSource);
+        connectionPool.setMaxTotal(poolSize);
+        connectionPool.setMaxWaitMillis(60 * 1000); // 플랫폼 스레드 모델은 풀에서 오래 기다린다.
+
+        UserDaoJdbc userDao = new UserDaoJdbc();
+        userDao.setJdbcTemplate(connectionPool);
+        userDao.setBatchSize(1000);
+        fill(userDao);
+
+        UserServiceImpl userService = new UserServiceImpl();
+        userService.setUserDao(userDao);
+        userService.setMailSender(new DummyMailSender());
+
+        try {
+            for (String model : new String[] {"platform-pool", "platform-per-caller", "virtual"}) {
+                run(model, userService, userDao, poolSize);
+            }
+        } finally {
+            connectionPool.close();
+        }
+    }
+
+    private static void run(String model, final UserService userService, final UserDaoJdbc userDao, int poolSize) throws Exception {
+        System.gc();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        threads.resetPeakThreadCount();
+        long heapBefore = memory.getHeapMemoryUsage().getUsed();
+        Sampler sampler = new Sampler(memory);
+        sampler.start();
+
+        final LongAdder errors = new LongAdder();
+        long start = System.nanoTime();
+        if (model.equals("platform-pool")) {
+            ExecutorService pool = Executors.newFixedThreadPool(PLATFORM_POOL_SIZE);
+            for (int i = 0; i < CALLERS; i++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        callBlocking(userService, userDao, errors);
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+        } else if (model.equals("platform-per-caller")) {
+            final CountDownLatch done = new CountDownLatch(CALLERS);
+            for (int i = 0; i < CALLERS; i++) {
+                Thread thread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            callBlocking(userService, userDao, errors);
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                });
+                thread.start();
+            }
+            done.await();
+        } else {
+            AsyncUserService asyncUserService = new AsyncUserService();
+            asyncUserService.setUserService(userService);
+            asyncUserService.setUserDao(userDao);
+            asyncUserService.setMaxConcurrency(poolSize);
+
+            List<CompletableFuture<Void>> callers = new ArrayList<>(CALLERS);
+            for (int i = 0; i < CALLERS; i++) {
+                callers.add(callAsync(asyncUserService, REQUESTS_PER_CALLER, errors));
+            }
+            CompletableFuture.allOf(callers.toArray(new CompletableFuture<?>[0])).join();
+            asyncUserService.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        sampler.interrupt();
+        sampler.join();
+
+        System.out.printf("%-20s: %,10.0f req/s, peak threads %6d, peak heap +%6.1fMB, errors %d%n",
+                model, CALLERS * (double) REQUESTS_PER_CALLER / seconds, threads.getPeakThreadCount(),
+                (sampler.maxHeap.get() - heapBefore) / 1048576.0, errors.sum());
+    }
+
+    private static void callBlocking(UserService userService, UserDaoJdbc userDao, LongAdder errors) {
+        for (int i = 0; i < REQUESTS_PER_CALLER; i++) {
+            try {
+                if (i % 10 == 9) {
+                    userService.add(newUser());
+                } else {
+                    userDao.get(randomId());
+                }
+            } catch (RuntimeException e) {
+                errors.increment();
+            }
+        }
+    }
+
+    /**
+     * 앞 요청이 끝나면 다음 요청을 보내는 호출자 하나. 기다리는 동안 스레드를 잡고 있지 않는다.
+     */
+    private static CompletableFuture<Void> callAsync(final AsyncUserService asyncUserService, final int remaining, final LongAdder errors) {
+        if (remaining == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<?> request = (remaining % 10 == 1)
+                ? asyncUserService.add(newUser())
+                : asyncUserService.get(randomId());
+        return request.handle(new BiFunction<Object, Throwable, Void>() {
+            @Override
+            public Void apply(Object result, Throwable e) {
+                if (e != null) {
+                    errors.increment();
+                }
+                return null;
+            }
+        }).thenCompose(new Function<Void, CompletionStage<Void>>() {
+            @Override
+            public CompletionStage<Void> apply(Void ignored) {
+                return callAsync(asyncUserService, remaining - 1, errors);
+            }
+        });
+    }
+
+    private static String randomId() {
+        return String.format("u%07d", ThreadLocalRandom.current().nextInt(USERS));
+    }
+
+    private static User newUser() {
+        int i = nextId.getAndIncrement();
+        return new User(String.format("u%07d", i), "유저" + i, "p1234", Level.BASIC, 0, 0, null);
+    }
+
+    private static void fill(UserDaoJdbc userDao) {
+        userDao.deleteAll();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User(String.format("u%07d", i), "유저" + i, "p1234", Level.BASIC, i % 100, i % 50, "u" + i + "@kakao.com"));
+        }
+        userDao.batchAdd(users);
+    }
+
+    /**
+     * 측정하는 동안 힙 사용량의 최댓값을 기록한다.
+     */
+    private static class Sampler extends Thread {
+        private final MemoryMXBean memory;
+        final AtomicLong maxHeap = new AtomicLong();
+
+        Sampler(MemoryMXBean memory) {
+            this.memory = memory;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!isInterrupted()) {
+                maxHeap.set(Math.max(maxHeap.get(), memory.getHeapMemoryUsage().getUsed()));
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.user.dao;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 문자열 집합의 Bloom filter. mightContain()이 false면 넣은 적이 없는 값이고, true면 falsePositiveProbability 확률로 틀릴 수 있다.
+ * 비트는 AtomicLongArray에 두므로 여러 스레드가 잠그지 않고 넣고 조회할 수 있다. 값을 뺄 수는 없다.
+ */
+public class BloomFilter {
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+    private final int expectedInsertions;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * expectedInsertions 개를 넣었을 때 오탐률이 falsePositiveProbability가 되도록 비트 수 m = -n ln p / (ln 2)^2와
+     * 해시 함수 수 k = m / n ln 2를 정한다.
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveProbability) {
+        this.expectedInsertions = Math.max(1, expectedInsertions);
+        long bits = (long) Math.ceil(-this.expectedInsertions * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int wordCount = (int) Math.min(Integer.MAX_VALUE, Math.max(1, (bits + 63) / 64));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = wordCount * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / this.expectedInsertions * Math.log(2)));
+    }
+
+    /**
+     * @return 새로 켠 비트가 있으면 true. false면 이미 넣었던 값(이거나 오탐)이므로 넣은 개수로 세지 않는다.
+     */
+    public boolean put(String value) {
+        long h1 = Hashing.hash64(value);
+        long h2 = mix(h1);
+        boolean changed = false;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(word)) & mask) == 0) {
+                if (words.compareAndSet(word, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        if (changed) {
+            insertions.increment();
+        }
+        return changed;
+    }
+
+    public boolean mightContain(String value) {
+        long h1 = Hashing.hash64(value);
+        long h2 = mix(h1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 같은 값에서 두 번째 해시를 만든다(Kirsch-Mitzenmacher). 비트 수가 64의 배수이므로 짝수면 일부 비트만 돌게 되어 홀수로 만든다.
+    private static long mix(long h) {
+        h += 0x9e3779b97f4a7c15L;
+        h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+        return (h ^ (h >>> 31)) | 1;
+    }
+
+    /**
+     * 예상한 개수보다 많이 넣어서 오탐률이 설계값보다 높아졌는지
+     */
+    public boolean isSaturated() {
+        return insertions.sum() > expectedInsertions;
+    }
+
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+}
@@ -0,0 +1,339 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 저장된 사용자 id를 Bloom filter로 들고 있다가, 확실히 없는 id의 get/find/exists는 DB에 가지 않고 바로 돌려주는 UserDao 데코레이터.
+ * rebuild()로 원본 DB의 전체 id를 읽어서 필터를 만들기 전까지는 모두 그대로 위임한다.
+ * add는 저장하기 전과 후, 트랜잭션이면 커밋한 뒤에도 id를 넣으므로 필터를 다시 만드는 중에 추가된 사용자도 빠지지 않는다.
+ * deleteAll은 커밋된 뒤에 필터를 비우거나 다시 만든다. 틀리더라도 없는 id를 있다고 하는 쪽으로만 틀린다.
+ * 이 DAO를 거치지 않고 추가된 사용자는 알 수 없으므로, 다른 곳에서도 사용자를 추가한다면 주기적으로 rebuild()해야 한다.
+ * 예상보다 많이 넣어서 필터가 포화되면 추가한 스레드를 붙잡지 않도록 rebuildExecutor에서 크기를 늘려 다시 만든다.
+ */
+public class BloomFilterUserDao implements UserDao {
+    private UserDao userDao;
+
+    private int expectedInsertions = 1000000;
+    private double falsePositiveProbability = 0.01;
+
+    private volatile BloomFilter filter;
+    private volatile BloomFilter building;
+    private final Object rebuildLock = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private Executor rebuildExecutor;
+    private ExecutorService ownExecutor;
+
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder passed = new LongAdder();
+
+    public BloomFilterUserDao() {
+    }
+
+    public BloomFilterUserDao(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    public void setUserDao(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    /**
+     * 필터를 만들 때 최소한으로 잡는 사용자 수. 저장된 사용자가 더 많으면 그 두 배로 잡는다.
+     */
+    public void setExpectedInsertions(int expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * 포화된 필터를 다시 만들 Executor. 설정하지 않으면 처음 필요할 때 데몬 스레드 하나를 만든다.
+     */
+    public void setRebuildExecutor(Executor rebuildExecutor) {
+        this.rebuildExecutor = rebuildExecutor;
+    }
+
+    private synchronized Executor rebuildExecutor() {
+        if (rebuildExecutor == null) {
+            ownExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "bloom-filter-rebuild");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            rebuildExecutor = ownExecutor;
+        }
+        return rebuildExecutor;
+    }
+
+    public synchronized void close() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+            ownExecutor = null;
+            rebuildExecutor = null;
+        }
+    }
+
+    /**
+     * 저장된 id를 모두 읽어서 새 필터를 만들고 바꿔 끼운다. 만드는 동안 추가되는 id는 지금 필터와 새 필터 양쪽에 넣는다.
+     * 복제 지연으로 최근에 추가된 id가 빠지면 있는 사용자를 없다고 하게 되므로 항상 원본에서 읽는다.
+     * 초기화, deleteAll 뒤, 포화 때의 재구성이 겹치면 먼저 끝난 쪽이 나중 필터를 덮어쓸 수 있으므로 한 번에 하나씩만 만든다.
+     */
+    public void rebuild() {
+        synchronized (rebuildLock) {
+            ReplicaRoutingDataSource.beginPrimaryRead();
+            try {
+                final BloomFilter next = new BloomFilter(Math.max(expectedInsertions, userDao.getCount() * 2), falsePositiveProbability);
+                building = next;
+                userDao.forEach(new UserCallback() {
+                    @Override
+                    public void doWithUser(User user) {
+                        next.put(user.getId());
+                    }
+                });
+                filter = next; // building을 치우기 전에 바꿔 끼워야 remember()가 어느 쪽도 놓치지 않는다.
+            } finally {
+                building = null;
+                ReplicaRoutingDataSource.endPrimaryRead();
+            }
+        }
+    }
+
+    private boolean mightExist(String id) {
+        BloomFilter current = filter;
+        if (current == null || current.mightContain(id)) {
+            passed.increment();
+            return true;
+        }
+        skipped.increment();
+        return false;
+    }
+
+    /**
+     * 만들고 있는 필터를 먼저 읽는다. building이 비어 있다면 그 뒤에 시작한 재구성은 이미 저장된 이 id를 읽게 되고,
+     * 그 사이에 바꿔 끼웠다면 아래에서 읽는 filter가 새 필터다.
+     */
+    private void remember(String id) {
+        BloomFilter next = building;
+        if (next != null) {
+            next.put(id);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(id);
+            if (current.isSaturated() && rebuilding.compareAndSet(false, true)) {
+                scheduleRebuild();
+            }
+        }
+    }
+
+    /**
+     * 예상보다 많이 넣어서 오탐률이 올라갔으므로 크기를 늘려서 다시 만든다. 다 만들 때까지는 포화된 필터를 그대로 쓴다.
+     */
+    private void scheduleRebuild() {
+        try {
+            rebuildExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        rebuild();
+                    } finally {
+                        rebuilding.set(false);
+                    }
+                }
+            });
+        } catch (RuntimeException e) { // 종료된 Executor라면 다음 포화 때 다시 시도한다.
+            rebuilding.set(false);
+        }
+    }
+
+    private void rememberAfterCommit(final String id) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    remember(id);
+                }
+            });
+        }
+    }
+
+    @Override
+    public User get(String id) {
+        if (!mightExist(id)) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return userDao.get(id);
+    }
+
+    @Override
+    public Optional<User> find(String id) {
+        if (!mightExist(id)) {
+            return Optional.empty();
+        }
+        return userDao.find(id);
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return mightExist(id) && userDao.exists(id);
+    }
+
+    @Override
+    public void add(User user) {
+        remember(user.getId());
+        userDao.add(user);
+        remember(user.getId());
+        rememberAfterCommit(user.getId());
+    }
+
+    @Override
+    public void batchAdd(List<User> users) {
+        for (User user : users) {
+            remember(user.getId());
+        }
+        userDao.batchAdd(users);
+        for (User user : users) {
+            remember(user.getId());
+            rememberAfterCommit(user.getId());
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            userDao.deleteAll();
+            // 커밋 전까지는 지운 사용자가 남아 있을 수 있고, 같은 트랜잭션에서 다시 추가한 사용자도 있으므로 커밋된 내용으로 다시 만든다.
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    rebuild();
+                }
+            });
+            return;
+        }
+
+        if (filter != null) {
+            filter = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        }
+        try {
+            userDao.deleteAll();
+        } catch (RuntimeException e) {
+            rebuild(); // 지우지 못한 사용자가 필터에서 빠지면 안 된다.
+            throw e;
+        }
+    }
+
+    // id가 바뀌지 않는 작업은 그대로 위임한다.
+    @Override
+    public void update(User user) {
+        userDao.update(user);
+    }
+
+    @Override
+    public void batchUpdate(List<User> users) {
+        userDao.batchUpdate(users);
+    }
+
+    @Override
+    public void incrementLogin(String id) {
+        userDao.incrementLogin(id);
+    }
+
+    @Override
+    public void incrementRecommend(String id) {
+        userDao.incrementRecommend(id);
+    }
+
+    @Override
+    public List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend) {
+        return userDao.upgradeLevels(currentLevel, minLogin, minRecommend);
+    }
+
+    @Override
+    public User getForUpdate(String id) {
+        return userDao.getForUpdate(id);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return userDao.getAll();
+    }
+
+    @Override
+    public List<User> getAfter(String lastId, int limit) {
+        return userDao.getAfter(lastId, limit);
+    }
+
+    @Override
+    public List<User> getRange(String lastId, String toId, int limit) {
+        return userDao.getRange(lastId, toId, limit);
+    }
+
+    @Override
+    public int getRange(String lastId, String toId, int limit, UserBatch batch) {
+        return userDao.getRange(lastId, toId, limit, batch);
+    }
+
+    @Override
+    public List<String> getPartitionKeys(int partitions) {
+        return userDao.getPartitionKeys(partitions);
+    }
+
+    @Override
+    public void forEach(UserCallback callback) {
+        userDao.forEach(callback);
+    }
+
+    @Override
+    public void forEach(Level level, UserCallback callback) {
+        userDao.forEach(level, callback);
+    }
+
+    @Override
+    public long getLastChangeSeq() {
+        return userDao.getLastChangeSeq();
+    }
+
+    @Override
+    public List<User> pollChanged(long uptoSeq, int limit) {
+        return userDao.pollChanged(uptoSeq, limit);
+    }
+
+    @Override
+    public int getCount() {
+        return userDao.getCount();
+    }
+
+    /**
+     * 필터가 없다고 판단해서 DB 조회를 건너뛴 횟수
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    /**
+     * 필터를 통과해서 DB까지 간 횟수. 있는 사용자와 오탐이 모두 포함된다.
+     */
+    public long getPassedCount() {
+        return passed.sum();
+    }
+}
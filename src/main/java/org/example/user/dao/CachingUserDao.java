@@ -0,0 +1,518 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * get(id)와 getCount() 결과를 캐시하는 UserDao 데코레이터.
+ * UserServiceTx가 UserService를 감싸듯이 DI 받은 UserDao를 감싸고, 캐시에 없을 때만 위임한다.
+ * 캐시는 id의 해시로 나눈 세그먼트마다 따로 잠그므로 서로 다른 사용자를 읽는 스레드끼리는 기다리지 않는다.
+ * 세그먼트마다 maxSize를 나눠 가진 만큼 LRU 순서로 보관하며 ttlMillis가 지나면 만료된다.
+ * 트랜잭션 안에서 읽은 값은 커밋되지 않은 상태일 수 있으므로 캐시에 넣지 않고, 그 트랜잭션에서 바꾼 사용자는 캐시를 거치지 않고 읽는다.
+ * 쓰기 작업은 캐시를 무효화하고, 트랜잭션 안이라면 트랜잭션이 끝난 뒤에 바꾼 사용자들을 한 번 더 무효화한다.
+ */
+public class CachingUserDao implements UserDao {
+    private static final int MAX_SEGMENTS = 16;
+
+    private UserDao userDao;
+
+    private int maxSize = 10000;
+    private long ttlMillis = 60 * 1000;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private volatile Segment[] segments = newSegments(maxSize);
+
+    private final Object countLock = new Object();
+    private int cachedCount = -1;
+    private long countExpiresAt;
+    // 무효화가 일어날 때마다 증가한다. DB에서 읽는 동안 무효화가 끼어들었다면 읽은 값을 캐시하지 않는다.
+    private long countGeneration;
+
+    public CachingUserDao() {
+    }
+
+    public CachingUserDao(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    public void setUserDao(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    /**
+     * 캐시를 비우고 새 크기로 다시 만든다.
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        this.segments = newSegments(maxSize);
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    private Segment[] newSegments(int maxSize) {
+        int count = 1;
+        while (count * 2 <= Math.min(MAX_SEGMENTS, maxSize)) {
+            count *= 2;
+        }
+        Segment[] newSegments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            newSegments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0));
+        }
+        return newSegments;
+    }
+
+    private Segment segmentFor(String id) {
+        Segment[] current = segments;
+        int h = id.hashCode();
+        return current[(h ^ (h >>> 16)) & (current.length - 1)];
+    }
+
+    @Override
+    public User get(String id) {
+        CacheEntry entry = cached(id);
+        if (entry != null) {
+            return new User(entry.user);
+        }
+
+        Segment segment = segmentFor(id);
+        long loadGeneration = segment.generation();
+        misses.increment();
+        User user;
+        boolean primaryRead = beginLoad();
+        try {
+            user = userDao.get(id); // 없는 사용자라면 여기서 예외가 그대로 전달된다.
+        } finally {
+            endLoad(primaryRead);
+        }
+        segment.putIfUnchanged(id, user, loadGeneration);
+        return user;
+    }
+
+    @Override
+    public Optional<User> find(String id) {
+        CacheEntry entry = cached(id);
+        if (entry != null) {
+            return Optional.of(new User(entry.user));
+        }
+
+        Segment segment = segmentFor(id);
+        long loadGeneration = segment.generation();
+        misses.increment();
+        Optional<User> user;
+        boolean primaryRead = beginLoad();
+        try {
+            user = userDao.find(id); // 없는 사용자는 캐시하지 않는다.
+        } finally {
+            endLoad(primaryRead);
+        }
+        if (user.isPresent()) {
+            segment.putIfUnchanged(id, user.get(), loadGeneration);
+        }
+        return user;
+    }
+
+    @Override
+    public boolean exists(String id) {
+        return cached(id) != null || userDao.exists(id);
+    }
+
+    /**
+     * 캐시에 넣을 값은 ReplicaRoutingDataSource가 복제본으로 보내지 않고 원본에서 읽게 한다.
+     * 복제본에서 읽으면 다른 스레드가 방금 쓴 값이 빠진 채로 ttlMillis 동안 모든 호출자에게 나간다.
+     * 트랜잭션 안에서 읽은 값은 캐시하지 않으므로 트랜잭션의 라우팅은 건드리지 않는다.
+     */
+    private static boolean beginLoad() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return false;
+        }
+        ReplicaRoutingDataSource.beginPrimaryRead();
+        return true;
+    }
+
+    private static void endLoad(boolean primaryRead) {
+        if (primaryRead) {
+            ReplicaRoutingDataSource.endPrimaryRead();
+        }
+    }
+
+    /**
+     * 만료되지 않은 캐시 항목을 돌려준다. 현재 트랜잭션에서 바꾼 사용자라면 캐시한 값은 이미 지난 값이므로 null을 돌려준다.
+     */
+    private CacheEntry cached(String id) {
+        TransactionWrites writes = currentWrites();
+        if (writes != null && writes.contains(id)) {
+            return null;
+        }
+
+        CacheEntry entry = segmentFor(id).get(id, System.nanoTime());
+        if (entry != null) {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    @Override
+    public int getCount() {
+        TransactionWrites writes = currentWrites();
+        boolean countChangedInTransaction = writes != null && (writes.all || writes.countChanged);
+        long now = System.nanoTime();
+        long loadGeneration;
+
+        synchronized (countLock) {
+            if (!countChangedInTransaction && cachedCount >= 0 && countExpiresAt - now > 0) {
+                hits.increment();
+                return cachedCount;
+            }
+            loadGeneration = countGeneration;
+        }
+
+        misses.increment();
+        int count;
+        boolean primaryRead = beginLoad();
+        try {
+            count = userDao.getCount();
+        } finally {
+            endLoad(primaryRead);
+        }
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            synchronized (countLock) {
+                if (loadGeneration == countGeneration) {
+                    cachedCount = count;
+                    countExpiresAt = now + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void add(User user) {
+        try {
+            userDao.add(user);
+        } finally {
+            invalidate(user.getId(), true);
+        }
+    }
+
+    @Override
+    public void update(User user) {
+        try {
+            userDao.update(user);
+        } finally {
+            invalidate(user.getId(), false);
+        }
+    }
+
+    @Override
+    public void incrementLogin(String id) {
+        try {
+            userDao.incrementLogin(id);
+        } finally {
+            invalidate(id, false);
+        }
+    }
+
+    @Override
+    public void incrementRecommend(String id) {
+        try {
+            userDao.incrementRecommend(id);
+        } finally {
+            invalidate(id, false);
+        }
+    }
+
+    @Override
+    public void batchAdd(List<User> users) {
+        try {
+            userDao.batchAdd(users);
+        } finally {
+            for (User user : users) {
+                invalidate(user.getId(), true);
+            }
+        }
+    }
+
+    @Override
+    public void batchUpdate(List<User> users) {
+        try {
+            userDao.batchUpdate(users);
+        } finally {
+            for (User user : users) {
+                invalidate(user.getId(), false);
+            }
+        }
+    }
+
+    @Override
+    public List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend) {
+        List<User> upgraded = userDao.upgradeLevels(currentLevel, minLogin, minRecommend);
+        for (User user : upgraded) {
+            invalidate(user.getId(), false);
+        }
+        return upgraded;
+    }
+
+    @Override
+    public void deleteAll() {
+        try {
+            userDao.deleteAll();
+        } finally {
+            invalidateAll();
+        }
+    }
+
+    // 잠그고 읽는 조회는 항상 최신 값이어야 하므로 캐시를 거치지 않는다.
+    @Override
+    public User getForUpdate(String id) {
+        return userDao.getForUpdate(id);
+    }
+
+    // 목록 조회는 캐시하지 않고 그대로 위임한다.
+    @Override
+    public List<User> getAll() {
+        return userDao.getAll();
+    }
+
+    @Override
+    public List<User> getAfter(String lastId, int limit) {
+        return userDao.getAfter(lastId, limit);
+    }
+
+    @Override
+    public List<User> getRange(String lastId, String toId, int limit) {
+        return userDao.getRange(lastId, toId, limit);
+    }
+
+    @Override
+    public int getRange(String lastId, String toId, int limit, UserBatch batch) {
+        return userDao.getRange(lastId, toId, limit, batch);
+    }
+
+    @Override
+    public List<String> getPartitionKeys(int partitions) {
+        return userDao.getPartitionKeys(partitions);
+    }
+
+    @Override
+    public void forEach(UserCallback callback) {
+        userDao.forEach(callback);
+    }
+
+    @Override
+    public void forEach(Level level, UserCallback callback) {
+        userDao.forEach(level, callback);
+    }
+
+    @Override
+    public long getLastChangeSeq() {
+        return userDao.getLastChangeSeq();
+    }
+
+    @Override
+    public List<User> pollChanged(long uptoSeq, int limit) {
+        return userDao.pollChanged(uptoSeq, limit);
+    }
+
+    private void invalidate(String id, boolean countChanged) {
+        evict(id, countChanged);
+
+        TransactionWrites writes = transactionWrites();
+        if (writes != null) {
+            writes.ids.add(id);
+            writes.countChanged |= countChanged;
+        }
+    }
+
+    private void evict(String id, boolean countChanged) {
+        segmentFor(id).remove(id);
+        if (countChanged) {
+            resetCount();
+        }
+    }
+
+    private void resetCount() {
+        synchronized (countLock) {
+            countGeneration++;
+            cachedCount = -1;
+        }
+    }
+
+    private void invalidateAll() {
+        clear();
+
+        TransactionWrites writes = transactionWrites();
+        if (writes != null) {
+            writes.all = true;
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        resetCount();
+    }
+
+    private TransactionWrites currentWrites() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        return (TransactionWrites) TransactionSynchronizationManager.getResource(this);
+    }
+
+    /**
+     * 현재 트랜잭션에서 바꾼 사용자 목록. 트랜잭션마다 하나씩 만들어서 바인딩해두고, 트랜잭션이 끝나면 모아둔 사용자를 한 번에 무효화한다.
+     * 트랜잭션 밖이면 null을 돌려준다.
+     */
+    private TransactionWrites transactionWrites() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        TransactionWrites writes = (TransactionWrites) TransactionSynchronizationManager.getResource(this);
+        if (writes != null) {
+            return writes;
+        }
+
+        final TransactionWrites newWrites = new TransactionWrites();
+        TransactionSynchronizationManager.bindResource(this, newWrites);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(CachingUserDao.this);
+                if (newWrites.all) {
+                    clear();
+                    return;
+                }
+                for (String id : newWrites.ids) {
+                    evict(id, false);
+                }
+                if (newWrites.countChanged) {
+                    resetCount();
+                }
+            }
+        });
+        return newWrites;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 자기 몫의 최대 크기를 넘으면 가장 오래 안 쓴 항목부터 밀어내는 캐시 조각. 조각마다 따로 잠근다.
+     */
+    private class Segment {
+        private final Map<String, CacheEntry> entries;
+        private long generation;
+
+        Segment(final int capacity) {
+            entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized CacheEntry get(String id, long now) {
+            CacheEntry entry = entries.get(id);
+            if (entry != null && entry.expiresAt - now <= 0) {
+                entries.remove(id);
+                return null;
+            }
+            return entry;
+        }
+
+        synchronized long generation() {
+            return generation;
+        }
+
+        /**
+         * 읽는 동안 무효화가 없었고 트랜잭션 밖에서 읽은 값일 때만 캐시에 넣는다.
+         */
+        void putIfUnchanged(String id, User user, long loadGeneration) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                return;
+            }
+            CacheEntry entry = new CacheEntry(new User(user), System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    entries.put(id, entry);
+                }
+            }
+        }
+
+        synchronized void remove(String id) {
+            generation++;
+            entries.remove(id);
+        }
+
+        synchronized void clear() {
+            generation++;
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private static class TransactionWrites {
+        final Set<String> ids = new HashSet<>();
+        boolean countChanged;
+        boolean all;
+
+        boolean contains(String id) {
+            return all || ids.contains(id);
+        }
+    }
+
+    private static class CacheEntry {
+        final User user;
+        final long expiresAt;
+
+        CacheEntry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.user.dao;
+
+/**
+ * 나눠서 커밋하는 배치 작업이 어디까지 처리했는지 작업 이름별로 저장한다. 프로세스를 다시 시작해도 이어서 처리할 수 있다.
+ */
+public interface CheckpointDao {
+    /**
+     * @return 마지막으로 저장한 id. 없으면 null
+     */
+    String getLastId(String name);
+
+    /**
+     * lastId가 null이면 저장해둔 값을 지운다.
+     */
+    void saveLastId(String name, String lastId);
+}
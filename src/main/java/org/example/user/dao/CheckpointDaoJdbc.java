@@ -0,0 +1,33 @@
+package org.example.user.dao;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * batch_checkpoints 테이블에 저장하는 CheckpointDao. 배치 작업의 트랜잭션 안에서 호출하면 청크와 함께 커밋되거나 롤백된다.
+ */
+public class CheckpointDaoJdbc implements CheckpointDao {
+    private JdbcTemplate jdbcTemplate;
+
+    public void setJdbcTemplate(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public String getLastId(String name) {
+        List<String> lastIds = this.jdbcTemplate.queryForList("select last_id from batch_checkpoints where name = ?",
+                new Object[] {name}, String.class);
+        return lastIds.isEmpty() ? null : lastIds.get(0);
+    }
+
+    public void saveLastId(String name, String lastId) {
+        if (lastId == null) {
+            this.jdbcTemplate.update("delete from batch_checkpoints where name = ?", name);
+            return;
+        }
+        if (this.jdbcTemplate.update("update batch_checkpoints set last_id = ? where name = ?", lastId, name) == 0) {
+            this.jdbcTemplate.update("insert into batch_checkpoints(name, last_id) values (?, ?)", name, lastId);
+        }
+    }
+}
@@ -0,0 +1,697 @@
+package org.example.user.dao;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * 물리 커넥션을 재사용하는 크기 제한 커넥션 풀.
+ * ConnectionMaker와 DataSource를 모두 구현하므로 UserDaoJdbc(JdbcTemplate)와 ConnectionMaker 기반 코드 양쪽에 DI 할 수 있다.
+ * 실제 커넥션은 DI 받은 ConnectionMaker(또는 targetDataSource)에서 만들고,
+ * 꺼내간 커넥션의 close()는 물리 커넥션을 닫지 않고 풀에 반납한다.
+ * statementCacheSize를 지정하면 물리 커넥션마다 최근에 쓴 PreparedStatement를 SQL별로 그만큼 닫지 않고 두었다가 다시 내준다.
+ */
+public class ConnectionPool implements ConnectionMaker, DataSource {
+    private ConnectionMaker connectionMaker;
+
+    private int minIdle = 0;
+    private int maxTotal = 10;
+    private long maxWaitMillis = 3000;
+    private long idleTimeoutMillis = 10 * 60 * 1000;
+    private long evictionIntervalMillis = 30 * 1000;
+    private boolean testOnBorrow = true;
+    private int validationTimeoutSeconds = 1;
+    private int statementCacheSize = 0;
+
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>(); // 가장 최근에 반납된 커넥션이 앞에 온다.
+    private int total; // 풀이 만들어서 아직 닫지 않은 물리 커넥션 수 (생성 중인 것 포함)
+    private boolean closed;
+
+    // 락 밖에서 먼저 확인하므로 volatile이어야 다른 스레드가 만든 evictor를 본다.
+    private volatile ScheduledExecutorService evictor;
+
+    public ConnectionPool() {
+    }
+
+    public ConnectionPool(ConnectionMaker connectionMaker) {
+        this.connectionMaker = connectionMaker;
+    }
+
+    public void setConnectionMaker(ConnectionMaker connectionMaker) {
+        this.connectionMaker = connectionMaker;
+    }
+
+    public void setTargetDataSource(final DataSource targetDataSource) {
+        this.connectionMaker = new ConnectionMaker() {
+            @Override
+            public Connection makeConnection() throws SQLException {
+                return targetDataSource.getConnection();
+            }
+        };
+    }
+
+    public void setMinIdle(int minIdle) {
+        this.minIdle = minIdle;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public void setMaxWaitMillis(long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    public void setEvictionIntervalMillis(long evictionIntervalMillis) {
+        this.evictionIntervalMillis = evictionIntervalMillis;
+    }
+
+    public void setTestOnBorrow(boolean testOnBorrow) {
+        this.testOnBorrow = testOnBorrow;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    /**
+     * 커넥션마다 캐시해둘 PreparedStatement 수. 0이면 캐시하지 않는다.
+     * MySQL에서 useServerPrepStmts와 함께 쓰면 서버에 준비해둔 문장을 커넥션이 살아있는 동안 계속 재사용한다.
+     */
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * 설정을 마친 뒤 호출하면 minIdle만큼 커넥션을 미리 만들고 evictor를 바로 시작한다. 첫 요청이 커넥션 생성 비용을 떠안지 않게 한다.
+     * 호출하지 않아도 풀은 동작하지만, 그때는 첫 getConnection()에서 evictor가 시작되고 minIdle은 그 뒤 첫 정리 주기에야 채워진다.
+     */
+    public void init() {
+        startEvictorIfNecessary();
+        fillMinIdle();
+    }
+
+    @Override
+    public Connection makeConnection() throws ClassNotFoundException, SQLException {
+        return getConnection();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        startEvictorIfNecessary();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        while (true) {
+            PooledConnection pooled = acquireSlot(deadline);
+
+            if (pooled == null) { // 빈 자리를 확보했으니 새 물리 커넥션을 만든다.
+                return createConnection().borrow();
+            }
+
+            if (!testOnBorrow || isValid(pooled)) {
+                return pooled.borrow();
+            }
+
+            destroy(pooled); // 검증에 실패한 커넥션은 버리고 다시 시도
+        }
+    }
+
+    /**
+     * 유휴 커넥션이 있으면 꺼내서 돌려주고, 없지만 maxTotal에 여유가 있으면 자리를 예약한 뒤 null을 돌려준다.
+     * 둘 다 안 되면 deadline까지 반납을 기다린다.
+     */
+    private PooledConnection acquireSlot(long deadline) throws SQLException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("ConnectionPool이 이미 종료되었습니다.");
+                }
+
+                PooledConnection pooled = idle.pollFirst();
+                if (pooled != null) {
+                    return pooled;
+                }
+
+                if (total < maxTotal) {
+                    total++;
+                    return null;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new SQLTransientConnectionException(
+                            maxWaitMillis + "ms 동안 사용 가능한 커넥션을 얻지 못했습니다. (maxTotal: " + maxTotal + ")");
+                }
+                available.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("커넥션을 기다리는 중에 인터럽트 되었습니다.", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * acquireSlot()으로 자리를 예약한 뒤에 호출해야 한다. 실패하면 예약한 자리를 돌려놓는다.
+     */
+    private PooledConnection createConnection() throws SQLException {
+        try {
+            return new PooledConnection(connectionMaker.makeConnection());
+        } catch (ClassNotFoundException | SQLException | RuntimeException e) {
+            releaseSlot();
+            if (e instanceof SQLException) {
+                throw (SQLException) e;
+            }
+            throw new SQLException("물리 커넥션 생성에 실패했습니다.", e);
+        }
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        if (!reset(pooled)) {
+            destroy(pooled);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (!closed) {
+                pooled.lastUsedNanos = System.nanoTime();
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(pooled); // 풀이 닫힌 뒤에 반납된 커넥션
+    }
+
+    /**
+     * 트랜잭션을 쓰다가 반납된 커넥션은 다음 사용자에게 넘기기 전에 상태를 되돌린다.
+     */
+    private boolean reset(PooledConnection pooled) {
+        try {
+            Connection c = pooled.physical;
+            if (c.isClosed()) {
+                return false;
+            }
+            if (!c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+            if (c.isReadOnly()) {
+                c.setReadOnly(false);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        closeQuietly(pooled.physical);
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * idleTimeoutMillis 이상 쉬고 있는 커넥션을 minIdle만 남기고 정리한 뒤, 모자라는 만큼 minIdle을 채운다.
+     */
+    void evict() {
+        List<PooledConnection> expired = new ArrayList<>();
+        long now = System.nanoTime();
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+
+        lock.lock();
+        try {
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && idle.size() - expired.size() > minIdle) {
+                PooledConnection pooled = oldestFirst.next();
+                if (now - pooled.lastUsedNanos >= idleTimeoutNanos) {
+                    oldestFirst.remove();
+                    expired.add(pooled);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        for (PooledConnection pooled : expired) {
+            destroy(pooled);
+        }
+
+        fillMinIdle();
+    }
+
+    private void fillMinIdle() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || idle.size() >= minIdle || total >= maxTotal) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                release(createConnection());
+            } catch (SQLException e) {
+                return; // 다음 주기에 다시 시도한다.
+            }
+        }
+    }
+
+    private void startEvictorIfNecessary() {
+        if (evictor != null) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (evictor != null || closed) {
+                return;
+            }
+            evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "connection-pool-evictor");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // idleTimeoutMillis가 지나기 전에는 정리할 커넥션이 없다. 처음 빌려가는 중에 evict()가 끼어들지 않도록 그 뒤에 시작한다.
+            evictor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evict();
+                }
+            }, Math.max(idleTimeoutMillis, evictionIntervalMillis), evictionIntervalMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 유휴 커넥션을 모두 닫고 더 이상 커넥션을 내주지 않는다. 사용 중인 커넥션은 반납될 때 닫힌다.
+     */
+    public void close() {
+        List<PooledConnection> toClose;
+
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        for (PooledConnection pooled : toClose) {
+            destroy(pooled);
+        }
+    }
+
+    public int getIdleCount() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTotalCount() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    private static void closeQuietly(AutoCloseable c) {
+        try {
+            c.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * prepareStatement(sql), prepareStatement(sql, resultSetType, resultSetConcurrency)만 캐시한다.
+     * 생성 키를 돌려받는 문장처럼 옵션이 다른 경우는 매번 새로 준비한다.
+     */
+    private static boolean isCacheable(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        return types.length == 1 || (types.length == 3 && types[1] == int.class && types[2] == int.class);
+    }
+
+    private class PooledConnection {
+        final Connection physical;
+        long lastUsedNanos = System.nanoTime();
+        // 빌려간 스레드만 접근하므로 동기화하지 않는다. 접근 순서로 정렬해서 가장 오래 안 쓴 문장부터 닫는다.
+        private Map<StatementKey, CachedStatement> statements;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new BorrowedConnectionHandler(this));
+        }
+
+        /**
+         * 같은 SQL과 옵션으로 준비해둔 문장이 있으면 내주고, 없으면 새로 준비해서 캐시에 넣는다.
+         * 캐시한 문장을 아직 쓰고 있는데 같은 SQL을 또 준비하면(중첩 조회) 캐시하지 않는 문장을 따로 만든다.
+         */
+        PreparedStatement prepare(Method method, Object[] args) throws Throwable {
+            StatementKey key = new StatementKey(args);
+            if (statements == null) {
+                statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+                        if (size() <= statementCacheSize) {
+                            return false;
+                        }
+                        eldest.getValue().evict();
+                        return true;
+                    }
+                };
+            }
+
+            CachedStatement cached = statements.get(key);
+            if (cached != null && cached.evicted) {
+                statements.remove(key);
+                cached = null;
+            }
+            if (cached != null) {
+                if (cached.inUse) {
+                    return (PreparedStatement) invoke(physical, method, args);
+                }
+                statementCacheHits.increment();
+                return cached.checkOut();
+            }
+
+            statementCacheMisses.increment();
+            cached = new CachedStatement((PreparedStatement) invoke(physical, method, args));
+            statements.put(key, cached);
+            return cached.checkOut();
+        }
+    }
+
+    /**
+     * 문장 캐시의 키. prepareStatement(sql)은 JDBC 기본값인 TYPE_FORWARD_ONLY, CONCUR_READ_ONLY로 준비한 것과 같은 문장으로 본다.
+     */
+    private static final class StatementKey {
+        final String sql;
+        final int resultSetType;
+        final int resultSetConcurrency;
+
+        StatementKey(Object[] args) {
+            sql = (String) args[0];
+            resultSetType = (args.length == 3) ? (Integer) args[1] : ResultSet.TYPE_FORWARD_ONLY;
+            resultSetConcurrency = (args.length == 3) ? (Integer) args[2] : ResultSet.CONCUR_READ_ONLY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StatementKey)) {
+                return false;
+            }
+            StatementKey other = (StatementKey) o;
+            return sql.equals(other.sql) && resultSetType == other.resultSetType && resultSetConcurrency == other.resultSetConcurrency;
+        }
+
+        @Override
+        public int hashCode() {
+            return (sql.hashCode() * 31 + resultSetType) * 31 + resultSetConcurrency;
+        }
+    }
+
+    /**
+     * 캐시에 넣어둔 PreparedStatement. 내준 프록시의 close()는 열려 있는 ResultSet을 닫고 파라미터를 지울 뿐 문장은 닫지 않는다.
+     * 빌려간 쪽이 바꾼 fetchSize, maxRows, queryTimeout 같은 실행 옵션은 close()할 때 처음 값으로 되돌린다.
+     * 그러지 않으면 MySQL 스트리밍을 켜려고 setFetchSize(Integer.MIN_VALUE)한 문장을 같은 SQL의 다음 사용자가 그대로 물려받는다.
+     */
+    private static class CachedStatement implements InvocationHandler {
+        final PreparedStatement physical;
+        boolean inUse;
+        boolean evicted;
+        // 문장을 닫으면 ResultSet도 닫힌다는 JDBC의 약속을 지키려고 마지막으로 돌려준 ResultSet을 기억해둔다.
+        // 문장을 다시 실행하면 드라이버가 이전 ResultSet을 닫으므로 마지막 것 하나만 있으면 된다.
+        private ResultSet resultSet;
+
+        // 처음 옵션을 바꾸기 직전의 실행 옵션. 옵션을 바꾸지 않는 문장은 읽지도 되돌리지도 않는다.
+        private int fetchSize;
+        private int fetchDirection;
+        private int maxRows;
+        private int maxFieldSize;
+        private int queryTimeout;
+        private boolean optionsChanged;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        PreparedStatement checkOut() {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, this);
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly(physical);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.equals("close")) {
+                if (inUse) {
+                    inUse = false;
+                    if (resultSet != null) {
+                        closeQuietly(resultSet);
+                        resultSet = null;
+                    }
+                    if (evicted) {
+                        physical.close();
+                    } else {
+                        physical.clearParameters();
+                        physical.clearBatch();
+                        if (optionsChanged && !restoreOptions()) {
+                            evicted = true; // 옵션을 되돌리지 못한 문장은 다시 내주지 않는다.
+                            closeQuietly(physical);
+                        }
+                    }
+                }
+                return null;
+            } else if (name.equals("isClosed")) {
+                return !inUse || physical.isClosed();
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+
+            if (!optionsChanged && isOptionSetter(name)) {
+                saveOptions();
+            }
+            Object result = ConnectionPool.invoke(physical, method, args);
+            if (result instanceof ResultSet) {
+                resultSet = (ResultSet) result;
+            }
+            return result;
+        }
+
+        private static boolean isOptionSetter(String name) {
+            return name.equals("setFetchSize") || name.equals("setFetchDirection") || name.equals("setMaxRows")
+                    || name.equals("setLargeMaxRows") || name.equals("setMaxFieldSize") || name.equals("setQueryTimeout");
+        }
+
+        private void saveOptions() throws SQLException {
+            fetchSize = physical.getFetchSize();
+            fetchDirection = physical.getFetchDirection();
+            maxRows = physical.getMaxRows();
+            maxFieldSize = physical.getMaxFieldSize();
+            queryTimeout = physical.getQueryTimeout();
+            optionsChanged = true;
+        }
+
+        private boolean restoreOptions() {
+            try {
+                physical.setFetchSize(fetchSize);
+                physical.setFetchDirection(fetchDirection);
+                physical.setMaxRows(maxRows);
+                physical.setMaxFieldSize(maxFieldSize);
+                physical.setQueryTimeout(queryTimeout);
+                optionsChanged = false;
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * 빌려준 커넥션의 close()를 풀 반납으로 바꿔치기한다. 반납 이후의 호출은 예외를 던진다.
+     */
+    private class BorrowedConnectionHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        // 반납한 스레드와 다른 스레드에서 isClosed()나 close()를 호출할 수 있다.
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        BorrowedConnectionHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.equals("close")) {
+                if (returned.compareAndSet(false, true)) {
+                    release(pooled);
+                }
+                return null;
+            } else if (name.equals("isClosed")) {
+                return returned.get() || pooled.physical.isClosed();
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("toString")) {
+                return "Pooled[" + pooled.physical + "]";
+            }
+
+            if (returned.get()) {
+                throw new SQLException("이미 풀에 반납된 커넥션입니다.");
+            }
+
+            if (name.equals("prepareStatement") && statementCacheSize > 0 && isCacheable(method)) {
+                return pooled.prepare(method, args);
+            }
+            return ConnectionPool.invoke(pooled.physical, method, args);
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool은 DI 받은 ConnectionMaker의 계정만 사용합니다.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("ConnectionPool은 " + iface.getName() + " 타입이 아닙니다.");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.user.dao;
+
+/**
+ * JConsole 같은 JMX 클라이언트에서 볼 수 있게 공개하는 커넥션 사용 통계. 시간 단위는 모두 밀리초다.
+ */
+public interface ConnectionUsageMXBean {
+    long getOpenedCount();
+
+    long getClosedCount();
+
+    long getActiveCount();
+
+    long getLeakedCount();
+
+    long getAcquireFailureCount();
+
+    double getAcquireTimeMeanMillis();
+
+    double getAcquireTimeP99Millis();
+
+    double getHeldTimeMeanMillis();
+
+    double getHeldTimeP99Millis();
+
+    double getHeldTimeMaxMillis();
+
+    double getStatementsPerConnectionMean();
+
+    long getStatementsPerConnectionMax();
+
+    String[] getLeakStackTraces();
+}
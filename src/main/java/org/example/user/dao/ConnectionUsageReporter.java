@@ -0,0 +1,8 @@
+package org.example.user.dao;
+
+/**
+ * InstrumentedConnectionMaker가 reportIntervalMillis 마다 넘겨주는 사용 현황을 로그, 메트릭 시스템 등으로 내보낸다.
+ */
+public interface ConnectionUsageReporter {
+    void report(ConnectionUsageSnapshot snapshot);
+}
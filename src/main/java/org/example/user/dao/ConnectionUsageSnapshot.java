@@ -0,0 +1,128 @@
+package org.example.user.dao;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 어느 한 시점의 커넥션 사용 통계. 만든 뒤에는 바뀌지 않으므로 다른 스레드로 넘겨도 안전하다.
+ */
+public class ConnectionUsageSnapshot {
+    private final long openedCount;
+    private final long closedCount;
+    private final long leakedCount;
+    private final long acquireFailureCount;
+    private final Histogram.Snapshot acquireNanos;
+    private final Histogram.Snapshot heldNanos;
+    private final Histogram.Snapshot statementsPerConnection;
+    private final List<LeakedConnection> leaks;
+
+    public ConnectionUsageSnapshot(long openedCount, long closedCount, long leakedCount, long acquireFailureCount,
+                                   Histogram.Snapshot acquireNanos, Histogram.Snapshot heldNanos,
+                                   Histogram.Snapshot statementsPerConnection, List<LeakedConnection> leaks) {
+        this.openedCount = openedCount;
+        this.closedCount = closedCount;
+        this.leakedCount = leakedCount;
+        this.acquireFailureCount = acquireFailureCount;
+        this.acquireNanos = acquireNanos;
+        this.heldNanos = heldNanos;
+        this.statementsPerConnection = statementsPerConnection;
+        this.leaks = Collections.unmodifiableList(leaks);
+    }
+
+    public long getOpenedCount() {
+        return openedCount;
+    }
+
+    public long getClosedCount() {
+        return closedCount;
+    }
+
+    public long getActiveCount() {
+        return openedCount - closedCount;
+    }
+
+    /**
+     * 지금까지 leakThresholdMillis 보다 오래 닫히지 않아서 누수로 판단된 커넥션의 수. 나중에 닫혀도 줄어들지 않는다.
+     */
+    public long getLeakedCount() {
+        return leakedCount;
+    }
+
+    public long getAcquireFailureCount() {
+        return acquireFailureCount;
+    }
+
+    public Histogram.Snapshot getAcquireNanos() {
+        return acquireNanos;
+    }
+
+    public Histogram.Snapshot getHeldNanos() {
+        return heldNanos;
+    }
+
+    public Histogram.Snapshot getStatementsPerConnection() {
+        return statementsPerConnection;
+    }
+
+    /**
+     * 스냅샷을 뜬 시점에 아직 열려 있으면서 누수로 판단된 커넥션들.
+     */
+    public List<LeakedConnection> getLeaks() {
+        return leaks;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("opened=%d, closed=%d, active=%d, leaked=%d, acquireFailures=%d, "
+                        + "acquire(mean=%.3fms, p99=%.3fms), held(mean=%.3fms, p99=%.3fms, max=%.3fms), statements/connection(mean=%.1f, max=%d)",
+                openedCount, closedCount, getActiveCount(), leakedCount, acquireFailureCount,
+                millis(acquireNanos.getMean()), millis(acquireNanos.getPercentile(99)),
+                millis(heldNanos.getMean()), millis(heldNanos.getPercentile(99)), millis(heldNanos.getMax()),
+                statementsPerConnection.getMean(), statementsPerConnection.getMax());
+    }
+
+    static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public static class LeakedConnection {
+        private final String threadName;
+        private final long heldMillis;
+        private final Throwable openedAt;
+
+        public LeakedConnection(String threadName, long heldMillis, Throwable openedAt) {
+            this.threadName = threadName;
+            this.heldMillis = heldMillis;
+            this.openedAt = openedAt;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public long getHeldMillis() {
+            return heldMillis;
+        }
+
+        /**
+         * 커넥션을 연 호출 위치. captureStackTraces가 false이면 null이다.
+         */
+        public Throwable getOpenedAt() {
+            return openedAt;
+        }
+
+        @Override
+        public String toString() {
+            StringWriter writer = new StringWriter();
+            writer.append("Connection held for ").append(String.valueOf(heldMillis)).append("ms by ").append(threadName);
+            if (openedAt != null) {
+                writer.append('\n');
+                openedAt.printStackTrace(new PrintWriter(writer));
+            }
+            return writer.toString();
+        }
+    }
+}
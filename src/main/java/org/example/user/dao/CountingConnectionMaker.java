@@ -2,9 +2,10 @@ package org.example.user.dao;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.atomic.LongAdder;
 
 public class CountingConnectionMaker implements ConnectionMaker {
-    int counter = 0;
+    private final LongAdder counter = new LongAdder(); // 여러 스레드가 동시에 커넥션을 만들어도 빠짐없이 센다.
     private ConnectionMaker realConnectionMaker;
 
     public CountingConnectionMaker(ConnectionMaker realConnectionMaker) {
@@ -12,11 +13,11 @@ public class CountingConnectionMaker implements ConnectionMaker {
     }
 
     public Connection makeConnection() throws ClassNotFoundException, SQLException {
-        this.counter++;
+        this.counter.increment();
         return realConnectionMaker.makeConnection();
     }
 
     public int getCounter() {
-        return counter;
+        return counter.intValue();
     }
 }
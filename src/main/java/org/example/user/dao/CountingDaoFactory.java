@@ -2,7 +2,6 @@ package org.example.user.dao;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.jdbc.datasource.SimpleDriverDataSource;
 
 import javax.sql.DataSource;
 
@@ -15,16 +14,15 @@ public class CountingDaoFactory {
         return userDaoJdbc;
     }
 
-    @Bean
+    @Bean(initMethod = "init", destroyMethod = "close")
     public DataSource dataSource() {
-        SimpleDriverDataSource dataSource = new SimpleDriverDataSource();
-
-        dataSource.setDriverClass(com.mysql.cj.jdbc.Driver.class);
-        dataSource.setUrl("jdbc:mysql//localhost/tobyspring");
-        dataSource.setUsername("root");
-        dataSource.setPassword("");
+        // 풀이 만드는 물리 커넥션의 수를 CountingConnectionMaker로 센다.
+        return new ConnectionPool(connectionMaker());
+    }
 
-        return dataSource;
+    @Bean
+    public CountingConnectionMaker connectionMaker() {
+        return new CountingConnectionMaker(realConnectionMaker());
     }
 
     @Bean
@@ -5,25 +5,77 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.datasource.SimpleDriverDataSource;
 
 import javax.sql.DataSource;
+import java.util.Properties;
 
 @Configuration
 public class DaoFactory {
     @Bean
-    public UserDaoJdbc userDao() {
+    public UserDao userDao() {
+        CachingUserDao cachingUserDao = new CachingUserDao(bloomFilterUserDao());
+        cachingUserDao.setMaxSize(10000);
+        cachingUserDao.setTtlMillis(60 * 1000);
+        return cachingUserDao;
+    }
+
+    // 가입할 때처럼 없는 id를 많이 조회하므로, 없는 게 확실한 id는 DB에 묻지 않는다.
+    @Bean(initMethod = "rebuild", destroyMethod = "close")
+    public BloomFilterUserDao bloomFilterUserDao() {
+        BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(userDaoJdbc());
+        bloomFilterUserDao.setExpectedInsertions(1000000);
+        bloomFilterUserDao.setFalsePositiveProbability(0.01);
+        return bloomFilterUserDao;
+    }
+
+    @Bean
+    public UserDaoJdbc userDaoJdbc() {
         UserDaoJdbc userDaoJdbc = new UserDaoJdbc();
         userDaoJdbc.setJdbcTemplate(dataSource());
         return userDaoJdbc;
     }
 
-    @Bean
+    @Bean(initMethod = "init", destroyMethod = "close")
     public DataSource dataSource() {
+        return connectionPool("jdbc:mysql://localhost/tobyspring");
+    }
+
+    static DataSource connectionPool(String url) {
+        ConnectionPool connectionPool = new ConnectionPool();
+
+        connectionPool.setTargetDataSource(driverDataSource(url));
+        connectionPool.setMinIdle(2);
+        connectionPool.setMaxTotal(10);
+        connectionPool.setMaxWaitMillis(3000);
+        connectionPool.setStatementCacheSize(STATEMENT_CACHE_SIZE);
+
+        return connectionPool;
+    }
+
+    // 풀에 물리 커넥션을 만들어주는 용도로만 사용하므로 빈으로 등록하지 않는다.
+    private static DataSource driverDataSource(String url) {
         SimpleDriverDataSource  dataSource = new SimpleDriverDataSource();
 
         dataSource.setDriverClass(com.mysql.cj.jdbc.Driver.class);
-        dataSource.setUrl("jdbc:mysql://localhost/tobyspring");
+        dataSource.setUrl(url);
         dataSource.setUsername("root");
         dataSource.setPassword("");
+        dataSource.setConnectionProperties(mysqlProperties());
 
         return dataSource;
     }
+
+    // 커넥션마다 캐시하는 문장 수. 서버에 준비된 문장은 max_prepared_stmt_count(기본 16382)를 넘지 않아야 한다.
+    static final int STATEMENT_CACHE_SIZE = 50;
+
+    /**
+     * 서버에서 한 번 준비한 문장을 재사용하고(useServerPrepStmts, cachePrepStmts), JDBC 배치를 멀티 로우 insert로 묶어 보낸다(rewriteBatchedStatements).
+     */
+    static Properties mysqlProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("useServerPrepStmts", "true");
+        properties.setProperty("cachePrepStmts", "true");
+        properties.setProperty("prepStmtCacheSize", "250");
+        properties.setProperty("prepStmtCacheSqlLimit", "2048");
+        properties.setProperty("rewriteBatchedStatements", "true");
+        return properties;
+    }
 }
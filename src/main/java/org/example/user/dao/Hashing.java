@@ -0,0 +1,26 @@
+package org.example.user.dao;
+
+/**
+ * ShardedUserDao의 해시 링과 BloomFilter가 함께 쓰는 문자열 해시
+ */
+final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * 64비트 FNV-1a에 MurmurHash3의 마무리 섞기를 더해서 비슷한 id도 고르게 흩어지게 한다.
+     */
+    static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,547 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.InputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * DB 없이 메모리에서 동작하는 UserDao. 테스트나 오프라인 작업에서 UserDaoJdbc 대신 DI 해서 쓴다.
+ * 사용자는 id로 정렬된 ConcurrentSkipListMap에 두고, 레벨별로 id 인덱스를 따로 둔다.
+ * 단건 조회는 락 없이, 여러 건을 읽는 조회는 읽기 락을 잡고 하므로 쓰기 도중의 어중간한 상태를 보지 않는다(스냅샷 읽기).
+ * 넣고 꺼낼 때 복사본을 쓰므로 호출한 쪽이 User를 고쳐도 저장된 값은 바뀌지 않는다.
+ * 파일을 주고 만들면 모든 변경을 파일 끝에 덧붙여 기록하고, 다시 만들 때 파일을 재생해서 상태를 되살린다.
+ * 스프링 트랜잭션에는 참여하지 않으므로 롤백되지 않는다.
+ */
+public class InMemoryUserDao implements UserDao {
+    private static final byte OP_PUT = 1;
+    private static final byte OP_CLEAR = 2;
+
+    private final ConcurrentSkipListMap<String, User> users = new ConcurrentSkipListMap<>();
+    private final Map<Level, ConcurrentSkipListSet<String>> levelIndex = new EnumMap<>(Level.class);
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private boolean changeTracking = false;
+    private final ConcurrentSkipListMap<Long, String> changes = new ConcurrentSkipListMap<>();
+    private final AtomicLong changeSeq = new AtomicLong();
+
+    private final File file;
+    private FileOutputStream journalFile;
+    private DataOutputStream journal;
+    private boolean syncOnWrite = false;
+
+    public InMemoryUserDao() {
+        this(null);
+    }
+
+    /**
+     * @param file 변경을 덧붙여 기록할 파일. 이미 있으면 내용을 재생해서 상태를 되살린다. null이면 기록하지 않는다.
+     */
+    public InMemoryUserDao(File file) {
+        for (Level level : Level.values()) {
+            levelIndex.put(level, new ConcurrentSkipListSet<String>());
+        }
+
+        this.file = file;
+        if (file != null) {
+            try {
+                replay();
+                journalFile = new FileOutputStream(file, true);
+                journal = new DataOutputStream(new BufferedOutputStream(journalFile));
+            } catch (IOException e) {
+                throw new DataAccessResourceFailureException(file + " 파일을 열 수 없습니다.", e);
+            }
+        }
+    }
+
+    public void setChangeTracking(boolean changeTracking) {
+        this.changeTracking = changeTracking;
+    }
+
+    /**
+     * true이면 쓰기마다 fsync 해서 OS가 죽어도 잃지 않는다. false이면 프로세스가 죽는 것까지만 견딘다.
+     */
+    public void setSyncOnWrite(boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    public void add(User user) {
+        batchAdd(Collections.singletonList(user));
+    }
+
+    public void update(User user) {
+        batchUpdate(Collections.singletonList(user));
+    }
+
+    /**
+     * 멀티 로우 insert처럼 하나라도 id가 겹치면 아무것도 넣지 않는다. 같은 묶음 안에서 id가 겹치는 경우도 마찬가지다.
+     */
+    public void batchAdd(List<User> newUsers) {
+        lock.writeLock().lock();
+        try {
+            Set<String> ids = new HashSet<>();
+            for (User user : newUsers) {
+                if (users.containsKey(user.getId()) || !ids.add(user.getId())) {
+                    throw new DuplicateKeyException("Duplicate entry '" + user.getId() + "' for key 'PRIMARY'");
+                }
+            }
+            for (User user : newUsers) {
+                put(new User(user));
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void batchUpdate(List<User> updatedUsers) {
+        List<String> conflicted = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (User user : updatedUsers) {
+                User stored = users.get(user.getId());
+                if (stored == null) { // 없는 사용자의 update는 0건 처리와 같다.
+                    continue;
+                }
+                if (stored.getVersion() != user.getVersion()) {
+                    conflicted.add(user.getId());
+                    continue;
+                }
+                user.setVersion(user.getVersion() + 1);
+                put(new User(user));
+            }
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (!conflicted.isEmpty()) {
+            throw new OptimisticLockingFailureException("다른 곳에서 먼저 수정된 사용자: " + conflicted);
+        }
+    }
+
+    public void incrementLogin(String id) {
+        lock.writeLock().lock();
+        try {
+            User stored = users.get(id);
+            if (stored != null) {
+                User next = new User(stored);
+                next.setLogin(next.getLogin() + 1);
+                next.setVersion(next.getVersion() + 1);
+                put(next);
+                flush();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void incrementRecommend(String id) {
+        lock.writeLock().lock();
+        try {
+            User stored = users.get(id);
+            if (stored != null) {
+                User next = new User(stored);
+                next.setRecommend(next.getRecommend() + 1);
+                next.setVersion(next.getVersion() + 1);
+                put(next);
+                flush();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend) {
+        Level nextLevel = currentLevel.nextLevel();
+        if (nextLevel == null) {
+            throw new IllegalArgumentException(currentLevel + "은 더이상 업그레이드가 불가능합니다.");
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<User> upgraded = new ArrayList<>();
+            for (String id : levelIndex.get(currentLevel)) {
+                User user = users.get(id);
+                if (user.getLogin() >= minLogin && user.getRecommend() >= minRecommend) {
+                    User next = new User(user);
+                    next.setLevel(nextLevel);
+                    next.setVersion(next.getVersion() + 1);
+                    upgraded.add(next);
+                }
+            }
+            for (User user : upgraded) {
+                put(new User(user));
+            }
+            flush();
+            return upgraded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 쓰기 락을 잡은 상태에서 호출한다.
+     */
+    private void put(User user) {
+        User previous = users.put(user.getId(), user);
+        if (previous != null && previous.getLevel() != user.getLevel()) {
+            levelIndex.get(previous.getLevel()).remove(user.getId());
+        }
+        levelIndex.get(user.getLevel()).add(user.getId());
+
+        if (changeTracking) {
+            changes.put(changeSeq.incrementAndGet(), user.getId());
+        }
+        append(OP_PUT, user);
+    }
+
+    public User get(String id) {
+        User user = users.get(id);
+        if (user == null) {
+            throw new EmptyResultDataAccessException(1);
+        }
+        return new User(user);
+    }
+
+    public Optional<User> find(String id) {
+        User user = users.get(id);
+        return user == null ? Optional.<User>empty() : Optional.of(new User(user));
+    }
+
+    public boolean exists(String id) {
+        return users.containsKey(id);
+    }
+
+    // 쓰기는 모두 쓰기 락 안에서 끝나므로 따로 잠글 것이 없다.
+    public User getForUpdate(String id) {
+        return get(id);
+    }
+
+    public List<User> getAll() {
+        lock.readLock().lock();
+        try {
+            return copy(users.values(), Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<User> getAfter(String lastId, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, User> after = (lastId == null) ? users : users.tailMap(lastId, false);
+            return copy(after.values(), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<User> getRange(String lastId, String toId, int limit) {
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, User> range = (lastId == null) ? users.headMap(toId, true) : users.subMap(lastId, false, toId, true);
+            return copy(range.values(), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<User> copy(Iterable<User> source, int limit) {
+        List<User> copies = new ArrayList<>();
+        for (User user : source) {
+            if (copies.size() >= limit) {
+                break;
+            }
+            copies.add(new User(user));
+        }
+        return copies;
+    }
+
+    public int getRange(String lastId, String toId, int limit, UserBatch batch) {
+        batch.clear();
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, User> range = (lastId == null) ? users : users.tailMap(lastId, false);
+            if (toId != null) {
+                range = range.headMap(toId, true);
+            }
+            for (User user : range.values()) {
+                if (batch.size() >= limit) {
+                    break;
+                }
+                batch.add(user);
+            }
+            return batch.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<String> getPartitionKeys(int partitions) {
+        String[] ids;
+        lock.readLock().lock();
+        try {
+            ids = users.keySet().toArray(new String[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // UserDaoJdbc와 같은 위치의 id를 경계값으로 고른다.
+        List<String> keys = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            int offset = (int) ((long) ids.length * i / partitions) - 1;
+            if (offset < 0) {
+                continue;
+            }
+            if (keys.isEmpty() || !keys.get(keys.size() - 1).equals(ids[offset])) {
+                keys.add(ids[offset]);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 콜백 안에서 이 DAO에 쓸 수 있도록 락을 잡지 않고 순회한다. 순회 도중의 변경은 보일 수도, 안 보일 수도 있다.
+     */
+    public void forEach(UserCallback callback) {
+        for (User user : users.values()) {
+            callback.doWithUser(new User(user));
+        }
+    }
+
+    public void forEach(Level level, UserCallback callback) {
+        if (level == null) {
+            forEach(callback);
+            return;
+        }
+        for (String id : levelIndex.get(level)) {
+            User user = users.get(id);
+            if (user != null && user.getLevel() == level) {
+                callback.doWithUser(new User(user));
+            }
+        }
+    }
+
+    public long getLastChangeSeq() {
+        return changes.isEmpty() ? 0 : changes.lastKey();
+    }
+
+    public List<User> pollChanged(long uptoSeq, int limit) {
+        lock.writeLock().lock();
+        try {
+            while (true) {
+                NavigableMap<Long, String> polled = changes.headMap(uptoSeq, true);
+                if (polled.isEmpty()) {
+                    return new ArrayList<>();
+                }
+
+                Set<String> ids = new TreeSet<>();
+                while (ids.size() < limit && !polled.isEmpty()) {
+                    ids.add(polled.pollFirstEntry().getValue());
+                }
+
+                List<User> changed = new ArrayList<>();
+                for (String id : ids) {
+                    User user = users.get(id);
+                    if (user != null) {
+                        changed.add(new User(user));
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    return changed;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            users.clear();
+            for (Set<String> ids : levelIndex.values()) {
+                ids.clear();
+            }
+            changes.clear();
+            append(OP_CLEAR, null);
+            flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getCount() {
+        return users.size();
+    }
+
+    private void append(byte op, User user) {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.writeByte(op);
+            if (op == OP_PUT) {
+                journal.writeUTF(user.getId());
+                journal.writeUTF(user.getName());
+                journal.writeUTF(user.getPassword());
+                journal.writeByte(user.getLevel().intValue());
+                journal.writeInt(user.getLogin());
+                journal.writeInt(user.getRecommend());
+                journal.writeInt(user.getVersion());
+                journal.writeBoolean(user.getEmail() != null);
+                if (user.getEmail() != null) {
+                    journal.writeUTF(user.getEmail());
+                }
+            }
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException(file + " 파일에 기록하지 못했습니다.", e);
+        }
+    }
+
+    private void flush() {
+        if (journal == null) {
+            return;
+        }
+
+        try {
+            journal.flush();
+            if (syncOnWrite) {
+                journalFile.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException(file + " 파일에 기록하지 못했습니다.", e);
+        }
+    }
+
+    /**
+     * 파일의 기록을 처음부터 재생한다. 기록하던 중에 프로세스가 죽어서 끝부분이 잘린 기록은 버리고 파일을 그 앞까지 자른다.
+     */
+    private void replay() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+
+        long validLength = 0;
+        CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try (DataInputStream in = new DataInputStream(counter)) {
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                try {
+                    if (op == OP_PUT) {
+                        String id = in.readUTF();
+                        String name = in.readUTF();
+                        String password = in.readUTF();
+                        Level level = Level.valueOf(in.readByte());
+                        int login = in.readInt();
+                        int recommend = in.readInt();
+                        int version = in.readInt();
+                        String email = in.readBoolean() ? in.readUTF() : null;
+                        User user = new User(id, name, password, level, login, recommend, email);
+                        user.setVersion(version);
+                        put(user);
+                    } else if (op == OP_CLEAR) {
+                        users.clear();
+                        for (Set<String> ids : levelIndex.values()) {
+                            ids.clear();
+                        }
+                    } else {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                validLength = counter.count;
+            }
+        }
+
+        changes.clear(); // 재생하면서 쌓인 변경 로그는 새로운 변경이 아니다.
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() > validLength) {
+                raf.setLength(validLength);
+            }
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+
+    public void close() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
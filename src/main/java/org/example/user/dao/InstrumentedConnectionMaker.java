@@ -0,0 +1,397 @@
+package org.example.user.dao;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 커넥션 사용 현황을 기록하는 ConnectionMaker/DataSource 데코레이터.
+ * CountingConnectionMaker처럼 DI 받은 ConnectionMaker(또는 targetDataSource)에 커넥션 생성을 위임하면서
+ * 연 횟수, 얻는 데 걸린 시간, 쥐고 있던 시간, 커넥션당 만든 Statement 수를 센다.
+ * leakThresholdMillis 보다 오래 닫히지 않은 커넥션은 누수로 보고 커넥션을 연 곳의 스택 트레이스와 함께 알려준다.
+ * 통계는 snapshot(), JMX(ConnectionUsageMXBean), ConnectionUsageReporter로 볼 수 있다.
+ */
+public class InstrumentedConnectionMaker implements ConnectionMaker, DataSource, ConnectionUsageMXBean {
+    private ConnectionMaker connectionMaker;
+
+    private long leakThresholdMillis = 60 * 1000;
+    private boolean captureStackTraces = true;
+    private ConnectionUsageReporter reporter;
+    private long reportIntervalMillis = 60 * 1000;
+    private String objectName;
+
+    private final LongAdder openedCount = new LongAdder();
+    private final LongAdder closedCount = new LongAdder();
+    private final LongAdder leakedCount = new LongAdder();
+    private final LongAdder acquireFailureCount = new LongAdder();
+    private final Histogram acquireNanos = new Histogram();
+    private final Histogram heldNanos = new Histogram();
+    private final Histogram statementsPerConnection = new Histogram();
+    private final Map<Lease, Boolean> activeLeases = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+    private ObjectName registeredName;
+
+    public InstrumentedConnectionMaker() {
+    }
+
+    public InstrumentedConnectionMaker(ConnectionMaker connectionMaker) {
+        this.connectionMaker = connectionMaker;
+    }
+
+    public void setConnectionMaker(ConnectionMaker connectionMaker) {
+        this.connectionMaker = connectionMaker;
+    }
+
+    public void setTargetDataSource(final DataSource targetDataSource) {
+        this.connectionMaker = new ConnectionMaker() {
+            @Override
+            public Connection makeConnection() throws SQLException {
+                return targetDataSource.getConnection();
+            }
+        };
+    }
+
+    public void setLeakThresholdMillis(long leakThresholdMillis) {
+        this.leakThresholdMillis = leakThresholdMillis;
+    }
+
+    /**
+     * 커넥션을 열 때마다 호출 위치를 Throwable로 잡아둔다. 누수를 추적할 때는 켜고, 오버헤드가 부담되면 끈다.
+     */
+    public void setCaptureStackTraces(boolean captureStackTraces) {
+        this.captureStackTraces = captureStackTraces;
+    }
+
+    public void setReporter(ConnectionUsageReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    public void setReportIntervalMillis(long reportIntervalMillis) {
+        this.reportIntervalMillis = reportIntervalMillis;
+    }
+
+    /**
+     * 지정하면 start()에서 이 이름으로 플랫폼 MBeanServer에 등록한다. 예) org.example.user:type=ConnectionUsage
+     */
+    public void setObjectName(String objectName) {
+        this.objectName = objectName;
+    }
+
+    /**
+     * JMX 등록과 주기적인 누수 검사/리포트를 시작한다. 둘 다 설정하지 않았으면 아무 일도 하지 않는다.
+     */
+    public synchronized void start() throws JMException {
+        if (objectName != null && registeredName == null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name); // 같은 이름으로 다시 뜬 컨텍스트가 앞의 것을 대신한다.
+                server.registerMBean(this, name);
+            }
+            registeredName = name;
+        }
+
+        if (reporter != null && scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "connection-usage-reporter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    reporter.report(snapshot());
+                }
+            }, reportIntervalMillis, reportIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (registeredName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+            } catch (JMException ignored) {
+            }
+            registeredName = null;
+        }
+    }
+
+    @Override
+    public Connection makeConnection() throws SQLException {
+        return getConnection();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection target;
+        try {
+            target = connectionMaker.makeConnection();
+        } catch (ClassNotFoundException e) {
+            acquireFailureCount.increment();
+            throw new SQLException("JDBC 드라이버를 찾을 수 없습니다.", e);
+        } catch (SQLException | RuntimeException e) {
+            acquireFailureCount.increment();
+            throw e;
+        }
+
+        long acquired = System.nanoTime();
+        acquireNanos.record(acquired - start);
+        openedCount.increment();
+
+        Lease lease = new Lease(target, acquired, captureStackTraces ? new Throwable("Connection opened here") : null);
+        activeLeases.put(lease, Boolean.TRUE);
+        return (Connection) Proxy.newProxyInstance(InstrumentedConnectionMaker.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new InstrumentedConnectionHandler(lease));
+    }
+
+    /**
+     * 아직 열려 있는 커넥션 중 leakThresholdMillis 를 넘긴 것을 찾는다. 처음 발견된 누수만 leakedCount에 더한다.
+     */
+    public List<ConnectionUsageSnapshot.LeakedConnection> detectLeaks() {
+        long now = System.nanoTime();
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(leakThresholdMillis);
+        List<ConnectionUsageSnapshot.LeakedConnection> leaks = new ArrayList<>();
+
+        for (Lease lease : activeLeases.keySet()) {
+            long heldNanos = now - lease.openedNanos;
+            if (heldNanos < thresholdNanos) {
+                continue;
+            }
+            if (!lease.reportedAsLeak) {
+                lease.reportedAsLeak = true;
+                leakedCount.increment();
+            }
+            leaks.add(new ConnectionUsageSnapshot.LeakedConnection(lease.threadName,
+                    TimeUnit.NANOSECONDS.toMillis(heldNanos), lease.openedAt));
+        }
+        return leaks;
+    }
+
+    public ConnectionUsageSnapshot snapshot() {
+        List<ConnectionUsageSnapshot.LeakedConnection> leaks = detectLeaks();
+        return new ConnectionUsageSnapshot(openedCount.sum(), closedCount.sum(), leakedCount.sum(), acquireFailureCount.sum(),
+                acquireNanos.snapshot(), heldNanos.snapshot(), statementsPerConnection.snapshot(), leaks);
+    }
+
+    public void reset() {
+        openedCount.reset();
+        closedCount.reset();
+        leakedCount.reset();
+        acquireFailureCount.reset();
+        acquireNanos.reset();
+        heldNanos.reset();
+        statementsPerConnection.reset();
+    }
+
+    private void release(Lease lease) {
+        if (activeLeases.remove(lease) == null) {
+            return;
+        }
+        heldNanos.record(System.nanoTime() - lease.openedNanos);
+        statementsPerConnection.record(lease.statements);
+        closedCount.increment();
+    }
+
+    private static class Lease {
+        final Connection target;
+        final long openedNanos;
+        final Throwable openedAt;
+        final String threadName = Thread.currentThread().getName();
+        volatile int statements; // 커넥션은 한 스레드에서만 쓰므로 증가는 그 스레드만 한다.
+        volatile boolean reportedAsLeak;
+
+        Lease(Connection target, long openedNanos, Throwable openedAt) {
+            this.target = target;
+            this.openedNanos = openedNanos;
+            this.openedAt = openedAt;
+        }
+    }
+
+    /**
+     * Statement를 만드는 메서드 호출을 세고, close()에서 사용 시간을 기록한다. 나머지는 그대로 타깃 커넥션에 위임한다.
+     */
+    private class InstrumentedConnectionHandler implements InvocationHandler {
+        private final Lease lease;
+
+        InstrumentedConnectionHandler(Lease lease) {
+            this.lease = lease;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.equals("close")) {
+                try {
+                    lease.target.close();
+                } finally {
+                    release(lease);
+                }
+                return null;
+            } else if (name.equals("equals")) {
+                return proxy == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            } else if (name.equals("toString")) {
+                return "Instrumented[" + lease.target + "]";
+            } else if (name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall")) {
+                lease.statements++;
+            }
+
+            try {
+                return method.invoke(lease.target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    // ConnectionUsageMXBean
+
+    @Override
+    public long getOpenedCount() {
+        return openedCount.sum();
+    }
+
+    @Override
+    public long getClosedCount() {
+        return closedCount.sum();
+    }
+
+    @Override
+    public long getActiveCount() {
+        return activeLeases.size();
+    }
+
+    @Override
+    public long getLeakedCount() {
+        detectLeaks();
+        return leakedCount.sum();
+    }
+
+    @Override
+    public long getAcquireFailureCount() {
+        return acquireFailureCount.sum();
+    }
+
+    @Override
+    public double getAcquireTimeMeanMillis() {
+        return ConnectionUsageSnapshot.millis(acquireNanos.snapshot().getMean());
+    }
+
+    @Override
+    public double getAcquireTimeP99Millis() {
+        return ConnectionUsageSnapshot.millis(acquireNanos.snapshot().getPercentile(99));
+    }
+
+    @Override
+    public double getHeldTimeMeanMillis() {
+        return ConnectionUsageSnapshot.millis(heldNanos.snapshot().getMean());
+    }
+
+    @Override
+    public double getHeldTimeP99Millis() {
+        return ConnectionUsageSnapshot.millis(heldNanos.snapshot().getPercentile(99));
+    }
+
+    @Override
+    public double getHeldTimeMaxMillis() {
+        return ConnectionUsageSnapshot.millis(heldNanos.snapshot().getMax());
+    }
+
+    @Override
+    public double getStatementsPerConnectionMean() {
+        return statementsPerConnection.snapshot().getMean();
+    }
+
+    @Override
+    public long getStatementsPerConnectionMax() {
+        return statementsPerConnection.snapshot().getMax();
+    }
+
+    @Override
+    public String[] getLeakStackTraces() {
+        List<ConnectionUsageSnapshot.LeakedConnection> leaks = detectLeaks();
+        String[] traces = new String[leaks.size()];
+        for (int i = 0; i < traces.length; i++) {
+            traces[i] = leaks.get(i).toString();
+        }
+        return traces;
+    }
+
+    // DataSource
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("InstrumentedConnectionMaker는 DI 받은 ConnectionMaker의 계정만 사용합니다.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("InstrumentedConnectionMaker는 " + iface.getName() + " 타입이 아닙니다.");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
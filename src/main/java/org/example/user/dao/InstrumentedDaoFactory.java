@@ -0,0 +1,50 @@
+package org.example.user.dao;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.logging.Logger;
+
+/**
+ * CountingDaoFactory와 같은 방식으로, 풀에서 빌려 쓰는 커넥션의 사용 현황을 InstrumentedConnectionMaker로 기록한다.
+ * 통계는 JMX(org.example.user:type=ConnectionUsage)와 1분마다 남기는 로그로 볼 수 있다.
+ */
+@Configuration
+public class InstrumentedDaoFactory {
+    @Bean
+    public UserDaoJdbc userDao() {
+        UserDaoJdbc userDaoJdbc = new UserDaoJdbc();
+        userDaoJdbc.setJdbcTemplate(dataSource());
+        return userDaoJdbc;
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public InstrumentedConnectionMaker dataSource() {
+        InstrumentedConnectionMaker instrumented = new InstrumentedConnectionMaker();
+        instrumented.setTargetDataSource(connectionPool());
+        instrumented.setLeakThresholdMillis(30 * 1000);
+        instrumented.setObjectName("org.example.user:type=ConnectionUsage");
+        instrumented.setReporter(new ConnectionUsageReporter() {
+            private final Logger logger = Logger.getLogger(InstrumentedConnectionMaker.class.getName());
+
+            @Override
+            public void report(ConnectionUsageSnapshot snapshot) {
+                logger.info(snapshot.toString());
+                for (ConnectionUsageSnapshot.LeakedConnection leak : snapshot.getLeaks()) {
+                    logger.warning(leak.toString());
+                }
+            }
+        });
+        return instrumented;
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    public ConnectionPool connectionPool() {
+        return new ConnectionPool(realConnectionMaker());
+    }
+
+    @Bean
+    public ConnectionMaker realConnectionMaker() {
+        return new AConnectionMaker();
+    }
+}
@@ -0,0 +1,662 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * MySQL 없이 파일 하나에 사용자를 저장하는 UserDao.
+ * 파일을 메모리에 매핑해두고 변경을 레코드로 끝에 덧붙이며, 메모리에는 id → 최신 레코드 위치 인덱스와 레벨별 id 인덱스만 둔다.
+ * get()은 매핑된 버퍼에서 바로 레코드를 풀어서 읽는다.
+ * 레코드는 [본문 길이 int][본문 CRC32 int][본문] 형식이며, 다시 열 때 길이가 0이거나 CRC가 맞지 않는 곳까지 재생해서 상태를 되살린다.
+ * 덮어써진 레코드가 살아있는 레코드보다 많아지면 살아있는 레코드만 새 파일에 옮겨 쓰고 바꿔치기한다(compaction).
+ * 파일 하나를 통째로 매핑하므로 크기는 2GB를 넘을 수 없다. 변경 추적(pollChanged) 로그는 파일에 남기지 않는다.
+ */
+public class MappedJournalUserDao implements UserDao {
+    private static final int HEADER_SIZE = 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_CLEAR = 2;
+    private static final short NULL_STRING = -1;
+    // 레코드 시작에서 version까지의 거리. 헤더, op, level, login, recommend 다음이다.
+    private static final int VERSION_OFFSET = HEADER_SIZE + 1 + 1 + 4 + 4;
+
+    private final File file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+
+    private ConcurrentSkipListMap<String, Integer> index = new ConcurrentSkipListMap<>();
+    private final Map<Level, ConcurrentSkipListSet<String>> levelIndex = new EnumMap<>(Level.class);
+    private volatile int count;
+    private long liveBytes;
+    private long deadBytes;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int initialCapacity = 1024 * 1024;
+    private long minCompactionBytes = 1024 * 1024;
+    private boolean syncOnWrite = false;
+
+    private boolean changeTracking = false;
+    private final ConcurrentSkipListMap<Long, String> changes = new ConcurrentSkipListMap<>();
+    private final AtomicLong changeSeq = new AtomicLong();
+
+    public MappedJournalUserDao(File file) {
+        this(file, 1024 * 1024);
+    }
+
+    public MappedJournalUserDao(File file, int initialCapacity) {
+        for (Level level : Level.values()) {
+            levelIndex.put(level, new ConcurrentSkipListSet<String>());
+        }
+
+        this.file = file;
+        this.initialCapacity = initialCapacity;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), initialCapacity));
+            recover();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException(file + " 파일을 열 수 없습니다.", e);
+        }
+    }
+
+    /**
+     * 덮어써진 레코드가 이 크기를 넘고 살아있는 레코드보다 많아지면 compaction 한다.
+     */
+    public void setMinCompactionBytes(long minCompactionBytes) {
+        this.minCompactionBytes = minCompactionBytes;
+    }
+
+    /**
+     * true이면 쓰기마다 매핑된 버퍼를 디스크에 force 한다. false이면 프로세스가 죽는 것까지만 견디고 OS 장애에는 마지막 변경을 잃을 수 있다.
+     */
+    public void setSyncOnWrite(boolean syncOnWrite) {
+        this.syncOnWrite = syncOnWrite;
+    }
+
+    public void setChangeTracking(boolean changeTracking) {
+        this.changeTracking = changeTracking;
+    }
+
+    /**
+     * 파일 처음부터 레코드를 읽어서 인덱스를 만든다. 쓰다가 끊긴 레코드를 만나면 거기서 멈추고 그 뒤를 지운다.
+     */
+    private void recover() {
+        int position = 0;
+        while (position + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            if (crc(buffer, position + HEADER_SIZE, length) != buffer.getInt(position + 4)) {
+                break;
+            }
+
+            byte op = buffer.get(position + HEADER_SIZE);
+            if (op == OP_PUT) {
+                User user = decode(buffer, position);
+                index(user.getId(), user.getLevel(), position, HEADER_SIZE + length);
+            } else if (op == OP_CLEAR) {
+                clearIndex();
+                deadBytes += HEADER_SIZE + length;
+            }
+            position += HEADER_SIZE + length;
+        }
+
+        writePosition = position;
+        if (position + 4 <= buffer.capacity() && buffer.getInt(position) != 0) {
+            for (int i = position; i < buffer.capacity(); i++) {
+                buffer.put(i, (byte) 0); // 끊긴 레코드의 잔해가 새 레코드 뒤에서 유효한 레코드로 읽히지 않도록 지운다.
+            }
+        }
+    }
+
+    public void add(User user) {
+        batchAdd(Collections.singletonList(user));
+    }
+
+    public void update(User user) {
+        batchUpdate(Collections.singletonList(user));
+    }
+
+    public void batchAdd(List<User> users) {
+        lock.writeLock().lock();
+        try {
+            Set<String> ids = new HashSet<>();
+            for (User user : users) {
+                if (index.containsKey(user.getId()) || !ids.add(user.getId())) {
+                    throw new DuplicateKeyException("Duplicate entry '" + user.getId() + "' for key 'PRIMARY'");
+                }
+                checkLength(user);
+            }
+            for (User user : users) {
+                append(user);
+            }
+            afterWrite();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void batchUpdate(List<User> users) {
+        List<String> conflicted = new ArrayList<>();
+        for (User user : users) {
+            checkLength(user); // 일부만 쓰고 실패하지 않도록 먼저 확인한다.
+        }
+        lock.writeLock().lock();
+        try {
+            for (User user : users) {
+                Integer position = index.get(user.getId());
+                if (position == null) {
+                    continue;
+                }
+                if (buffer.getInt(position + VERSION_OFFSET) != user.getVersion()) {
+                    conflicted.add(user.getId());
+                    continue;
+                }
+                user.setVersion(user.getVersion() + 1);
+                append(user);
+            }
+            afterWrite();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        if (!conflicted.isEmpty()) {
+            throw new OptimisticLockingFailureException("다른 곳에서 먼저 수정된 사용자: " + conflicted);
+        }
+    }
+
+    public void incrementLogin(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer position = index.get(id);
+            if (position != null) {
+                User user = decode(buffer, position);
+                user.setLogin(user.getLogin() + 1);
+                user.setVersion(user.getVersion() + 1);
+                append(user);
+                afterWrite();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void incrementRecommend(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer position = index.get(id);
+            if (position != null) {
+                User user = decode(buffer, position);
+                user.setRecommend(user.getRecommend() + 1);
+                user.setVersion(user.getVersion() + 1);
+                append(user);
+                afterWrite();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend) {
+        Level nextLevel = currentLevel.nextLevel();
+        if (nextLevel == null) {
+            throw new IllegalArgumentException(currentLevel + "은 더이상 업그레이드가 불가능합니다.");
+        }
+
+        lock.writeLock().lock();
+        try {
+            List<User> upgraded = new ArrayList<>();
+            for (String id : levelIndex.get(currentLevel)) {
+                User user = decode(buffer, index.get(id));
+                if (user.getLogin() >= minLogin && user.getRecommend() >= minRecommend) {
+                    user.setLevel(nextLevel);
+                    user.setVersion(user.getVersion() + 1);
+                    upgraded.add(user);
+                }
+            }
+            for (User user : upgraded) {
+                append(user);
+            }
+            afterWrite();
+            return upgraded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public User get(String id) {
+        lock.readLock().lock();
+        try {
+            Integer position = index.get(id);
+            if (position == null) {
+                throw new EmptyResultDataAccessException(1);
+            }
+            return decode(buffer, position);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Optional<User> find(String id) {
+        lock.readLock().lock();
+        try {
+            Integer position = index.get(id);
+            return position == null ? Optional.<User>empty() : Optional.of(decode(buffer, position));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean exists(String id) {
+        return index.containsKey(id);
+    }
+
+    // 쓰기는 모두 쓰기 락 안에서 끝나므로 따로 잠글 것이 없다.
+    public User getForUpdate(String id) {
+        return get(id);
+    }
+
+    public List<User> getAll() {
+        return getAfter(null, Integer.MAX_VALUE);
+    }
+
+    public List<User> getAfter(String lastId, int limit) {
+        lock.readLock().lock();
+        try {
+            return decodeAll(lastId == null ? index : index.tailMap(lastId, false), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<User> getRange(String lastId, String toId, int limit) {
+        lock.readLock().lock();
+        try {
+            return decodeAll(lastId == null ? index.headMap(toId, true) : index.subMap(lastId, false, toId, true), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getRange(String lastId, String toId, int limit, UserBatch batch) {
+        batch.clear();
+        lock.readLock().lock();
+        try {
+            NavigableMap<String, Integer> range = (lastId == null) ? index : index.tailMap(lastId, false);
+            if (toId != null) {
+                range = range.headMap(toId, true);
+            }
+            for (Integer position : range.values()) {
+                if (batch.size() >= limit) {
+                    break;
+                }
+                batch.add(decode(buffer, position));
+            }
+            return batch.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<User> decodeAll(NavigableMap<String, Integer> positions, int limit) {
+        List<User> users = new ArrayList<>();
+        for (Integer position : positions.values()) {
+            if (users.size() >= limit) {
+                break;
+            }
+            users.add(decode(buffer, position));
+        }
+        return users;
+    }
+
+    public List<String> getPartitionKeys(int partitions) {
+        String[] ids;
+        lock.readLock().lock();
+        try {
+            ids = index.keySet().toArray(new String[0]);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            int offset = (int) ((long) ids.length * i / partitions) - 1;
+            if (offset < 0) {
+                continue;
+            }
+            if (keys.isEmpty() || !keys.get(keys.size() - 1).equals(ids[offset])) {
+                keys.add(ids[offset]);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * 콜백 안에서 이 DAO에 쓸 수 있도록 사용자 한 명을 읽을 때만 락을 잡는다. 순회 도중의 변경은 보일 수도, 안 보일 수도 있다.
+     */
+    public void forEach(UserCallback callback) {
+        forEach(null, callback);
+    }
+
+    public void forEach(Level level, UserCallback callback) {
+        Set<String> ids = (level == null) ? index.keySet() : levelIndex.get(level);
+        for (String id : ids) {
+            User user;
+            lock.readLock().lock();
+            try {
+                Integer position = index.get(id);
+                user = (position == null) ? null : decode(buffer, position);
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (user != null && (level == null || user.getLevel() == level)) {
+                callback.doWithUser(user);
+            }
+        }
+    }
+
+    public long getLastChangeSeq() {
+        return changes.isEmpty() ? 0 : changes.lastKey();
+    }
+
+    public List<User> pollChanged(long uptoSeq, int limit) {
+        lock.writeLock().lock();
+        try {
+            while (true) {
+                NavigableMap<Long, String> polled = changes.headMap(uptoSeq, true);
+                if (polled.isEmpty()) {
+                    return new ArrayList<>();
+                }
+
+                Set<String> ids = new TreeSet<>();
+                while (ids.size() < limit && !polled.isEmpty()) {
+                    ids.add(polled.pollFirstEntry().getValue());
+                }
+
+                List<User> changed = new ArrayList<>();
+                for (String id : ids) {
+                    Integer position = index.get(id);
+                    if (position != null) {
+                        changed.add(decode(buffer, position));
+                    }
+                }
+                if (!changed.isEmpty()) {
+                    return changed;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleteAll() {
+        lock.writeLock().lock();
+        try {
+            ByteBuffer body = ByteBuffer.allocate(1).put(OP_CLEAR);
+            writeRecord(body);
+            clearIndex();
+            changes.clear();
+            deadBytes += HEADER_SIZE + 1;
+            afterWrite();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 쓰기 락을 잡은 상태에서 호출한다.
+     */
+    private void append(User user) {
+        int position = writeRecord(encode(user));
+        index(user.getId(), user.getLevel(), position, buffer.getInt(position) + HEADER_SIZE);
+        if (changeTracking) {
+            changes.put(changeSeq.incrementAndGet(), user.getId());
+        }
+    }
+
+    private void index(String id, Level level, int position, int size) {
+        Integer previous = index.put(id, position);
+        if (previous != null) {
+            int previousSize = buffer.getInt(previous) + HEADER_SIZE;
+            Level previousLevel = Level.valueOf(buffer.get(previous + HEADER_SIZE + 1));
+            if (previousLevel != level) {
+                levelIndex.get(previousLevel).remove(id);
+            }
+            liveBytes -= previousSize;
+            deadBytes += previousSize;
+        } else {
+            count++;
+        }
+        levelIndex.get(level).add(id);
+        liveBytes += size;
+    }
+
+    private void clearIndex() {
+        index.clear();
+        for (Set<String> ids : levelIndex.values()) {
+            ids.clear();
+        }
+        count = 0;
+        deadBytes += liveBytes;
+        liveBytes = 0;
+    }
+
+    private int writeRecord(ByteBuffer body) {
+        body.flip();
+        int length = body.remaining();
+        ensureCapacity(HEADER_SIZE + length);
+
+        int position = writePosition;
+        ByteBuffer target = buffer.duplicate();
+        target.position(position + HEADER_SIZE);
+        target.put(body);
+        buffer.putInt(position + 4, crc(buffer, position + HEADER_SIZE, length));
+        buffer.putInt(position, length); // 길이를 마지막에 써서 본문을 다 쓰기 전에는 레코드로 보이지 않게 한다.
+        writePosition += HEADER_SIZE + length;
+        return position;
+    }
+
+    private void ensureCapacity(int size) {
+        if ((long) writePosition + size + HEADER_SIZE <= buffer.capacity()) {
+            return;
+        }
+
+        long capacity = buffer.capacity();
+        while (capacity < (long) writePosition + size + HEADER_SIZE) {
+            capacity *= 2;
+        }
+        if (capacity > Integer.MAX_VALUE) {
+            throw new DataAccessResourceFailureException(file + " 파일이 최대 크기(2GB)를 넘었습니다.");
+        }
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException(file + " 파일을 늘리지 못했습니다.", e);
+        }
+    }
+
+    private void afterWrite() {
+        if (deadBytes > minCompactionBytes && deadBytes > liveBytes) {
+            compact();
+        } else if (syncOnWrite) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 살아있는 레코드만 id 순서로 새 파일에 그대로 복사하고, 원래 파일을 원자적으로 바꿔치기한다.
+     * 바꿔치기 전에 죽으면 원래 파일이 그대로 남고, 바꾼 뒤에 죽으면 새 파일이 온전하다.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            File compacted = new File(file.getPath() + ".compact");
+            FileChannel newChannel = FileChannel.open(compacted.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long capacity = Math.max(initialCapacity, liveBytes * 2);
+            MappedByteBuffer newBuffer = newChannel.map(FileChannel.MapMode.READ_WRITE, 0, Math.min(capacity, Integer.MAX_VALUE));
+
+            ConcurrentSkipListMap<String, Integer> newIndex = new ConcurrentSkipListMap<>();
+            int position = 0;
+            for (Map.Entry<String, Integer> entry : index.entrySet()) {
+                int size = buffer.getInt(entry.getValue()) + HEADER_SIZE;
+                ByteBuffer record = buffer.duplicate();
+                record.position(entry.getValue()).limit(entry.getValue() + size);
+                ByteBuffer target = newBuffer.duplicate();
+                target.position(position);
+                target.put(record);
+                newIndex.put(entry.getKey(), position);
+                position += size;
+            }
+            newBuffer.force();
+            Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+            channel.close(); // 예전 매핑은 참조가 사라지면 GC가 해제한다.
+            channel = newChannel;
+            buffer = newBuffer;
+            index = newIndex;
+            writePosition = position;
+            deadBytes = 0;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException(file + " 파일을 compaction 하지 못했습니다.", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+
+    public long getDeadBytes() {
+        return deadBytes;
+    }
+
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException ignored) {
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static ByteBuffer encode(User user) {
+        byte[] id = user.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] name = user.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] password = user.getPassword().getBytes(StandardCharsets.UTF_8);
+        byte[] email = user.getEmail() == null ? null : user.getEmail().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer body = ByteBuffer.allocate(1 + 1 + 4 + 4 + 4 + 2 * 4 + id.length + name.length + password.length
+                + (email == null ? 0 : email.length));
+        body.put(OP_PUT);
+        body.put((byte) user.getLevel().intValue());
+        body.putInt(user.getLogin());
+        body.putInt(user.getRecommend());
+        body.putInt(user.getVersion());
+        putString(body, id);
+        putString(body, name);
+        putString(body, password);
+        putString(body, email);
+        return body;
+    }
+
+    /**
+     * 문자열 길이는 short로 기록하므로 UTF-8로 Short.MAX_VALUE 바이트를 넘는 값은 받지 않는다.
+     * 그대로 쓰면 길이가 음수로 기록되어 레코드를 읽을 수 없게 된다.
+     */
+    private static void checkLength(User user) {
+        String[] values = {user.getId(), user.getName(), user.getPassword(), user.getEmail()};
+        for (String value : values) {
+            if (value != null && value.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE) {
+                throw new DataIntegrityViolationException(user.getId() + " 사용자의 값이 " + Short.MAX_VALUE + "바이트를 넘어서 저장할 수 없습니다.");
+            }
+        }
+    }
+
+    private static void putString(ByteBuffer body, byte[] value) {
+        if (value == null) {
+            body.putShort(NULL_STRING);
+            return;
+        }
+        body.putShort((short) value.length);
+        body.put(value);
+    }
+
+    /**
+     * 매핑된 버퍼의 레코드에서 바로 User를 만든다. 버퍼를 공유하므로 절대 위치로만 읽는다.
+     */
+    private static User decode(ByteBuffer buffer, int position) {
+        int offset = position + HEADER_SIZE + 1;
+        Level level = Level.valueOf(buffer.get(offset));
+        int login = buffer.getInt(offset + 1);
+        int recommend = buffer.getInt(offset + 5);
+        int version = buffer.getInt(offset + 9);
+        offset += 13;
+
+        String[] strings = new String[4];
+        for (int i = 0; i < strings.length; i++) {
+            short length = buffer.getShort(offset);
+            offset += 2;
+            if (length == NULL_STRING) {
+                continue;
+            }
+            byte[] bytes = new byte[length];
+            for (int j = 0; j < length; j++) {
+                bytes[j] = buffer.get(offset + j);
+            }
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            offset += length;
+        }
+        User user = new User(strings[0], strings[1], strings[2], level, login, recommend, strings[3]);
+        user.setVersion(version);
+        return user;
+    }
+
+    private static int crc(ByteBuffer buffer, int position, int length) {
+        ByteBuffer body = buffer.duplicate();
+        body.position(position).limit(position + length);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+}
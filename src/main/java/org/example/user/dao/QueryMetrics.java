@@ -0,0 +1,212 @@
+package org.example.user.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * UserDaoJdbc의 메서드별 응답 시간 히스토그램과 처리한 행 수, 에러 수를 모은다.
+ * slowQueryThresholdMillis 이상 걸린 쿼리는 SQL과 바인딩 파라미터를 함께 로그로 남기는데,
+ * 민감한 컬럼(기본은 password)에 바인딩된 값은 가려서 남긴다.
+ * 기록은 LongAdder 몇 번을 더하는 정도라서 운영 중에도 켜둘 수 있다.
+ */
+public class QueryMetrics {
+    private static final Logger slowQueryLogger = Logger.getLogger(QueryMetrics.class.getName());
+    private static final String MASK = "****";
+    // 멀티 로우 insert나 in 목록처럼 행 수마다 SQL이 달라지는 쿼리가 있어서, 이 개수를 넘으면 더는 캐시하지 않고 매번 분석한다.
+    private static final int MAX_MASKED_STATEMENTS = 1000;
+
+    private static final Pattern INSERT_COLUMNS =
+            Pattern.compile("^\\s*insert\\s+into\\s+\\w+\\s*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPARED_COLUMN =
+            Pattern.compile("(\\w+)\\s*(?:=|<>|!=|>=|<=|<|>|\\blike)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private long slowQueryThresholdMillis = 1000;
+    private Set<String> maskedColumns = new HashSet<>(Collections.singletonList("password"));
+
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    private final Map<String, boolean[]> maskedParameters = new ConcurrentHashMap<>();
+
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    public void setMaskedColumns(Set<String> maskedColumns) {
+        Set<String> lowerCased = new HashSet<>();
+        for (String column : maskedColumns) {
+            lowerCased.add(column.toLowerCase(Locale.ROOT));
+        }
+        this.maskedColumns = lowerCased;
+        this.maskedParameters.clear();
+    }
+
+    public void record(String method, String sql, Object[] args, long elapsedNanos, long rows) {
+        Stats methodStats = stats(method);
+        methodStats.latencyNanos.record(elapsedNanos);
+        methodStats.rows.add(rows);
+
+        if (elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis)) {
+            methodStats.slowQueries.increment();
+            if (slowQueryLogger.isLoggable(Level.WARNING)) {
+                slowQueryLogger.warning(String.format("Slow query [%s] %.3fms, %d rows: %s %s",
+                        method, elapsedNanos / 1_000_000.0, rows, sql, maskedArguments(sql, args)));
+            }
+        }
+    }
+
+    public void recordError(String method, String sql, Object[] args, long elapsedNanos, RuntimeException e) {
+        Stats methodStats = stats(method);
+        methodStats.latencyNanos.record(elapsedNanos);
+        methodStats.errors.increment();
+
+        if (elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis)) {
+            methodStats.slowQueries.increment();
+            if (slowQueryLogger.isLoggable(Level.WARNING)) {
+                slowQueryLogger.warning(String.format("Slow query [%s] %.3fms, failed with %s: %s %s",
+                        method, elapsedNanos / 1_000_000.0, e.getClass().getSimpleName(), sql, maskedArguments(sql, args)));
+            }
+        }
+    }
+
+    private Stats stats(String method) {
+        Stats methodStats = stats.get(method);
+        if (methodStats == null) {
+            Stats newStats = new Stats();
+            methodStats = stats.putIfAbsent(method, newStats);
+            if (methodStats == null) {
+                methodStats = newStats;
+            }
+        }
+        return methodStats;
+    }
+
+    /**
+     * 바인딩 파라미터를 로그에 남길 모양으로 바꾼다. 민감한 컬럼에 바인딩되는 값은 MASK로 바꾼다.
+     */
+    String maskedArguments(String sql, Object[] args) {
+        if (args == null || args.length == 0) {
+            return "[]";
+        }
+
+        boolean[] masked = maskedParameters.get(sql);
+        if (masked == null) {
+            masked = findMaskedParameters(sql);
+            if (maskedParameters.size() < MAX_MASKED_STATEMENTS) {
+                maskedParameters.put(sql, masked);
+            }
+        }
+
+        List<Object> values = new ArrayList<>(args.length);
+        for (int i = 0; i < args.length; i++) {
+            values.add(i < masked.length && masked[i] ? MASK : args[i]);
+        }
+        return values.toString();
+    }
+
+    /**
+     * insert는 컬럼 목록의 순서로, 나머지는 '?' 바로 앞에서 비교하는 컬럼 이름으로 파라미터가 어느 컬럼에 바인딩되는지 알아낸다.
+     */
+    private boolean[] findMaskedParameters(String sql) {
+        List<Integer> placeholders = new ArrayList<>();
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                placeholders.add(i);
+            }
+        }
+        boolean[] masked = new boolean[placeholders.size()];
+
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        if (insert.find()) {
+            String[] columns = insert.group(1).split(",");
+            for (int i = 0; i < masked.length; i++) { // 멀티 로우 insert는 컬럼 목록이 반복된다.
+                masked[i] = maskedColumns.contains(columns[i % columns.length].trim().toLowerCase(Locale.ROOT));
+            }
+            return masked;
+        }
+
+        for (int i = 0; i < masked.length; i++) {
+            Matcher column = COMPARED_COLUMN.matcher(sql.substring(0, placeholders.get(i)));
+            masked[i] = column.find() && maskedColumns.contains(column.group(1).toLowerCase(Locale.ROOT));
+        }
+        return masked;
+    }
+
+    public Stats getStats(String method) {
+        return stats.get(method);
+    }
+
+    /**
+     * 메서드 이름 순으로 정렬한 전체 통계
+     */
+    public Map<String, Stats> getAllStats() {
+        String[] methods = stats.keySet().toArray(new String[0]);
+        Arrays.sort(methods);
+        Map<String, Stats> sorted = new LinkedHashMap<>();
+        for (String method : methods) {
+            sorted.put(method, stats.get(method));
+        }
+        return sorted;
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Stats> entry : getAllStats().entrySet()) {
+            report.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+        }
+        return report.toString();
+    }
+
+    public static class Stats {
+        private final Histogram latencyNanos = new Histogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder slowQueries = new LongAdder();
+
+        public Histogram.Snapshot getLatencyNanos() {
+            return latencyNanos.snapshot();
+        }
+
+        public long getCalls() {
+            return latencyNanos.snapshot().getCount();
+        }
+
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getSlowQueries() {
+            return slowQueries.sum();
+        }
+
+        @Override
+        public String toString() {
+            Histogram.Snapshot latency = latencyNanos.snapshot();
+            return String.format("calls=%d, rows=%d, errors=%d, slow=%d, p50=%.3fms, p99=%.3fms, p999=%.3fms, max=%.3fms",
+                    latency.getCount(), rows.sum(), errors.sum(), slowQueries.sum(),
+                    latency.getPercentile(50) / 1_000_000.0, latency.getPercentile(99) / 1_000_000.0,
+                    latency.getPercentile(99.9) / 1_000_000.0, latency.getMax() / 1_000_000.0);
+        }
+    }
+}
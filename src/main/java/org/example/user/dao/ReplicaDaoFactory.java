@@ -0,0 +1,75 @@
+package org.example.user.dao;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+/**
+ * DaoFactory와 같은 구성에서 읽기를 MySQL 복제본으로 나눠 보내는 설정. 복제본을 둔 환경에서만 이 설정을 쓴다.
+ * 캐시와 블룸 필터는 복제 지연으로 빠진 값을 들고 있지 않도록 원본에서 채운다(CachingUserDao, BloomFilterUserDao.rebuild()).
+ */
+@Configuration
+public class ReplicaDaoFactory {
+    @Bean
+    public UserDao userDao() {
+        CachingUserDao cachingUserDao = new CachingUserDao(bloomFilterUserDao());
+        cachingUserDao.setMaxSize(10000);
+        cachingUserDao.setTtlMillis(60 * 1000);
+        return cachingUserDao;
+    }
+
+    @Bean(initMethod = "rebuild", destroyMethod = "close")
+    public BloomFilterUserDao bloomFilterUserDao() {
+        BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(userDaoJdbc());
+        bloomFilterUserDao.setExpectedInsertions(1000000);
+        bloomFilterUserDao.setFalsePositiveProbability(0.01);
+        return bloomFilterUserDao;
+    }
+
+    @Bean
+    public UserDaoJdbc userDaoJdbc() {
+        UserDaoJdbc userDaoJdbc = new UserDaoJdbc();
+        userDaoJdbc.setJdbcTemplate(dataSource());
+        return userDaoJdbc;
+    }
+
+    /**
+     * DAO와 트랜잭션 매니저가 함께 쓰는 DataSource. 읽기 전용 트랜잭션인지 알 수 있도록 첫 쿼리를 실행할 때 커넥션을 가져온다.
+     */
+    @Bean
+    public DataSource dataSource() {
+        return new LazyConnectionDataSourceProxy(routingDataSource());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ReplicaRoutingDataSource routingDataSource() {
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource();
+
+        routingDataSource.setPrimary(primaryDataSource());
+        routingDataSource.setReplicas(Arrays.asList(replica1DataSource(), replica2DataSource()));
+        routingDataSource.setMaxReplicationLagMillis(1000);
+        routingDataSource.setEjectMillis(30 * 1000);
+        routingDataSource.setLagQuery("select timestampdiff(second, max(last_applied_transaction_end_apply_timestamp), now(6)) "
+                + "from performance_schema.replication_applier_status_by_worker");
+
+        return routingDataSource;
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    public DataSource primaryDataSource() {
+        return DaoFactory.connectionPool("jdbc:mysql://localhost/tobyspring");
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    public DataSource replica1DataSource() {
+        return DaoFactory.connectionPool("jdbc:mysql://replica1/tobyspring");
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    public DataSource replica2DataSource() {
+        return DaoFactory.connectionPool("jdbc:mysql://replica2/tobyspring");
+    }
+}
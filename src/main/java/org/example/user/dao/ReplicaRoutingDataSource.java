@@ -0,0 +1,369 @@
+package org.example.user.dao;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 읽기는 복제본(replica)으로, 쓰기는 원본(primary)으로 보내는 DataSource.
+ * 읽기 전용 트랜잭션과, 트랜잭션 밖에서 beginRead()/endRead()로 읽기라고 표시한 구간의 커넥션만 복제본에서 가져온다.
+ * 쓰기 트랜잭션 안에서는 읽기도 원본으로 가므로 방금 쓴 값을 그대로 읽는다.
+ * 트랜잭션이 시작된 뒤에야 읽기 전용인지 알 수 있으므로, 트랜잭션 매니저와 DAO에는 LazyConnectionDataSourceProxy로 감싸서 넘겨야 한다.
+ *
+ * 복제본은 돌아가면서 고르고, 커넥션을 얻지 못한 복제본은 ejectMillis 동안 제외한다. 쓸 수 있는 복제본이 없으면 원본에서 읽는다.
+ * 원본에 쓴 스레드는 그 뒤 maxReplicationLagMillis 동안 읽기도 원본으로 보내서 자기가 쓴 값을 읽을 수 있게 한다(read-your-writes).
+ * 이 보장은 쓴 스레드에만 해당하므로, 다른 호출자와 공유하는 캐시를 채우는 읽기는 beginPrimaryRead()로 원본에서 읽어야 한다.
+ * start()하면 주기적으로 복제본을 검사해서 되살아난 복제본을 다시 넣고, lagQuery가 있으면 복제 지연이 한도를 넘은 복제본을 뺀다.
+ */
+public class ReplicaRoutingDataSource implements DataSource {
+    private static final Logger logger = Logger.getLogger(ReplicaRoutingDataSource.class.getName());
+
+    // 중첩 호출을 허용하도록 깊이를 센다.
+    private static final ThreadLocal<int[]> readHint = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    // beginPrimaryRead()로 표시한 구간의 깊이. 0보다 크면 읽기 표시나 읽기 전용 트랜잭션이어도 원본에서 읽는다.
+    private static final ThreadLocal<int[]> primaryHint = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private DataSource primary;
+    private List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private long maxReplicationLagMillis = 1000;
+    private long ejectMillis = 30 * 1000;
+    private long healthCheckIntervalMillis = 5 * 1000;
+    private String validationQuery = "select 1";
+    private String lagQuery;
+
+    // 이 스레드가 원본에서 읽어야 하는 시각(System.nanoTime 기준). 원본에 쓴 커넥션을 닫을 때 갱신한다.
+    private final ThreadLocal<long[]> primaryUntil = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[] {Long.MIN_VALUE};
+        }
+    };
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * 트랜잭션 밖에서 실행하는 읽기 작업을 복제본으로 보내도록 표시한다. 반드시 finally에서 endRead()를 호출한다.
+     */
+    public static void beginRead() {
+        readHint.get()[0]++;
+    }
+
+    public static void endRead() {
+        readHint.get()[0]--;
+    }
+
+    /**
+     * 이 구간의 읽기는 복제 지연이 없는 원본으로 보낸다. 읽은 값을 캐시에 오래 두거나 누락이 허용되지 않는 읽기에 쓴다.
+     * beginRead()와 읽기 전용 트랜잭션보다 우선하며, 반드시 finally에서 endPrimaryRead()를 호출한다.
+     */
+    public static void beginPrimaryRead() {
+        primaryHint.get()[0]++;
+    }
+
+    public static void endPrimaryRead() {
+        primaryHint.get()[0]--;
+    }
+
+    public void setPrimary(DataSource primary) {
+        this.primary = primary;
+    }
+
+    public void setReplicas(List<DataSource> replicas) {
+        List<Replica> newReplicas = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            newReplicas.add(new Replica("replica" + i, replicas.get(i)));
+        }
+        this.replicas = newReplicas;
+    }
+
+    /**
+     * 허용하는 복제 지연. 쓴 뒤로 이 시간 동안은 같은 스레드의 읽기를 원본으로 보내고, 지연이 이보다 큰 복제본은 뺀다.
+     */
+    public void setMaxReplicationLagMillis(long maxReplicationLagMillis) {
+        this.maxReplicationLagMillis = maxReplicationLagMillis;
+    }
+
+    public void setEjectMillis(long ejectMillis) {
+        this.ejectMillis = ejectMillis;
+    }
+
+    public void setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+        this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+    }
+
+    public void setValidationQuery(String validationQuery) {
+        this.validationQuery = validationQuery;
+    }
+
+    /**
+     * 복제 지연을 초 단위로 돌려주는 쿼리. 예를 들어 MySQL 8에서는 performance_schema의 복제 상태로 계산한다. 없으면 지연은 검사하지 않는다.
+     */
+    public void setLagQuery(String lagQuery) {
+        this.lagQuery = lagQuery;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null || replicas.isEmpty()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "replica-health-check");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                checkReplicas();
+            }
+        }, healthCheckIntervalMillis, healthCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!isRead()) {
+            return trackWrites(primary.getConnection());
+        }
+        long until = primaryUntil.get()[0];
+        if (until != Long.MIN_VALUE && System.nanoTime() - until < 0) {
+            return primary.getConnection();
+        }
+
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.isEjected()) {
+                continue;
+            }
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                eject(replica, e.toString());
+            }
+        }
+        return primary.getConnection(); // 쓸 수 있는 복제본이 없다.
+    }
+
+    private boolean isRead() {
+        if (primaryHint.get()[0] > 0) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        }
+        return readHint.get()[0] > 0;
+    }
+
+    /**
+     * 원본의 커넥션으로 실제로 쓰기를 실행했다면 닫을 때(트랜잭션이면 커밋한 뒤) 이 스레드를 복제 지연 한도만큼 원본에 붙여둔다.
+     * executeUpdate(), executeBatch()와 결과가 행 수인 execute()만 쓰기로 보고, 읽기만 했거나 롤백한 커넥션은 세지 않는다.
+     */
+    private Connection trackWrites(final Connection target) {
+        return (Connection) Proxy.newProxyInstance(ReplicaRoutingDataSource.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new InvocationHandler() {
+                    private boolean wrote;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        String name = method.getName();
+                        if (name.equals("equals")) {
+                            return proxy == args[0];
+                        } else if (name.equals("hashCode")) {
+                            return System.identityHashCode(proxy);
+                        } else if (name.equals("rollback") && (args == null || args.length == 0)) {
+                            wrote = false;
+                        } else if (name.equals("close") && wrote) {
+                            primaryUntil.get()[0] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxReplicationLagMillis);
+                        }
+
+                        Object result;
+                        try {
+                            result = method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+
+                        if (name.equals("createStatement") || name.equals("prepareStatement") || name.equals("prepareCall")) {
+                            return trackStatement((Statement) result, method.getReturnType());
+                        }
+                        return result;
+                    }
+
+                    private Object trackStatement(final Statement statement, Class<?> type) {
+                        return Proxy.newProxyInstance(ReplicaRoutingDataSource.class.getClassLoader(),
+                                new Class<?>[] {type}, new InvocationHandler() {
+                                    @Override
+                                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                                        String name = method.getName();
+                                        if (name.equals("equals")) {
+                                            return proxy == args[0];
+                                        } else if (name.equals("hashCode")) {
+                                            return System.identityHashCode(proxy);
+                                        }
+
+                                        Object result;
+                                        try {
+                                            result = method.invoke(statement, args);
+                                        } catch (InvocationTargetException e) {
+                                            throw e.getTargetException();
+                                        }
+
+                                        if (name.startsWith("executeUpdate") || name.startsWith("executeLargeUpdate")
+                                                || name.equals("executeBatch") || name.equals("executeLargeBatch")
+                                                || (name.equals("execute") && Boolean.FALSE.equals(result))) {
+                                            wrote = true;
+                                        }
+                                        return result;
+                                    }
+                                });
+                    }
+                });
+    }
+
+    private void eject(Replica replica, String reason) {
+        boolean wasHealthy = !replica.isEjected();
+        replica.ejectedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ejectMillis);
+        if (wasHealthy) {
+            logger.warning(replica.name + "을 " + ejectMillis + "ms 동안 읽기에서 제외합니다: " + reason);
+        }
+    }
+
+    /**
+     * 모든 복제본에 validationQuery와 lagQuery를 실행해서, 되살아난 복제본은 다시 넣고 문제가 있는 복제본은 뺀다.
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute(validationQuery);
+                if (lagQuery != null) {
+                    try (ResultSet rs = statement.executeQuery(lagQuery)) {
+                        long lagMillis = rs.next() ? rs.getLong(1) * 1000 : Long.MAX_VALUE;
+                        if (rs.wasNull() || lagMillis > maxReplicationLagMillis) {
+                            eject(replica, "복제 지연 " + (rs.wasNull() ? "알 수 없음" : lagMillis + "ms"));
+                            continue;
+                        }
+                    }
+                }
+                if (replica.isEjected()) {
+                    replica.ejectedUntil = Long.MIN_VALUE;
+                    logger.info(replica.name + "을 다시 읽기에 사용합니다.");
+                }
+            } catch (SQLException | RuntimeException e) {
+                eject(replica, e.toString());
+            } catch (Exception e) {
+                logger.log(Level.WARNING, replica.name + " 검사 중 오류", e);
+            }
+        }
+    }
+
+    public int getHealthyReplicaCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (!replica.isEjected()) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    private static class Replica {
+        final String name;
+        final DataSource dataSource;
+        // 이 시각(System.nanoTime 기준)까지 읽기에서 제외한다. 지나면 다시 시도해본다.
+        volatile long ejectedUntil = Long.MIN_VALUE;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        boolean isEjected() {
+            return ejectedUntil != Long.MIN_VALUE && System.nanoTime() - ejectedUntil < 0;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("계정은 원본과 복제본 DataSource에 각각 설정합니다.");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return (T) this;
+        }
+        throw new SQLException("ReplicaRoutingDataSource는 " + iface.getName() + " 타입이 아닙니다.");
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
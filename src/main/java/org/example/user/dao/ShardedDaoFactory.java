@@ -0,0 +1,61 @@
+package org.example.user.dao;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+
+/**
+ * DaoFactory와 같은 구성을 MySQL 인스턴스 여러 대에 나눠 두는 설정. 샤드는 항상 목록 끝에 추가한다.
+ */
+@Configuration
+public class ShardedDaoFactory {
+    @Bean
+    public UserDao userDao() {
+        CachingUserDao cachingUserDao = new CachingUserDao(shardedUserDao());
+        cachingUserDao.setMaxSize(10000);
+        cachingUserDao.setTtlMillis(60 * 1000);
+        return cachingUserDao;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ShardedUserDao shardedUserDao() {
+        ShardedUserDao shardedUserDao = new ShardedUserDao();
+        shardedUserDao.setDataSources(Arrays.asList(shard0(), shard1(), shard2()));
+        return shardedUserDao;
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    public DataSource shard0() {
+        return connectionPool("jdbc:mysql://shard0/tobyspring");
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    public DataSource shard1() {
+        return connectionPool("jdbc:mysql://shard1/tobyspring");
+    }
+
+    @Bean(initMethod = "init", destroyMethod = "close")
+    public DataSource shard2() {
+        return connectionPool("jdbc:mysql://shard2/tobyspring");
+    }
+
+    private DataSource connectionPool(String url) {
+        SimpleDriverDataSource dataSource = new SimpleDriverDataSource();
+        dataSource.setDriverClass(com.mysql.cj.jdbc.Driver.class);
+        dataSource.setUrl(url);
+        dataSource.setUsername("root");
+        dataSource.setPassword("");
+        dataSource.setConnectionProperties(DaoFactory.mysqlProperties());
+
+        ConnectionPool connectionPool = new ConnectionPool();
+        connectionPool.setTargetDataSource(dataSource);
+        connectionPool.setMinIdle(2);
+        connectionPool.setMaxTotal(10);
+        connectionPool.setMaxWaitMillis(3000);
+        connectionPool.setStatementCacheSize(DaoFactory.STATEMENT_CACHE_SIZE);
+        return connectionPool;
+    }
+}
@@ -0,0 +1,504 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 사용자를 id의 consistent hash로 여러 샤드(UserDao)에 나눠 저장하는 UserDao.
+ * 샤드마다 virtualNodes 개의 점을 해시 링에 올려두고, id의 해시값 다음에 오는 점의 샤드로 보낸다.
+ * 샤드를 목록 끝에 하나 추가하면 약 1/N의 사용자만 자리를 옮기면 되므로, 샤드 목록의 순서는 바꾸지 않는다.
+ * id 하나로 끝나는 작업은 한 샤드로만 보내고, 목록 조회는 id 순으로 정렬된 샤드별 결과를 k-way 병합해서 id 순서를 지킨다.
+ * getCount()처럼 모든 샤드에 묻는 집계는 트랜잭션 밖이면 샤드마다 병렬로 실행한다.
+ * 트랜잭션은 샤드마다 따로라서 여러 샤드에 걸친 쓰기는 원자적이지 않다.
+ * 변경 로그의 seq는 샤드마다 따로 매겨지므로 getLastChangeSeq()는 샤드별 seq를 기억해둔 번호를 돌려주고, pollChanged()는 그 번호로 샤드마다 꺼낸다.
+ */
+public class ShardedUserDao implements UserDao {
+    // 샤드가 돌려주는 id 순서와 같아야 병합과 id > ? 페이징이 어긋나지 않는다.
+    // 그래서 users.id는 대소문자를 구분하는 바이너리 콜레이션(utf8mb4_bin)으로 선언한다(schema.sql).
+    private static final Comparator<User> BY_ID = new Comparator<User>() {
+        @Override
+        public int compare(User u1, User u2) {
+            return u1.getId().compareTo(u2.getId());
+        }
+    };
+
+    private List<UserDao> shards = new ArrayList<>();
+    private int virtualNodes = 160;
+    private int pageSize = 1000;
+
+    // 해시 링. ringHashes는 정렬되어 있고 ringShards[i]는 ringHashes[i] 점의 샤드 번호다.
+    private long[] ringHashes = new long[0];
+    private int[] ringShards = new int[0];
+
+    private ExecutorService executor;
+
+    // getLastChangeSeq()가 돌려준 번호별 샤드마다의 마지막 seq. 끝까지 꺼내지 않고 버려진 번호가 쌓이지 않도록 최근 것만 둔다.
+    private static final int MAX_CHANGE_SNAPSHOTS = 64;
+    private final AtomicLong changeSnapshotIds = new AtomicLong();
+    private final Map<Long, long[]> changeSnapshots = new LinkedHashMap<Long, long[]>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+            return size() > MAX_CHANGE_SNAPSHOTS;
+        }
+    };
+
+    public void setShards(List<UserDao> shards) {
+        this.shards = new ArrayList<>(shards);
+        buildRing();
+    }
+
+    /**
+     * DataSource마다 UserDaoJdbc를 만들어서 샤드로 쓴다.
+     */
+    public void setDataSources(List<DataSource> dataSources) {
+        List<UserDao> userDaos = new ArrayList<>();
+        for (DataSource dataSource : dataSources) {
+            UserDaoJdbc userDaoJdbc = new UserDaoJdbc();
+            userDaoJdbc.setJdbcTemplate(dataSource);
+            userDaos.add(userDaoJdbc);
+        }
+        setShards(userDaos);
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+        buildRing();
+    }
+
+    /**
+     * forEach()가 샤드마다 한 번에 읽어오는 사용자 수
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    private void buildRing() {
+        long[] hashes = new long[shards.size() * virtualNodes];
+        int[] owners = new int[hashes.length];
+        Integer[] order = new Integer[hashes.length];
+        for (int shard = 0; shard < shards.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                int i = shard * virtualNodes + node;
+                hashes[i] = Hashing.hash64("shard-" + shard + "#" + node);
+                order[i] = i;
+            }
+        }
+
+        final long[] unsorted = hashes;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Long.compare(unsorted[i1], unsorted[i2]);
+            }
+        });
+
+        long[] sortedHashes = new long[hashes.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedHashes[i] = unsorted[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+        this.ringHashes = sortedHashes;
+        this.ringShards = owners;
+    }
+
+    int shardOf(String id) {
+        if (ringHashes.length == 0) {
+            throw new IllegalStateException("샤드가 설정되지 않았습니다.");
+        }
+        int i = Arrays.binarySearch(ringHashes, Hashing.hash64(id));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return ringShards[i == ringHashes.length ? 0 : i];
+    }
+
+    private UserDao shard(String id) {
+        return shards.get(shardOf(id));
+    }
+
+    /**
+     * 사용자 목록을 샤드별로 나눈다. 각 목록 안의 순서는 원래 순서를 따른다.
+     */
+    private List<List<User>> partition(List<User> users) {
+        List<List<User>> partitioned = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            partitioned.add(new ArrayList<User>());
+        }
+        for (User user : users) {
+            partitioned.get(shardOf(user.getId())).add(user);
+        }
+        return partitioned;
+    }
+
+    public void add(User user) {
+        shard(user.getId()).add(user);
+    }
+
+    public void update(User user) {
+        shard(user.getId()).update(user);
+    }
+
+    public void batchAdd(List<User> users) {
+        List<List<User>> partitioned = partition(users);
+        for (int i = 0; i < shards.size(); i++) {
+            if (!partitioned.get(i).isEmpty()) {
+                shards.get(i).batchAdd(partitioned.get(i));
+            }
+        }
+    }
+
+    /**
+     * 한 샤드에서 충돌이 나도 나머지 샤드는 모두 반영하고 마지막에 예외를 던진다. UserDao.batchUpdate()의 약속과 같다.
+     */
+    public void batchUpdate(List<User> users) {
+        List<List<User>> partitioned = partition(users);
+        OptimisticLockingFailureException conflict = null;
+        for (int i = 0; i < shards.size(); i++) {
+            if (partitioned.get(i).isEmpty()) {
+                continue;
+            }
+            try {
+                shards.get(i).batchUpdate(partitioned.get(i));
+            } catch (OptimisticLockingFailureException e) {
+                conflict = e;
+            }
+        }
+        if (conflict != null) {
+            throw conflict;
+        }
+    }
+
+    public void incrementLogin(String id) {
+        shard(id).incrementLogin(id);
+    }
+
+    public void incrementRecommend(String id) {
+        shard(id).incrementRecommend(id);
+    }
+
+    public List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend) {
+        List<List<User>> upgraded = new ArrayList<>();
+        for (UserDao shard : shards) {
+            upgraded.add(shard.upgradeLevels(currentLevel, minLogin, minRecommend));
+        }
+        return merge(upgraded, Integer.MAX_VALUE);
+    }
+
+    public User get(String id) {
+        return shard(id).get(id);
+    }
+
+    public Optional<User> find(String id) {
+        return shard(id).find(id);
+    }
+
+    public boolean exists(String id) {
+        return shard(id).exists(id);
+    }
+
+    public User getForUpdate(String id) {
+        return shard(id).getForUpdate(id);
+    }
+
+    public List<User> getAll() {
+        List<List<User>> all = new ArrayList<>();
+        for (UserDao shard : shards) {
+            all.add(shard.getAll());
+        }
+        return merge(all, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 어느 샤드에 몰려 있을지 모르므로 샤드마다 limit 명씩 읽어서 병합한 뒤 앞의 limit 명만 남긴다.
+     */
+    public List<User> getAfter(String lastId, int limit) {
+        List<List<User>> pages = new ArrayList<>();
+        for (UserDao shard : shards) {
+            pages.add(shard.getAfter(lastId, limit));
+        }
+        return merge(pages, limit);
+    }
+
+    public List<User> getRange(String lastId, String toId, int limit) {
+        List<List<User>> pages = new ArrayList<>();
+        for (UserDao shard : shards) {
+            pages.add(shard.getRange(lastId, toId, limit));
+        }
+        return merge(pages, limit);
+    }
+
+    public int getRange(String lastId, String toId, int limit, UserBatch batch) {
+        List<User> users = (toId == null) ? getAfter(lastId, limit) : getRange(lastId, toId, limit);
+        batch.clear();
+        for (User user : users) {
+            batch.add(user);
+        }
+        return batch.size();
+    }
+
+    /**
+     * id 순으로 정렬된 목록들을 우선순위 큐로 병합한다. 각 목록의 맨 앞 사용자만 큐에 들어 있으므로 큐 크기는 샤드 수를 넘지 않는다.
+     */
+    private static List<User> merge(List<List<User>> sortedLists, int limit) {
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, sortedLists.size()));
+        int total = 0;
+        for (List<User> users : sortedLists) {
+            total += users.size();
+            if (!users.isEmpty()) {
+                heads.add(new Cursor(users));
+            }
+        }
+
+        List<User> merged = new ArrayList<>(Math.min(total, limit));
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor head = heads.poll();
+            merged.add(head.next());
+            if (head.hasNext()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    private static class Cursor implements Comparable<Cursor> {
+        private final List<User> users;
+        private int position;
+
+        Cursor(List<User> users) {
+            this.users = users;
+        }
+
+        boolean hasNext() {
+            return position < users.size();
+        }
+
+        User next() {
+            return users.get(position++);
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            return BY_ID.compare(users.get(position), other.users.get(other.position));
+        }
+    }
+
+    /**
+     * 샤드를 가로지르는 id 순서는 병합해봐야 알 수 있으므로 forEach()로 전체를 한 번 훑으면서 경계가 되는 순번의 id를 고른다.
+     */
+    public List<String> getPartitionKeys(int partitions) {
+        int count = getCount();
+        final List<Integer> offsets = new ArrayList<>();
+        for (int i = 1; i < partitions; i++) {
+            int offset = (int) ((long) count * i / partitions) - 1;
+            if (offset >= 0) {
+                offsets.add(offset);
+            }
+        }
+
+        final List<String> keys = new ArrayList<>();
+        if (offsets.isEmpty()) {
+            return keys;
+        }
+        forEach(new UserCallback() {
+            private int rank = 0;
+            private int next = 0;
+
+            @Override
+            public void doWithUser(User user) {
+                while (next < offsets.size() && offsets.get(next) == rank) {
+                    if (keys.isEmpty() || !keys.get(keys.size() - 1).equals(user.getId())) {
+                        keys.add(user.getId());
+                    }
+                    next++;
+                }
+                rank++;
+            }
+        });
+        return keys;
+    }
+
+    public void forEach(UserCallback callback) {
+        forEach(null, callback);
+    }
+
+    /**
+     * 샤드마다 pageSize 명씩 읽어가며 병합하므로 메모리에는 최대 샤드 수 × pageSize 명만 올라온다.
+     * level 조건은 병합한 뒤에 거른다.
+     */
+    public void forEach(Level level, UserCallback callback) {
+        int n = shards.size();
+        List<List<User>> buffers = new ArrayList<>();
+        String[] lastFetchedIds = new String[n];
+        boolean[] more = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            buffers.add(Collections.<User>emptyList());
+            more[i] = true;
+        }
+
+        while (true) {
+            // 아직 더 읽을 것이 남은 샤드들의 마지막으로 읽은 id 중 가장 작은 값까지만 순서가 확정된다.
+            String bound = null;
+            boolean remaining = false;
+            for (int i = 0; i < n; i++) {
+                if (buffers.get(i).isEmpty() && more[i]) {
+                    List<User> page = shards.get(i).getAfter(lastFetchedIds[i], pageSize);
+                    buffers.set(i, page);
+                    more[i] = page.size() == pageSize;
+                    if (!page.isEmpty()) {
+                        lastFetchedIds[i] = page.get(page.size() - 1).getId();
+                    }
+                }
+                if (more[i] && (bound == null || lastFetchedIds[i].compareTo(bound) < 0)) {
+                    bound = lastFetchedIds[i];
+                }
+                remaining |= !buffers.get(i).isEmpty();
+            }
+            if (!remaining) {
+                return;
+            }
+
+            List<List<User>> settled = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                List<User> buffer = buffers.get(i);
+                int end = buffer.size();
+                while (bound != null && end > 0 && buffer.get(end - 1).getId().compareTo(bound) > 0) {
+                    end--;
+                }
+                settled.add(buffer.subList(0, end));
+                buffers.set(i, buffer.subList(end, buffer.size()));
+            }
+
+            for (User user : merge(settled, Integer.MAX_VALUE)) {
+                if (level == null || user.getLevel() == level) {
+                    callback.doWithUser(user);
+                }
+            }
+        }
+    }
+
+    /**
+     * 샤드마다 지금의 마지막 seq를 기억해두고 그 번호를 돌려준다. 돌려준 값은 seq가 아니므로 pollChanged()에 넘기는 용도로만 쓴다.
+     */
+    public long getLastChangeSeq() {
+        long[] uptoSeqs = new long[shards.size()];
+        for (int i = 0; i < uptoSeqs.length; i++) {
+            uptoSeqs[i] = shards.get(i).getLastChangeSeq();
+        }
+        long snapshotId = changeSnapshotIds.incrementAndGet();
+        synchronized (changeSnapshots) {
+            changeSnapshots.put(snapshotId, uptoSeqs);
+        }
+        return snapshotId;
+    }
+
+    /**
+     * 앞 샤드부터 getLastChangeSeq() 때의 seq까지 꺼낸다. 한 번에 한 샤드의 사용자만 돌려주며, 모든 샤드가 비면 빈 목록을 돌려준다.
+     */
+    public List<User> pollChanged(long uptoSeq, int limit) {
+        long[] uptoSeqs;
+        synchronized (changeSnapshots) {
+            uptoSeqs = changeSnapshots.get(uptoSeq);
+        }
+        if (uptoSeqs == null) {
+            throw new IllegalArgumentException(uptoSeq + "는 getLastChangeSeq()가 돌려준 값이 아니거나 이미 끝까지 꺼낸 값입니다.");
+        }
+
+        for (int i = 0; i < uptoSeqs.length; i++) {
+            List<User> users = shards.get(i).pollChanged(uptoSeqs[i], limit);
+            if (!users.isEmpty()) {
+                return users;
+            }
+        }
+
+        synchronized (changeSnapshots) {
+            changeSnapshots.remove(uptoSeq);
+        }
+        return new ArrayList<>();
+    }
+
+    public void deleteAll() {
+        for (UserDao shard : shards) {
+            shard.deleteAll();
+        }
+    }
+
+    public int getCount() {
+        // 트랜잭션 안이면 샤드 커넥션이 호출한 스레드에 묶여 있으므로 다른 스레드로 넘기지 않고 차례로 센다.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            int count = 0;
+            for (UserDao shard : shards) {
+                count += shard.getCount();
+            }
+            return count;
+        }
+
+        List<Callable<Integer>> counts = new ArrayList<>();
+        for (final UserDao shard : shards) {
+            counts.add(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return shard.getCount();
+                }
+            });
+        }
+
+        int count = 0;
+        try {
+            for (Future<Integer> future : executor().invokeAll(counts)) {
+                count += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessResourceFailureException("샤드 사용자 수를 세는 중에 인터럽트되었습니다.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new DataAccessResourceFailureException("샤드 사용자 수를 세지 못했습니다.", e.getCause());
+        }
+        return count;
+    }
+
+    private synchronized ExecutorService executor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(Math.max(1, shards.size()), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "sharded-user-dao");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+}
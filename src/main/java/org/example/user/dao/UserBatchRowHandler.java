@@ -0,0 +1,51 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.UserBatch;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * ResultSet의 행을 User 오브젝트로 만들지 않고 UserBatch의 컬럼 배열에 바로 채운다.
+ * UserRowMapper처럼 컬럼 인덱스는 ResultSet마다 한 번만 찾는다.
+ */
+class UserBatchRowHandler implements RowCallbackHandler {
+    private final UserBatch batch;
+    private ResultSet resolvedFor;
+    private int id;
+    private int name;
+    private int password;
+    private int level;
+    private int login;
+    private int recommend;
+    private int email;
+    private int version;
+
+    UserBatchRowHandler(UserBatch batch) {
+        this.batch = batch;
+    }
+
+    @Override
+    public void processRow(ResultSet rs) throws SQLException {
+        if (rs != resolvedFor) {
+            resolveColumns(rs);
+        }
+
+        batch.add(rs.getString(id), rs.getString(name), rs.getString(password),
+                Level.valueOf(rs.getInt(level)), rs.getInt(login), rs.getInt(recommend), rs.getString(email), rs.getInt(version));
+    }
+
+    private void resolveColumns(ResultSet rs) throws SQLException {
+        id = rs.findColumn("id");
+        name = rs.findColumn("name");
+        password = rs.findColumn("password");
+        level = rs.findColumn("level");
+        login = rs.findColumn("login");
+        recommend = rs.findColumn("recommend");
+        email = rs.findColumn("email");
+        version = rs.findColumn("version");
+        resolvedFor = rs;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.user.dao;
+
+import org.example.user.domain.User;
+
+/**
+ * UserDao.forEach()가 한 번에 한 명씩 읽어서 넘겨주는 사용자를 처리하는 콜백
+ */
+public interface UserCallback {
+    void doWithUser(User user);
+}
@@ -1,15 +1,97 @@
 package org.example.user.dao;
 
+import org.example.user.domain.Level;
 import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface UserDao {
     void add(User user);
 
+    /**
+     * user의 version이 저장된 값과 같을 때만 수정하고 user의 version을 1 올린다.
+     * 읽은 뒤에 다른 곳에서 먼저 수정했으면 OptimisticLockingFailureException을 던진다. 없는 사용자는 무시한다.
+     */
     void update(User user);
+
+    /**
+     * 여러 사용자를 배치로 묶어서 추가/수정한다.
+     * batchUpdate()는 version이 맞는 사용자를 모두 반영한 뒤, 충돌한 사용자가 있으면 OptimisticLockingFailureException을 던진다.
+     * 충돌한 사용자는 version이 그대로 남는다. 트랜잭션이 롤백되면 반영된 사용자의 version도 되돌린다.
+     */
+    void batchAdd(List<User> users);
+    void batchUpdate(List<User> users);
+
+    /**
+     * 읽고 쓰는 사이에 다른 변경을 덮어쓰지 않도록 login, recommend를 저장소에서 바로 1 늘린다. version도 1 올린다.
+     */
+    void incrementLogin(String id);
+    void incrementRecommend(String id);
+
+    /**
+     * currentLevel이면서 login, recommend가 기준 이상인 사용자를 한 번의 update 문으로 다음 레벨로 올리고,
+     * 업그레이드된 사용자 목록을 돌려준다. 대상 행을 잠그고 바꾸므로 트랜잭션 안에서 호출해야 한다.
+     */
+    List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend);
     User get(String id);
+
+    /**
+     * get()과 같지만 없는 사용자는 EmptyResultDataAccessException 대신 Optional.empty()로 돌려준다.
+     */
+    Optional<User> find(String id);
+
+    boolean exists(String id);
+
+    /**
+     * 최신 값을 읽고 트랜잭션이 끝날 때까지 잠근다. MySQL의 REPEATABLE READ에서도 트랜잭션 시작 시점의 스냅샷이 아니라
+     * 다른 트랜잭션이 커밋한 최신 값을 읽으므로, 낙관적 잠금이 충돌한 뒤 다시 읽을 때 쓴다.
+     */
+    User getForUpdate(String id);
     List<User> getAll();
+
+    /**
+     * id 순서로 lastId 다음부터 최대 limit 명을 가져온다. lastId가 null이면 처음부터 가져온다.
+     */
+    List<User> getAfter(String lastId, int limit);
+
+    /**
+     * getAfter()와 같지만 id가 toId 이하인 사용자까지만 가져온다.
+     */
+    List<User> getRange(String lastId, String toId, int limit);
+
+    /**
+     * getRange()와 같은 범위의 사용자를 User 오브젝트 대신 batch에 컬럼별로 채우고 채운 행 수를 돌려준다.
+     * batch는 먼저 비운다. toId가 null이면 끝까지 가져온다.
+     */
+    int getRange(String lastId, String toId, int limit, UserBatch batch);
+
+    /**
+     * 사용자 수가 고르게 나뉘도록 id 순서상의 경계값을 최대 partitions - 1 개 돌려준다.
+     * 경계값 k1 < k2 < ... 는 (null, k1], (k1, k2], ..., (kn, null] 범위를 만든다.
+     */
+    List<String> getPartitionKeys(int partitions);
+
+    /**
+     * 전체 사용자를 id 순서로 한 명씩 콜백에 넘긴다. 목록을 메모리에 모아두지 않는다.
+     */
+    void forEach(UserCallback callback);
+
+    /**
+     * forEach()와 같지만 level인 사용자만 넘긴다. level이 null이면 전체 사용자를 넘긴다.
+     */
+    void forEach(Level level, UserCallback callback);
+
+    /**
+     * 변경 로그의 마지막 seq. 변경 추적이 켜진 뒤로 추가/수정된 사용자가 없으면 0이다.
+     */
+    long getLastChangeSeq();
+
+    /**
+     * 변경 로그에서 seq가 uptoSeq 이하인 항목을 최대 limit 개 꺼내서 해당 사용자들을 돌려준다. 꺼낸 항목은 로그에서 지운다.
+     */
+    List<User> pollChanged(long uptoSeq, int limit);
     void deleteAll();
     int getCount();
 }
@@ -2,61 +2,547 @@ package org.example.user.dao;
 
 import org.example.user.domain.Level;
 import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 public class UserDaoJdbc implements UserDao {
-    private RowMapper<User> userMapper =
-            new RowMapper<User>() {
-                @Override
-                public User mapRow(ResultSet rs, int rowNum) throws SQLException {
-                    User user = new User();
-                    user.setId(rs.getString("id"));
-                    user.setName(rs.getString("name"));
-                    user.setPassword(rs.getString("password"));
-                    user.setLevel(Level.valueOf(rs.getInt("level")));
-                    user.setLogin(rs.getInt("login"));
-                    user.setRecommend(rs.getInt("recommend"));
-                    user.setEmail(rs.getString("email"));
-                    return user;
-                }
-            };
+    // select *는 컬럼 순서와 테이블 정의를 묶어버리므로 읽을 컬럼을 명시한다.
+    private static final String COLUMNS = "id, name, password, level, login, recommend, email, version";
+    private static final String INSERT_SQL =
+            "insert into users(id, name, password, level, login, recommend, email, version) values(?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int INSERT_COLUMN_COUNT = 8;
+    // 읽은 뒤에 다른 곳에서 바뀐 행은 version이 달라서 수정되지 않는다.
+    private static final String UPDATE_SQL =
+            "update users set name = ?, password = ?, level = ?, login = ?, recommend = ?, email = ?, version = version + 1 " +
+            "where id = ? and version = ?";
+    private static final String GET_SQL = "select " + COLUMNS + " from users where id = ?";
+    private static final String GET_FOR_UPDATE_SQL = GET_SQL + " for update";
+    private static final String EXISTS_SQL = "select count(*) from users where id = ?";
+    private static final String GET_ALL_SQL = "select " + COLUMNS + " from users order by id";
+    private static final String COUNT_SQL = "select count(*) from users";
 
     private JdbcTemplate jdbcTemplate;
 
+    // forEach()의 fetchSize. 0이면 DB에 맞춰 고른다. MySQL 드라이버는 Integer.MIN_VALUE일 때만 결과를 한 행씩 스트리밍하고,
+    // 다른 DB(H2 등)는 음수를 거부하므로 DEFAULT_FETCH_SIZE 행씩 나눠 읽는다.
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private int streamingFetchSize = 0;
+
+    // batchAdd(), batchUpdate()가 한 번의 JDBC 배치로 보내는 최대 행 수
+    private int batchSize = 100;
+
+    // 설정하면 주요 메서드의 응답 시간, 행 수, 에러 수를 기록한다.
+    private QueryMetrics queryMetrics;
+
+    // true이면 사용자를 추가/수정할 때마다 user_changes 테이블에 id를 남겨서 pollChanged()로 변경분만 읽을 수 있게 한다.
+    private boolean changeTracking = false;
+
     public void setJdbcTemplate(DataSource dataSource) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
     }
 
+    public void setStreamingFetchSize(int streamingFetchSize) {
+        this.streamingFetchSize = streamingFetchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
+    public void setChangeTracking(boolean changeTracking) {
+        this.changeTracking = changeTracking;
+    }
+
     public void add(User user) {
-        this.jdbcTemplate.update("insert into users(id, name, password, level, login, recommend, email) values(?, ?, ?, ?, ?, ?, ?)"
-                , user.getId(), user.getName(), user.getPassword()
-                , user.getLevel().intValue(), user.getLogin(), user.getRecommend(), user.getEmail());
+        update("add", INSERT_SQL, new Object[] {user.getId(), user.getName(), user.getPassword()
+                , user.getLevel().intValue(), user.getLogin(), user.getRecommend(), user.getEmail(), user.getVersion()});
+        recordChanges(Collections.singletonList(user));
     }
 
+    /**
+     * user를 읽은 뒤에 다른 곳에서 같은 사용자가 바뀌었으면 OptimisticLockingFailureException을 던진다.
+     * 성공하면 user의 version을 저장된 값으로 올려주고, 트랜잭션이 롤백되면 되돌린다. 없는 사용자는 이전처럼 아무것도 하지 않는다.
+     */
     public void update(User user) {
-        this.jdbcTemplate.update("update users set name = ?, password = ?, level = ?, login = ?, recommend = ?, email = ? where id = ? ",
-                user.getName(), user.getPassword(), user.getLevel().intValue(), user.getLogin(), user.getRecommend(), user.getEmail(), user.getId());
+        int rows = update("update", UPDATE_SQL, new Object[] {user.getName(), user.getPassword(), user.getLevel().intValue(),
+                user.getLogin(), user.getRecommend(), user.getEmail(), user.getId(), user.getVersion()});
+        if (rows > 0) {
+            advanceVersions(Collections.singletonList(user));
+            recordChanges(Collections.singletonList(user));
+        } else {
+            throwIfConflicted(Collections.singletonList(user.getId()));
+        }
+    }
+
+    public void incrementLogin(String id) {
+        increment("incrementLogin", "update users set login = login + 1, version = version + 1 where id = ?", id);
+    }
+
+    public void incrementRecommend(String id) {
+        increment("incrementRecommend", "update users set recommend = recommend + 1, version = version + 1 where id = ?", id);
+    }
+
+    private void increment(String method, String sql, String id) {
+        if (update(method, sql, new Object[] {id}) > 0 && changeTracking) {
+            this.jdbcTemplate.update("insert into user_changes(user_id) values (?)", id);
+        }
+    }
+
+    /**
+     * 수정되지 않은 id 중에 아직 테이블에 있는 것은 version이 달라서 실패한 것이다.
+     */
+    private void throwIfConflicted(List<String> missedIds) {
+        if (missedIds.isEmpty()) {
+            return;
+        }
+
+        List<String> conflicted = this.jdbcTemplate.queryForList(
+                "select id from users where id in (" + placeholders(missedIds.size()) + ") order by id", missedIds.toArray(), String.class);
+        if (!conflicted.isEmpty()) {
+            throw new OptimisticLockingFailureException("다른 곳에서 먼저 수정된 사용자: " + conflicted);
+        }
+    }
+
+    /**
+     * queryMetrics가 있으면 걸린 시간과 바뀐 행 수를 기록하면서 update 문을 실행한다.
+     */
+    private int update(String method, String sql, Object[] args) {
+        if (queryMetrics == null) {
+            return this.jdbcTemplate.update(sql, args);
+        }
+
+        long start = System.nanoTime();
+        try {
+            int rows = this.jdbcTemplate.update(sql, args);
+            queryMetrics.record(method, sql, args, System.nanoTime() - start, rows);
+            return rows;
+        } catch (RuntimeException e) {
+            queryMetrics.recordError(method, sql, args, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * queryMetrics가 있으면 걸린 시간과 읽은 행 수를 기록하면서 조회 콜백을 실행한다.
+     * 트랜잭션 밖의 조회는 ReplicaRoutingDataSource가 복제본으로 보낼 수 있도록 읽기로 표시한다.
+     */
+    private <T> T query(String method, String sql, Object[] args, QueryCallback<T> callback) {
+        ReplicaRoutingDataSource.beginRead();
+        try {
+            return measure(method, sql, args, callback);
+        } finally {
+            ReplicaRoutingDataSource.endRead();
+        }
+    }
+
+    private <T> T measure(String method, String sql, Object[] args, QueryCallback<T> callback) {
+        if (queryMetrics == null) {
+            return callback.doInQuery();
+        }
+
+        long start = System.nanoTime();
+        try {
+            T result = callback.doInQuery();
+            long rows = result instanceof Collection ? ((Collection<?>) result).size() : 1;
+            queryMetrics.record(method, sql, args, System.nanoTime() - start, rows);
+            return result;
+        } catch (RuntimeException e) {
+            queryMetrics.recordError(method, sql, args, System.nanoTime() - start, e);
+            throw e;
+        }
+    }
+
+    private interface QueryCallback<T> {
+        T doInQuery();
+    }
+
+    /**
+     * batchSize 명씩 묶어서 insert ... values (...), (...) 한 문장으로 넣는다.
+     * JDBC 배치는 드라이버 설정(rewriteBatchedStatements)이 없으면 MySQL에 행마다 따로 전송되지만 멀티 로우 insert는 항상 한 번에 간다.
+     */
+    public void batchAdd(List<User> users) {
+        for (List<User> batch : split(users)) {
+            Object[] args = new Object[batch.size() * INSERT_COLUMN_COUNT];
+            int i = 0;
+            for (User user : batch) {
+                args[i++] = user.getId();
+                args[i++] = user.getName();
+                args[i++] = user.getPassword();
+                args[i++] = user.getLevel().intValue();
+                args[i++] = user.getLogin();
+                args[i++] = user.getRecommend();
+                args[i++] = user.getEmail();
+                args[i++] = user.getVersion();
+            }
+            update("batchAdd", multiRowInsertSql(batch.size()), args);
+            recordChanges(batch);
+        }
+    }
+
+    private String multiRowInsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_SQL.length() + rows * 24).append(INSERT_SQL);
+        for (int i = 1; i < rows; i++) {
+            sql.append(", (?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * update()와 같이 version을 확인한다. 충돌한 사용자가 있어도 나머지는 모두 반영하고(version도 올린다) 마지막에 예외를 던지므로,
+     * 호출한 쪽은 version이 그대로인 사용자만 다시 읽어서 처리하면 된다.
+     */
+    public void batchUpdate(List<User> users) {
+        List<String> missedIds = new ArrayList<>();
+        for (final List<User> batch : split(users)) {
+            int[] rows = this.jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    User user = batch.get(i);
+                    ps.setString(1, user.getName());
+                    ps.setString(2, user.getPassword());
+                    ps.setInt(3, user.getLevel().intValue());
+                    ps.setInt(4, user.getLogin());
+                    ps.setInt(5, user.getRecommend());
+                    ps.setString(6, user.getEmail());
+                    ps.setString(7, user.getId());
+                    ps.setInt(8, user.getVersion());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+
+            List<User> updated = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                User user = batch.get(i);
+                if (rows[i] == 0) {
+                    missedIds.add(user.getId());
+                } else { // 드라이버가 행 수를 알려주지 않는 경우(SUCCESS_NO_INFO)는 성공으로 본다.
+                    updated.add(user);
+                }
+            }
+            advanceVersions(updated);
+            recordChanges(updated);
+        }
+        throwIfConflicted(missedIds);
+    }
+
+    /**
+     * 저장한 사용자들의 version을 DB와 맞춰 하나씩 올린다. batchUpdate()를 호출한 쪽은 version이 올라갔는지로 반영된 사용자를 구별하므로 바로 올리고,
+     * 트랜잭션이 롤백되면 호출한 쪽의 User가 DB와 어긋나지 않도록 되돌린다.
+     */
+    private void advanceVersions(final List<User> users) {
+        addToVersions(users, 1);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        addToVersions(users, -1);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void addToVersions(List<User> users, int delta) {
+        for (User user : users) {
+            user.setVersion(user.getVersion() + delta);
+        }
+    }
+
+    public List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend) {
+        Level nextLevel = currentLevel.nextLevel();
+        if (nextLevel == null) {
+            throw new IllegalArgumentException(currentLevel + "은 더이상 업그레이드가 불가능합니다.");
+        }
+
+        // MySQL에는 update ... returning이 없으므로 같은 조건으로 대상 행을 먼저 잠그고 읽은 뒤 한 번에 바꾼다.
+        List<User> targets = this.jdbcTemplate.query(
+                "select " + COLUMNS + " from users where level = ? and login >= ? and recommend >= ? order by id for update",
+                new Object[] {currentLevel.intValue(), minLogin, minRecommend}, new UserRowMapper());
+        if (targets.isEmpty()) {
+            return targets;
+        }
+
+        this.jdbcTemplate.update("update users set level = ?, version = version + 1 where level = ? and login >= ? and recommend >= ?",
+                nextLevel.intValue(), currentLevel.intValue(), minLogin, minRecommend);
+
+        for (User user : targets) {
+            user.setLevel(nextLevel);
+            user.setVersion(user.getVersion() + 1);
+        }
+        recordChanges(targets);
+        return targets;
+    }
+
+    /**
+     * 바뀐 사용자의 id를 변경 로그에 남긴다. 사용자 변경과 같은 트랜잭션에서 실행되므로 롤백되면 로그도 함께 사라진다.
+     */
+    private void recordChanges(List<User> users) {
+        if (!changeTracking || users.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder("insert into user_changes(user_id) values (?)");
+        Object[] ids = new Object[users.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = users.get(i).getId();
+            if (i > 0) {
+                sql.append(", (?)");
+            }
+        }
+        this.jdbcTemplate.update(sql.toString(), ids);
+    }
+
+    public long getLastChangeSeq() {
+        return this.jdbcTemplate.queryForLong("select coalesce(max(seq), 0) from user_changes");
+    }
+
+    /**
+     * 변경 로그에서 seq가 uptoSeq 이하인 항목을 최대 limit 개 꺼내서 해당 사용자들을 id 순으로 돌려주고, 꺼낸 항목은 지운다.
+     * 꺼낸 항목을 잠그고 지우므로 트랜잭션 안에서 호출해야 하며, 롤백되면 다음에 다시 꺼낼 수 있다.
+     */
+    public List<User> pollChanged(long uptoSeq, int limit) {
+        while (true) {
+            List<Map<String, Object>> changes = this.jdbcTemplate.queryForList(
+                    "select seq, user_id from user_changes where seq <= ? order by seq limit ? for update", uptoSeq, limit);
+            if (changes.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            Object[] seqs = new Object[changes.size()];
+            Set<Object> ids = new LinkedHashSet<>();
+            for (int i = 0; i < seqs.length; i++) {
+                seqs[i] = changes.get(i).get("seq");
+                ids.add(changes.get(i).get("user_id"));
+            }
+            this.jdbcTemplate.update("delete from user_changes where seq in (" + placeholders(seqs.length) + ")", seqs);
+
+            List<User> users = this.jdbcTemplate.query("select " + COLUMNS + " from users where id in (" + placeholders(ids.size()) + ") order by id",
+                    ids.toArray(), new UserRowMapper());
+            if (!users.isEmpty()) { // 로그에 남은 뒤 삭제된 사용자뿐이었다면 빈 목록을 끝으로 오해하지 않도록 다음 항목을 꺼낸다.
+                return users;
+            }
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder("?");
+        for (int i = 1; i < count; i++) {
+            placeholders.append(", ?");
+        }
+        return placeholders.toString();
+    }
+
+    private List<List<User>> split(List<User> users) {
+        List<List<User>> batches = new ArrayList<>();
+        for (int from = 0; from < users.size(); from += batchSize) {
+            batches.add(users.subList(from, Math.min(from + batchSize, users.size())));
+        }
+        return batches;
     }
 
     public User get(String id) {
-        return this.jdbcTemplate.queryForObject("select * from users where id = ?",
-                new Object[] {id}, this.userMapper);
+        final Object[] args = {id};
+        return query("get", GET_SQL, args, new QueryCallback<User>() {
+            @Override
+            public User doInQuery() {
+                return jdbcTemplate.queryForObject(GET_SQL, args, new UserRowMapper());
+            }
+        });
+    }
+
+    // 없는 사용자를 예외로 알리지 않도록 queryForObject 대신 목록으로 받는다.
+    public Optional<User> find(String id) {
+        final Object[] args = {id};
+        List<User> users = query("find", GET_SQL, args, new QueryCallback<List<User>>() {
+            @Override
+            public List<User> doInQuery() {
+                return jdbcTemplate.query(GET_SQL, args, new UserRowMapper());
+            }
+        });
+        return users.isEmpty() ? Optional.<User>empty() : Optional.of(users.get(0));
+    }
+
+    public boolean exists(String id) {
+        final Object[] args = {id};
+        return query("exists", EXISTS_SQL, args, new QueryCallback<Boolean>() {
+            @Override
+            public Boolean doInQuery() {
+                return jdbcTemplate.queryForInt(EXISTS_SQL, args) > 0;
+            }
+        });
+    }
+
+    // 잠그는 조회라서 query()와 달리 복제 DB로 보내지 않고 기록만 한다.
+    public User getForUpdate(String id) {
+        final Object[] args = {id};
+        return measure("getForUpdate", GET_FOR_UPDATE_SQL, args, new QueryCallback<User>() {
+            @Override
+            public User doInQuery() {
+                return jdbcTemplate.queryForObject(GET_FOR_UPDATE_SQL, args, new UserRowMapper());
+            }
+        });
     }
 
     public List<User> getAll() {
-        return this.jdbcTemplate.query("select * from users order by id", this.userMapper);
+        return query("getAll", GET_ALL_SQL, null, new QueryCallback<List<User>>() {
+            @Override
+            public List<User> doInQuery() {
+                return jdbcTemplate.query(GET_ALL_SQL, new UserRowMapper());
+            }
+        });
+    }
+
+    public List<User> getAfter(String lastId, int limit) {
+        if (lastId == null) {
+            return this.jdbcTemplate.query("select " + COLUMNS + " from users order by id limit ?",
+                    new Object[] {limit}, new UserRowMapper());
+        }
+        return this.jdbcTemplate.query("select " + COLUMNS + " from users where id > ? order by id limit ?",
+                new Object[] {lastId, limit}, new UserRowMapper());
+    }
+
+    public List<User> getRange(String lastId, String toId, int limit) {
+        if (lastId == null) {
+            return this.jdbcTemplate.query("select " + COLUMNS + " from users where id <= ? order by id limit ?",
+                    new Object[] {toId, limit}, new UserRowMapper());
+        }
+        return this.jdbcTemplate.query("select " + COLUMNS + " from users where id > ? and id <= ? order by id limit ?",
+                new Object[] {lastId, toId, limit}, new UserRowMapper());
+    }
+
+    public int getRange(String lastId, String toId, int limit, UserBatch batch) {
+        batch.clear();
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("select " + COLUMNS + " from users");
+        if (lastId != null) {
+            sql.append(" where id > ?");
+            args.add(lastId);
+        }
+        if (toId != null) {
+            sql.append(lastId == null ? " where" : " and").append(" id <= ?");
+            args.add(toId);
+        }
+        sql.append(" order by id limit ?");
+        args.add(limit);
+
+        this.jdbcTemplate.query(sql.toString(), args.toArray(), new UserBatchRowHandler(batch));
+        return batch.size();
+    }
+
+    public List<String> getPartitionKeys(int partitions) {
+        int count = getCount();
+        List<String> keys = new ArrayList<>();
+
+        for (int i = 1; i < partitions; i++) {
+            int offset = (int) ((long) count * i / partitions) - 1;
+            if (offset < 0) {
+                continue;
+            }
+            String key = this.jdbcTemplate.queryForObject("select id from users order by id limit 1 offset ?",
+                    new Object[] {offset}, String.class);
+            if (keys.isEmpty() || !keys.get(keys.size() - 1).equals(key)) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    public void forEach(UserCallback callback) {
+        forEach(null, callback);
+    }
+
+    /**
+     * 커넥션을 얻는 동안만 읽기로 표시한다. LazyConnectionDataSourceProxy는 첫 문장을 만들 때 실제 커넥션을 가져오므로
+     * prepareStatement()까지 표시해두고, 콜백이 다른 DAO로 쓰기를 하더라도 복제본으로 가지 않도록 행을 넘기기 전에 해제한다.
+     */
+    public void forEach(final Level level, final UserCallback callback) {
+        final boolean[] reading = {true};
+        ReplicaRoutingDataSource.beginRead();
+        try {
+            stream(level, callback, reading);
+        } finally {
+            if (reading[0]) {
+                ReplicaRoutingDataSource.endRead();
+            }
+        }
+    }
+
+    private int fetchSize(Connection con) throws SQLException {
+        if (streamingFetchSize != 0) {
+            return streamingFetchSize;
+        }
+        return con.getMetaData().getDatabaseProductName().startsWith("MySQL") ? Integer.MIN_VALUE : DEFAULT_FETCH_SIZE;
+    }
+
+    private void stream(final Level level, final UserCallback callback, final boolean[] reading) {
+        this.jdbcTemplate.query(new PreparedStatementCreator() {
+            @Override
+            public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                String where = (level == null) ? "" : " where level = ?";
+                PreparedStatement ps;
+                try {
+                    ps = con.prepareStatement("select " + COLUMNS + " from users" + where + " order by id",
+                            ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                } finally {
+                    reading[0] = false;
+                    ReplicaRoutingDataSource.endRead();
+                }
+                if (level != null) {
+                    ps.setInt(1, level.intValue());
+                }
+                ps.setFetchSize(fetchSize(con));
+                return ps;
+            }
+        }, new RowCallbackHandler() {
+            private final UserRowMapper userMapper = new UserRowMapper();
+            private int rowNum = 0; // 스트리밍 ResultSet은 getRow()를 지원하지 않는다.
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                callback.doWithUser(userMapper.mapRow(rs, rowNum++));
+            }
+        });
     }
 
     public void deleteAll() {
-        this.jdbcTemplate.update("delete from users");
+        update("deleteAll", "delete from users", new Object[0]);
+        if (changeTracking) {
+            this.jdbcTemplate.update("delete from user_changes");
+        }
     }
 
     public int getCount() {
-        return this.jdbcTemplate.queryForInt("select count(*) from users");
+        return query("getCount", COUNT_SQL, null, new QueryCallback<Integer>() {
+            @Override
+            public Integer doInQuery() {
+                return jdbcTemplate.queryForInt(COUNT_SQL);
+            }
+        });
     }
 }
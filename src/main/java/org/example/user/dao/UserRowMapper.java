@@ -0,0 +1,48 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 컬럼 이름으로 인덱스를 찾는 작업을 ResultSet마다 한 번만 하고, 이후의 행은 인덱스로 읽는 RowMapper.
+ * 찾아둔 인덱스를 필드에 보관하므로 스레드 간에 공유하지 말고 쿼리마다 새로 만들어서 사용한다.
+ */
+class UserRowMapper implements RowMapper<User> {
+    private ResultSet resolvedFor;
+    private int id;
+    private int name;
+    private int password;
+    private int level;
+    private int login;
+    private int recommend;
+    private int email;
+    private int version;
+
+    @Override
+    public User mapRow(ResultSet rs, int rowNum) throws SQLException {
+        if (rs != resolvedFor) {
+            resolveColumns(rs);
+        }
+
+        User user = new User(rs.getString(id), rs.getString(name), rs.getString(password),
+                Level.valueOf(rs.getInt(level)), rs.getInt(login), rs.getInt(recommend), rs.getString(email));
+        user.setVersion(rs.getInt(version));
+        return user;
+    }
+
+    private void resolveColumns(ResultSet rs) throws SQLException {
+        id = rs.findColumn("id");
+        name = rs.findColumn("name");
+        password = rs.findColumn("password");
+        level = rs.findColumn("level");
+        login = rs.findColumn("login");
+        recommend = rs.findColumn("recommend");
+        email = rs.findColumn("email");
+        version = rs.findColumn("version");
+        resolvedFor = rs;
+    }
+}
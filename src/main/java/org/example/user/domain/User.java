@@ -10,6 +10,9 @@ public class User {
     String password;
     String email;
 
+    // 낙관적 잠금용. 저장된 행이 바뀔 때마다 1씩 늘어나며, 읽었을 때의 값과 다르면 수정이 거부된다.
+    int version;
+
     public User(String id, String name, String password, Level level, int login, int recommend, String email) {
         this.id = id;
         this.name = name;
@@ -25,6 +28,12 @@ public class User {
         // 파라미터가 없는 디폴트 생성자도 함께 정의해주는 것을 잊지 말자.
     }
 
+    // 캐시처럼 User를 보관하는 쪽이 꺼내간 오브젝트의 변경에 영향을 받지 않도록 복사본을 만든다.
+    public User(User other) {
+        this(other.id, other.name, other.password, other.level, other.login, other.recommend, other.email);
+        this.version = other.version;
+    }
+
     public void upgradeLevel() {
         Level nextLevel = this.level.nextLevel();
 
@@ -85,4 +94,12 @@ public class User {
     public void setEmail(String email) {
         this.email = email;
     }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
 }
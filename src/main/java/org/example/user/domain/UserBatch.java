@@ -0,0 +1,194 @@
+package org.example.user.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 여러 사용자를 컬럼별 배열에 담는 묶음. User 오브젝트를 행마다 만들지 않으므로 대량으로 훑을 때 메모리를 훨씬 적게 쓴다.
+ * level은 byte 배열, login과 recommend는 int 배열에 두고,
+ * 문자열 컬럼은 모든 행의 문자열을 UTF-8로 byte 배열 하나에 이어 붙인 뒤 행마다 끝 위치만 기록한다.
+ * 필요한 행만 toUser()로 User를 만든다. 스레드 간에 공유하지 말고 clear()로 비워서 다시 쓴다.
+ */
+public class UserBatch {
+    private int size;
+    private byte[] levels;
+    private int[] logins;
+    private int[] recommends;
+    private int[] versions;
+    private final StringColumn ids;
+    private final StringColumn names;
+    private final StringColumn passwords;
+    private final StringColumn emails;
+
+    public UserBatch() {
+        this(256);
+    }
+
+    public UserBatch(int capacity) {
+        levels = new byte[capacity];
+        logins = new int[capacity];
+        recommends = new int[capacity];
+        versions = new int[capacity];
+        ids = new StringColumn(capacity, 8);
+        names = new StringColumn(capacity, 8);
+        passwords = new StringColumn(capacity, 8);
+        emails = new StringColumn(capacity, 16);
+    }
+
+    public void add(User user) {
+        add(user.getId(), user.getName(), user.getPassword(), user.getLevel(), user.getLogin(), user.getRecommend(), user.getEmail(),
+                user.getVersion());
+    }
+
+    public void add(String id, String name, String password, Level level, int login, int recommend, String email, int version) {
+        if (size == levels.length) {
+            int capacity = Math.max(16, size * 2);
+            levels = Arrays.copyOf(levels, capacity);
+            logins = Arrays.copyOf(logins, capacity);
+            recommends = Arrays.copyOf(recommends, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+        }
+
+        levels[size] = (byte) level.intValue();
+        logins[size] = login;
+        recommends[size] = recommend;
+        versions[size] = version;
+        ids.add(size, id);
+        names.add(size, name);
+        passwords.add(size, password);
+        emails.add(size, email);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public Level getLevel(int row) {
+        return Level.valueOf(levels[row]);
+    }
+
+    /**
+     * Level 오브젝트를 거치지 않고 Level.intValue()를 그대로 돌려준다.
+     */
+    public int getLevelValue(int row) {
+        return levels[row];
+    }
+
+    public int getLogin(int row) {
+        return logins[row];
+    }
+
+    public int getRecommend(int row) {
+        return recommends[row];
+    }
+
+    public int getVersion(int row) {
+        return versions[row];
+    }
+
+    public String getId(int row) {
+        return ids.get(row);
+    }
+
+    public String getName(int row) {
+        return names.get(row);
+    }
+
+    public String getPassword(int row) {
+        return passwords.get(row);
+    }
+
+    public String getEmail(int row) {
+        return emails.get(row);
+    }
+
+    public User toUser(int row) {
+        User user = new User(getId(row), getName(row), getPassword(row), getLevel(row), getLogin(row), getRecommend(row), getEmail(row));
+        user.setVersion(versions[row]);
+        return user;
+    }
+
+    /**
+     * 배열이 차지하는 대략적인 바이트 수. 비교용이며 오브젝트 헤더는 계산하지 않는다.
+     */
+    public long getFootprintBytes() {
+        return levels.length + 4L * logins.length + 4L * recommends.length + 4L * versions.length
+                + ids.getFootprintBytes() + names.getFootprintBytes() + passwords.getFootprintBytes() + emails.getFootprintBytes();
+    }
+
+    /**
+     * 행 i의 문자열은 UTF-8로 bytes[ends[i - 1], ends[i]) 에 있다. null은 끝 위치를 음수로 기록해서 구분한다.
+     * id, 이메일처럼 ASCII뿐인 문자열은 변환 없이 한 글자에 한 바이트로 바로 복사한다.
+     */
+    private static class StringColumn {
+        private byte[] bytes;
+        private int length;
+        private int[] ends;
+
+        StringColumn(int capacity, int averageLength) {
+            bytes = new byte[capacity * averageLength];
+            ends = new int[capacity];
+        }
+
+        void add(int row, String value) {
+            if (row == 0) {
+                length = 0;
+            }
+            if (row == ends.length) {
+                ends = Arrays.copyOf(ends, Math.max(16, row * 2));
+            }
+            if (value == null) {
+                ends[row] = -length - 1;
+                return;
+            }
+
+            ensureCapacity(value.length());
+            int ascii = 0;
+            while (ascii < value.length() && value.charAt(ascii) < 0x80) {
+                bytes[length + ascii] = (byte) value.charAt(ascii);
+                ascii++;
+            }
+            if (ascii == value.length()) {
+                length += ascii;
+            } else {
+                byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(encoded.length);
+                System.arraycopy(encoded, 0, bytes, length, encoded.length);
+                length += encoded.length;
+            }
+            ends[row] = length;
+        }
+
+        private void ensureCapacity(int size) {
+            if (length + size > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + size));
+            }
+        }
+
+        String get(int row) {
+            int end = ends[row];
+            if (end < 0) {
+                return null;
+            }
+            int start = (row == 0) ? 0 : end(ends[row - 1]);
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+
+        private static int end(int encoded) {
+            return encoded < 0 ? -encoded - 1 : encoded;
+        }
+
+        long getFootprintBytes() {
+            return bytes.length + 4L * ends.length;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package org.example.user.service;
+
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * 메일을 큐에 넣고 바로 돌아오는 MailSender 데코레이터.
+ * 워커 스레드가 큐에 쌓인 메일을 모아서 DI 받은 MailSender의 send(SimpleMailMessage[])로 한 번에 보낸다.
+ * 트랜잭션 안에서 호출되면 커밋된 뒤에야 큐에 넣고, 롤백되면 버린다.
+ */
+public class AsyncMailSender implements MailSender {
+    private static final Logger logger = Logger.getLogger(AsyncMailSender.class.getName());
+
+    private MailSender mailSender;
+
+    private int queueCapacity = 10000;
+    private int workers = 2;
+    private int maxBatchSize = 50;
+    private long offerTimeoutMillis = 1000;
+    private int maxRetries = 3;
+    private long initialBackoffMillis = 100;
+    private long maxBackoffMillis = 5000;
+    private long shutdownTimeoutMillis = 10000;
+
+    private BlockingQueue<SimpleMailMessage> queue;
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    private final LongAdder sentCount = new LongAdder();
+    private final LongAdder failedCount = new LongAdder();
+    private final LongAdder retryCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder sendAttempts = new LongAdder();
+    private final LongAdder sendNanos = new LongAdder();
+    private final AtomicLong maxSendNanos = new AtomicLong();
+
+    public AsyncMailSender() {
+    }
+
+    public AsyncMailSender(MailSender mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    public void setMailSender(MailSender mailSender) {
+        this.mailSender = mailSender;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void setOfferTimeoutMillis(long offerTimeoutMillis) {
+        this.offerTimeoutMillis = offerTimeoutMillis;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+
+    public void setInitialBackoffMillis(long initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+    }
+
+    public void setMaxBackoffMillis(long maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @Override
+    public void send(SimpleMailMessage simpleMessage) throws MailException {
+        send(new SimpleMailMessage[] {simpleMessage});
+    }
+
+    @Override
+    public void send(SimpleMailMessage[] simpleMessages) throws MailException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingMessages().addAll(Arrays.asList(simpleMessages));
+        } else {
+            enqueue(Arrays.asList(simpleMessages));
+        }
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 보낼 메일 목록. 트랜잭션마다 하나씩 만들어서 바인딩해둔다.
+     */
+    @SuppressWarnings("unchecked")
+    private List<SimpleMailMessage> pendingMessages() {
+        List<SimpleMailMessage> pending = (List<SimpleMailMessage>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        final List<SimpleMailMessage> newPending = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, newPending);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            // 이미 커밋된 뒤이므로 예외를 던지면 호출한 쪽이 커밋된 트랜잭션을 롤백하려 한다. 접수하지 못한 메일은 실패로 센다.
+            @Override
+            public void afterCommit() {
+                int accepted = offer(newPending);
+                if (accepted < newPending.size()) {
+                    failedCount.add(newPending.size() - accepted);
+                    logger.warning("커밋 후 메일 " + (newPending.size() - accepted) + "통을 큐에 넣지 못해 버렸습니다. (queueCapacity: "
+                            + queueCapacity + ")");
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResource(AsyncMailSender.this);
+            }
+        });
+        return newPending;
+    }
+
+    /**
+     * 큐가 가득 차 있으면 offerTimeoutMillis 만큼 기다렸다가 MailSendException을 던져서 호출한 쪽의 속도를 늦춘다.
+     */
+    private void enqueue(List<SimpleMailMessage> messages) {
+        if (offer(messages) < messages.size()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new MailSendException("메일 큐에 넣는 중에 인터럽트 되었습니다.");
+            }
+            throw new MailSendException("메일 큐가 가득 찼거나 종료되어 메일을 접수하지 못했습니다. (queueCapacity: " + queueCapacity + ")");
+        }
+    }
+
+    /**
+     * 앞에서부터 큐에 넣다가 넣지 못한 메일이 나오면 멈춘다.
+     * @return 큐에 넣은 메일 수
+     */
+    private int offer(List<SimpleMailMessage> messages) {
+        startWorkersIfNecessary();
+
+        int accepted = 0;
+        for (SimpleMailMessage message : messages) {
+            try {
+                if (!running || !queue.offer(message, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                    return accepted;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return accepted;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    private synchronized void startWorkersIfNecessary() {
+        if (executor != null) {
+            return;
+        }
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        running = true;
+        executor = Executors.newFixedThreadPool(workers, new ThreadFactory() {
+            private final AtomicInteger sequence = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "async-mail-sender-" + sequence.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        for (int i = 0; i < workers; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            });
+        }
+    }
+
+    private void drain() {
+        List<SimpleMailMessage> batch = new ArrayList<>(maxBatchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                SimpleMailMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                deliver(batch.toArray(new SimpleMailMessage[batch.size()]));
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 실패하면 지수적으로 늘어나는 간격을 두고 maxRetries 번까지 다시 보낸다.
+     * 일부만 실패했다면 이미 나간 메일이 중복 발송되지 않도록 실패한 메일만 다시 보낸다.
+     */
+    private void deliver(SimpleMailMessage[] messages) throws InterruptedException {
+        long backoffMillis = initialBackoffMillis;
+
+        for (int attempt = 0; ; attempt++) {
+            long start = System.nanoTime();
+            try {
+                mailSender.send(messages);
+                recordLatency(System.nanoTime() - start);
+                sentCount.add(messages.length);
+                batchCount.increment();
+                return;
+            } catch (MailException e) {
+                recordLatency(System.nanoTime() - start);
+                SimpleMailMessage[] failed = failedMessages(messages, e);
+                sentCount.add(messages.length - failed.length);
+                messages = failed;
+                if (attempt >= maxRetries) {
+                    failedCount.add(messages.length);
+                    return;
+                }
+            }
+
+            retryCount.increment();
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                failedCount.add(messages.length);
+                throw e;
+            }
+            backoffMillis = Math.min(backoffMillis * 2, maxBackoffMillis);
+        }
+    }
+
+    /**
+     * MailSendException.getFailedMessages()에 실패한 메일이 들어 있으면 그것만 돌려준다.
+     * 어떤 메일이 실패했는지 알 수 없으면(연결 실패처럼 묶음 전체가 실패한 경우) 전부 실패한 것으로 본다.
+     */
+    private static SimpleMailMessage[] failedMessages(SimpleMailMessage[] messages, MailException e) {
+        if (!(e instanceof MailSendException)) {
+            return messages;
+        }
+
+        Map<Object, Exception> failedMessages = ((MailSendException) e).getFailedMessages();
+        List<SimpleMailMessage> failed = new ArrayList<>();
+        for (SimpleMailMessage message : messages) {
+            if (failedMessages.containsKey(message)) {
+                failed.add(message);
+            }
+        }
+        return failed.isEmpty() ? messages : failed.toArray(new SimpleMailMessage[failed.size()]);
+    }
+
+    private void recordLatency(long nanos) {
+        sendAttempts.increment();
+        sendNanos.add(nanos);
+        long max;
+        while (nanos > (max = maxSendNanos.get())) {
+            if (maxSendNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 더 이상 메일을 받지 않고, 큐에 남은 메일을 shutdownTimeoutMillis 동안 보낸 뒤 워커를 정리한다.
+     * 그때까지 보내지 못하고 큐에 남은 메일은 실패로 센다.
+     */
+    public synchronized void close() throws InterruptedException {
+        if (executor == null) {
+            return;
+        }
+
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow(); // 돌려받는 작업은 아직 시작하지 못한 drain()이고, 그 몫의 메일은 큐에 그대로 남아 있다.
+            List<SimpleMailMessage> dropped = new ArrayList<>();
+            queue.drainTo(dropped);
+            if (!dropped.isEmpty()) {
+                failedCount.add(dropped.size());
+                logger.warning("종료 시간이 지나 메일 " + dropped.size() + "통을 보내지 못하고 버렸습니다.");
+            }
+            executor.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS); // 보내던 묶음의 결과까지 센다.
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    public long getSentCount() {
+        return sentCount.sum();
+    }
+
+    public long getFailedCount() {
+        return failedCount.sum();
+    }
+
+    public long getRetryCount() {
+        return retryCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    public double getAverageSendLatencyMillis() {
+        long attempts = sendAttempts.sum();
+        return attempts == 0 ? 0 : sendNanos.sum() / 1_000_000.0 / attempts;
+    }
+
+    public double getMaxSendLatencyMillis() {
+        return maxSendNanos.get() / 1_000_000.0;
+    }
+}
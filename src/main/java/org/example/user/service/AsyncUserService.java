@@ -0,0 +1,153 @@
+package org.example.user.service;
+
+import org.example.user.dao.UserDao;
+import org.example.user.domain.User;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UserService와 UserDao의 블로킹 호출을 Executor에서 실행하고 CompletableFuture로 돌려주는 비동기 창구.
+ * Executor를 DI 받지 않으면 호출마다 가상 스레드를 하나씩 만든다. 가상 스레드는 JDBC에서 기다리는 동안 캐리어 스레드를 놓아주므로
+ * 호출하는 쪽이 수만 개여도 스레드 풀을 키울 필요가 없다.
+ * 대신 동시에 DB를 쓰는 작업 수는 maxConcurrency 개로 제한한다. 커넥션 풀 크기에 맞춰두면 나머지는 세마포어에서 기다리므로
+ * 풀의 maxWaitMillis에 걸려 실패하지 않는다.
+ */
+public class AsyncUserService {
+    private UserService userService;
+    private UserDao userDao;
+    private Executor executor;
+    private boolean ownsExecutor;
+    private int maxConcurrency = 10;
+    private Semaphore permits = new Semaphore(maxConcurrency);
+
+    public void setUserService(UserService userService) {
+        this.userService = userService;
+    }
+
+    public void setUserDao(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    public synchronized void setExecutor(Executor executor) {
+        this.executor = executor;
+        this.ownsExecutor = false;
+    }
+
+    /**
+     * 동시에 실행하는 작업 수. 커넥션 풀의 maxTotal과 같게 맞춘다.
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    public CompletableFuture<Void> add(final User user) {
+        return call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                userService.add(user);
+                return null;
+            }
+        });
+    }
+
+    public CompletableFuture<Void> upgradeLevels() {
+        return call(new Callable<Void>() {
+            @Override
+            public Void call() {
+                userService.upgradeLevels();
+                return null;
+            }
+        });
+    }
+
+    public CompletableFuture<User> get(final String id) {
+        return call(new Callable<User>() {
+            @Override
+            public User call() {
+                return userDao.get(id);
+            }
+        });
+    }
+
+    public CompletableFuture<Integer> getCount() {
+        return call(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return userDao.getCount();
+            }
+        });
+    }
+
+    /**
+     * 세마포어를 얻은 뒤에 task를 실행한다. 기다리는 것도 작업 스레드에서 하므로 호출한 스레드는 막히지 않는다.
+     */
+    private <T> CompletableFuture<T> call(final Callable<T> task) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final Semaphore semaphore = permits; // setMaxConcurrency()로 바뀌어도 얻은 세마포어에 돌려준다.
+        try {
+            executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        semaphore.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        future.completeExceptionally(e);
+                        return;
+                    }
+
+                    try {
+                        future.complete(task.call());
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        semaphore.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private synchronized Executor executor() {
+        if (executor == null) {
+            executor = Executors.newVirtualThreadPerTaskExecutor();
+            ownsExecutor = true;
+        }
+        return executor;
+    }
+
+    /**
+     * 지금 DB 작업을 실행하고 있는 호출 수
+     */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    /**
+     * 직접 만든 Executor만 종료한다. 실행 중인 작업은 끝날 때까지 기다린다.
+     */
+    public void close() throws InterruptedException {
+        ExecutorService owned;
+        synchronized (this) {
+            if (!ownsExecutor) {
+                return;
+            }
+            owned = (ExecutorService) executor;
+            executor = null;
+            ownsExecutor = false;
+        }
+        owned.shutdown();
+        owned.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.user.service;
+
+/**
+ * importUsers()가 청크를 하나 넣을 때마다 호출된다.
+ */
+public interface ImportProgressListener {
+    /**
+     * @param imported     지금까지 넣은 사용자 수
+     * @param elapsedNanos 가져오기를 시작한 뒤 흐른 시간. imported와 함께 처리량(명/초)을 계산할 수 있다.
+     */
+    void progress(long imported, long elapsedNanos);
+}
@@ -0,0 +1,31 @@
+package org.example.user.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 병렬 업그레이드에서 하나 이상의 파티션이 실패했을 때 던진다.
+ * 실패한 파티션의 범위와 원인을 담고 있으며, 다른 파티션이 커밋한 내용은 그대로 남는다.
+ */
+public class PartitionedUpgradeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    // 예외와 함께 직렬화할 수 있도록 Serializable인 LinkedHashMap으로 복사해서 갖고 있는다.
+    private final LinkedHashMap<String, Throwable> failures;
+
+    /**
+     * 생성자에서는 this를 넘기는 메서드를 호출하지 않는다. 각 원인을 suppressed로 붙이는 것은 던지는 쪽에서 한다.
+     */
+    public PartitionedUpgradeException(Map<String, Throwable> failures) {
+        super(failures.size() + "개 파티션의 업그레이드가 실패했습니다: " + failures.keySet());
+        this.failures = new LinkedHashMap<>(failures);
+    }
+
+    /**
+     * "(fromId, toId]" 형식의 파티션 범위를 키로 하는 실패 원인
+     */
+    public Map<String, Throwable> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+}
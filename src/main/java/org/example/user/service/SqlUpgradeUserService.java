@@ -0,0 +1,72 @@
+package org.example.user.service;
+
+import org.example.user.domain.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 업그레이드 조건 검사를 자바가 아닌 DB에서 처리하는 UserService.
+ * 사용자를 모두 읽어오는 대신 upgradePolicy의 규칙마다 한 번의 update 문을 실행하므로 전송량이 업그레이드 대상 수에만 비례한다.
+ * update 문은 한 단계씩만 올리므로 BASIC->GOLD처럼 건너뛰는 규칙은 지원하지 않는다.
+ * update 문 한 번이 테이블 전체를 처리하므로 청크, 파티션 단위 실행(UserUpgradeBatch)과 incremental 모드는 지원하지 않는다.
+ * 이런 실행이 조용히 자바 쪽 행 단위 처리로 바뀌지 않도록 예외를 던진다.
+ */
+public class SqlUpgradeUserService extends UserServiceImpl {
+    @Override
+    public void upgradeLevels() {
+        List<UpgradePolicy.Rule> rules = new ArrayList<>(upgradePolicy.getRules());
+        for (UpgradePolicy.Rule rule : rules) {
+            if (rule.getTo() != rule.getFrom().nextLevel()) {
+                throw new IllegalStateException("SqlUpgradeUserService는 한 단계씩 올리는 규칙만 지원합니다: " + rule.getFrom() + "->" + rule.getTo());
+            }
+        }
+
+        // 낮은 레벨의 전환부터 처리하면 방금 올라간 사용자가 다음 전환에서 한 번 더 올라간다.
+        // chained가 아니면 한 번의 실행에서 두 단계가 올라가지 않도록 높은 레벨의 전환부터 처리한다.
+        final int direction = upgradePolicy.isChained() ? 1 : -1;
+        Collections.sort(rules, new Comparator<UpgradePolicy.Rule>() {
+            @Override
+            public int compare(UpgradePolicy.Rule r1, UpgradePolicy.Rule r2) {
+                return direction * Integer.compare(r1.getFrom().intValue(), r2.getFrom().intValue());
+            }
+        });
+
+        // chained면 한 사용자가 여러 전환에서 올라갈 수 있으므로 id별로 마지막 레벨만 모아서 메일을 한 번만 보낸다.
+        Map<String, User> upgraded = new LinkedHashMap<>();
+        for (UpgradePolicy.Rule rule : rules) {
+            for (User user : userDao.upgradeLevels(rule.getFrom(), rule.getMinLogin(), rule.getMinRecommend())) {
+                upgraded.put(user.getId(), user);
+            }
+        }
+        sendUpgradeEmails(upgraded.values());
+    }
+
+    @Override
+    public void setIncremental(boolean incremental) {
+        if (incremental) {
+            throw new IllegalArgumentException("SqlUpgradeUserService는 incremental 모드를 지원하지 않습니다.");
+        }
+    }
+
+    @Override
+    public String upgradeLevelsAfter(String lastId, String toId) {
+        throw new UnsupportedOperationException("SqlUpgradeUserService는 청크 단위 업그레이드를 지원하지 않습니다. upgradeLevels()를 호출하세요.");
+    }
+
+    @Override
+    public List<String> getPartitionKeys(int partitions) {
+        throw new UnsupportedOperationException("SqlUpgradeUserService는 파티션 단위 업그레이드를 지원하지 않습니다. upgradeLevels()를 호출하세요.");
+    }
+
+    private void sendUpgradeEmails(Collection<User> upgraded) {
+        for (User user : upgraded) {
+            sendUpgradeEmail(user);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.user.service;
+
+import net.sf.cglib.proxy.MethodInterceptor;
+import net.sf.cglib.proxy.MethodProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * UserServiceTx가 upgradeLevels()에만 손으로 작성했던 트랜잭션 경계설정 코드를 어떤 타깃에든 적용하는 부가기능.
+ * JDK 다이내믹 프록시의 InvocationHandler와 CGLIB의 MethodInterceptor를 모두 구현하며,
+ * 어느 쪽이든 실제 작업은 DI 받은 타깃 오브젝트에 위임한다.
+ */
+public class TransactionHandler implements InvocationHandler, MethodInterceptor {
+    private final Object target;
+    private final PlatformTransactionManager transactionManager;
+    private final TransactionRules transactionRules;
+
+    public TransactionHandler(Object target, PlatformTransactionManager transactionManager, TransactionRules transactionRules) {
+        this.target = target;
+        this.transactionManager = transactionManager;
+        this.transactionRules = transactionRules;
+    }
+
+    // JDK 다이내믹 프록시
+    @Override
+    public Object invoke(Object proxy, final Method method, final Object[] args) throws Throwable {
+        // toString(), hashCode(), equals() 같은 Object 메서드는 "*" 규칙에 걸리지 않도록 규칙을 찾기 전에 바로 위임한다.
+        if (TransactionRules.isObjectMethod(method)) {
+            return invokeTarget(method, args);
+        }
+
+        TransactionAttribute attribute = transactionRules.getTransactionAttribute(method, target.getClass());
+        if (attribute == null) {
+            return invokeTarget(method, args);
+        }
+
+        TransactionStatus status = transactionManager.getTransaction(attribute);
+        Object result;
+        try {
+            result = invokeTarget(method, args);
+        } catch (Throwable e) {
+            completeAfterThrowing(status, attribute, e);
+            throw e;
+        }
+        transactionManager.commit(status);
+        return result;
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    // CGLIB 프록시. 리플렉션 대신 MethodProxy가 만든 FastClass로 타깃 메서드를 호출한다.
+    @Override
+    public Object intercept(Object proxy, Method method, Object[] args, MethodProxy methodProxy) throws Throwable {
+        if (TransactionRules.isObjectMethod(method)) {
+            return methodProxy.invoke(target, args);
+        }
+
+        TransactionAttribute attribute = transactionRules.getTransactionAttribute(method, target.getClass());
+        if (attribute == null) {
+            return methodProxy.invoke(target, args);
+        }
+
+        TransactionStatus status = transactionManager.getTransaction(attribute);
+        Object result;
+        try {
+            result = methodProxy.invoke(target, args);
+        } catch (Throwable e) {
+            completeAfterThrowing(status, attribute, e);
+            throw e;
+        }
+        transactionManager.commit(status);
+        return result;
+    }
+
+    /**
+     * 롤백 대상 예외(기본은 RuntimeException과 Error)면 롤백하고, 그 외의 체크 예외면 커밋한다.
+     */
+    private void completeAfterThrowing(TransactionStatus status, TransactionAttribute attribute, Throwable e) {
+        if (attribute.rollbackOn(e)) {
+            transactionManager.rollback(status);
+        } else {
+            transactionManager.commit(status);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.user.service;
+
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.RollbackRuleAttribute;
+import org.springframework.transaction.interceptor.RuleBasedTransactionAttribute;
+import org.springframework.transaction.interceptor.NoRollbackRuleAttribute;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeEditor;
+import org.springframework.util.PatternMatchUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 메서드마다 어떤 트랜잭션 속성을 적용할지 결정한다.
+ * 대상 클래스나 인터페이스의 @Transactional이 있으면 그것을 따르고, 없으면 메서드 이름 패턴 규칙을 찾는다.
+ * 이름 패턴은 "upgrade*" 처럼 *를 사용할 수 있고, 여러 패턴이 맞으면 가장 긴 패턴이 이긴다.
+ * 규칙 값은 "PROPAGATION_REQUIRED,readOnly,timeout_5,ISOLATION_READ_COMMITTED" 형식이다.
+ * 한 번 결정한 결과는 메서드별로 캐시하므로 호출마다 리플렉션이나 패턴 매칭을 하지 않는다.
+ */
+public class TransactionRules {
+    // 트랜잭션을 적용하지 않는 메서드를 캐시에 표시하기 위한 값 (ConcurrentHashMap은 null을 담을 수 없다.)
+    private static final TransactionAttribute NO_TRANSACTION = new RuleBasedTransactionAttribute();
+
+    private final Map<String, TransactionAttribute> nameRules = new LinkedHashMap<>();
+    private boolean useAnnotations = true;
+
+    private final Map<Method, TransactionAttribute> cache = new ConcurrentHashMap<>();
+
+    public void setMethodRules(Properties methodRules) {
+        TransactionAttributeEditor editor = new TransactionAttributeEditor();
+        for (String pattern : methodRules.stringPropertyNames()) {
+            editor.setAsText(methodRules.getProperty(pattern));
+            nameRules.put(pattern, (TransactionAttribute) editor.getValue());
+        }
+        cache.clear();
+    }
+
+    public void addMethodRule(String pattern, TransactionAttribute attribute) {
+        nameRules.put(pattern, attribute);
+        cache.clear();
+    }
+
+    public void setUseAnnotations(boolean useAnnotations) {
+        this.useAnnotations = useAnnotations;
+        cache.clear();
+    }
+
+    /**
+     * @return 적용할 트랜잭션 속성. 트랜잭션 없이 실행해야 하면 null
+     */
+    public TransactionAttribute getTransactionAttribute(Method method, Class<?> targetClass) {
+        TransactionAttribute attribute = cache.get(method);
+        if (attribute == null) {
+            attribute = resolve(method, targetClass);
+            cache.put(method, attribute == null ? NO_TRANSACTION : attribute);
+        }
+        return attribute == NO_TRANSACTION ? null : attribute;
+    }
+
+    /**
+     * 타깃이 재정의했더라도 toString(), hashCode(), equals()는 트랜잭션 없이 실행한다.
+     */
+    static boolean isObjectMethod(Method method) {
+        return method.getDeclaringClass() == Object.class || ReflectionUtils.isToStringMethod(method)
+                || ReflectionUtils.isHashCodeMethod(method) || ReflectionUtils.isEqualsMethod(method);
+    }
+
+    private TransactionAttribute resolve(Method method, Class<?> targetClass) {
+        if (isObjectMethod(method)) {
+            return null;
+        }
+
+        if (useAnnotations) {
+            Transactional transactional = findAnnotation(method, targetClass);
+            if (transactional != null) {
+                return toAttribute(transactional);
+            }
+        }
+
+        String bestMatch = null;
+        for (String pattern : nameRules.keySet()) {
+            if (PatternMatchUtils.simpleMatch(pattern, method.getName())
+                    && (bestMatch == null || pattern.length() > bestMatch.length())) {
+                bestMatch = pattern;
+            }
+        }
+        return bestMatch == null ? null : nameRules.get(bestMatch);
+    }
+
+    /**
+     * 대상 클래스의 메서드, 인터페이스의 메서드, 대상 클래스, 인터페이스 순서로 가까운 것을 찾는다.
+     */
+    private Transactional findAnnotation(Method method, Class<?> targetClass) {
+        Method targetMethod = method;
+        if (targetClass != null) {
+            try {
+                targetMethod = targetClass.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+
+        Transactional transactional = targetMethod.getAnnotation(Transactional.class);
+        if (transactional == null) {
+            transactional = method.getAnnotation(Transactional.class);
+        }
+        if (transactional == null && targetClass != null) {
+            transactional = targetClass.getAnnotation(Transactional.class);
+        }
+        if (transactional == null) {
+            transactional = method.getDeclaringClass().getAnnotation(Transactional.class);
+        }
+        return transactional;
+    }
+
+    private TransactionAttribute toAttribute(Transactional transactional) {
+        RuleBasedTransactionAttribute attribute = new RuleBasedTransactionAttribute();
+        attribute.setPropagationBehavior(transactional.propagation().value());
+        attribute.setIsolationLevel(transactional.isolation().value());
+        attribute.setTimeout(transactional.timeout());
+        attribute.setReadOnly(transactional.readOnly());
+
+        List<RollbackRuleAttribute> rollbackRules = new ArrayList<>();
+        for (Class<? extends Throwable> rollbackFor : transactional.rollbackFor()) {
+            rollbackRules.add(new RollbackRuleAttribute(rollbackFor));
+        }
+        for (Class<? extends Throwable> noRollbackFor : transactional.noRollbackFor()) {
+            rollbackRules.add(new NoRollbackRuleAttribute(noRollbackFor));
+        }
+        attribute.setRollbackRules(rollbackRules);
+        return attribute;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.user.service;
+
+import net.sf.cglib.proxy.Enhancer;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Proxy;
+import java.util.Properties;
+
+/**
+ * 타깃 오브젝트에 트랜잭션 부가기능을 입힌 프록시를 만드는 팩토리 빈.
+ * serviceInterface를 지정하면 JDK 다이내믹 프록시를, proxyTargetClass가 true이면 타깃 클래스를 상속한 CGLIB 프록시를 만든다.
+ * UserService뿐 아니라 UserDao처럼 어떤 인터페이스에도 사용할 수 있다.
+ */
+public class TxProxyFactoryBean implements FactoryBean<Object> {
+    private Object target;
+    private PlatformTransactionManager transactionManager;
+    private Class<?> serviceInterface;
+    private boolean proxyTargetClass = false;
+    private final TransactionRules transactionRules = new TransactionRules();
+
+    private Object proxy;
+
+    public void setTarget(Object target) {
+        this.target = target;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public void setServiceInterface(Class<?> serviceInterface) {
+        this.serviceInterface = serviceInterface;
+    }
+
+    public void setProxyTargetClass(boolean proxyTargetClass) {
+        this.proxyTargetClass = proxyTargetClass;
+    }
+
+    /**
+     * 메서드 이름 패턴별 트랜잭션 속성. 예) upgrade* = PROPAGATION_REQUIRED, get* = PROPAGATION_REQUIRED,readOnly
+     */
+    public void setMethodRules(Properties methodRules) {
+        transactionRules.setMethodRules(methodRules);
+    }
+
+    public void setUseAnnotations(boolean useAnnotations) {
+        transactionRules.setUseAnnotations(useAnnotations);
+    }
+
+    @Override
+    public synchronized Object getObject() {
+        if (proxy == null) {
+            proxy = createProxy();
+        }
+        return proxy;
+    }
+
+    private Object createProxy() {
+        TransactionHandler handler = new TransactionHandler(target, transactionManager, transactionRules);
+
+        if (proxyTargetClass) {
+            Enhancer enhancer = new Enhancer();
+            enhancer.setSuperclass(target.getClass());
+            enhancer.setCallback(handler);
+            return enhancer.create();
+        }
+
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {serviceInterface}, handler);
+    }
+
+    @Override
+    public Class<?> getObjectType() {
+        if (proxyTargetClass) {
+            return target == null ? null : target.getClass();
+        }
+        return serviceInterface;
+    }
+
+    @Override
+    public boolean isSingleton() {
+        return true;
+    }
+}
@@ -0,0 +1,240 @@
+package org.example.user.service;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 레벨 업그레이드 규칙표. 규칙은 "현재 레벨->목표 레벨"마다 login, recommend의 최솟값으로 정한다.
+ * 설정은 TransactionRules의 methodRules처럼 Properties로 받는다.
+ * <pre>
+ * BASIC->SILVER = login >= 50
+ * SILVER->GOLD  = recommend >= 30
+ * BASIC->GOLD   = login >= 100, recommend >= 50
+ * </pre>
+ * 한 사용자에게 여러 규칙이 맞으면 가장 높은 목표 레벨로 올린다. chained가 true면 BASIC->SILVER와 SILVER->GOLD를 모두 만족하는 사용자도
+ * 한 번에 GOLD로 올린다. 규칙은 레벨별 int 배열로 컴파일해두고, 조건 검사는 분기 대신 부호 비트 연산으로 한다.
+ */
+public class UpgradePolicy {
+    private final List<Rule> rules = new ArrayList<>();
+    private boolean chained = false;
+
+    // 컴파일한 규칙. 현재 레벨 값 v의 규칙은 [ruleStart[v], ruleStart[v + 1]) 구간에 있다.
+    private volatile Compiled compiled;
+
+    /**
+     * UserServiceImpl의 MIN_LOGIN_COUNT_FOR_SILVER, MIN_RECOMMEND_COUNT_FOR_GOLD로 한 단계씩 올리는 기본 정책
+     */
+    public static UpgradePolicy standard() {
+        UpgradePolicy policy = new UpgradePolicy();
+        policy.addRule(Level.BASIC, Level.SILVER, UserServiceImpl.MIN_LOGIN_COUNT_FOR_SILVER, 0);
+        policy.addRule(Level.SILVER, Level.GOLD, 0, UserServiceImpl.MIN_RECOMMEND_COUNT_FOR_GOLD);
+        return policy;
+    }
+
+    /**
+     * 기존 규칙을 모두 지우고 "BASIC->SILVER" = "login >= 50, recommend >= 0" 형식의 규칙을 읽는다. 빠진 조건은 0 이상이다.
+     */
+    public synchronized void setRules(Properties properties) {
+        rules.clear();
+        for (String transition : properties.stringPropertyNames()) {
+            String[] levels = transition.split("->");
+            if (levels.length != 2) {
+                throw new IllegalArgumentException("레벨 전환은 BASIC->SILVER 형식이어야 합니다: " + transition);
+            }
+
+            int minLogin = 0;
+            int minRecommend = 0;
+            for (String condition : properties.getProperty(transition).split(",")) {
+                String[] parts = condition.split(">=");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("조건은 login >= 50 형식이어야 합니다: " + condition.trim());
+                }
+                String field = parts[0].trim();
+                int min = Integer.parseInt(parts[1].trim());
+                if (field.equals("login")) {
+                    minLogin = min;
+                } else if (field.equals("recommend")) {
+                    minRecommend = min;
+                } else {
+                    throw new IllegalArgumentException("알 수 없는 조건입니다: " + field);
+                }
+            }
+            addRule(Level.valueOf(levels[0].trim()), Level.valueOf(levels[1].trim()), minLogin, minRecommend);
+        }
+        compiled = null;
+    }
+
+    public synchronized void addRule(Level from, Level to, int minLogin, int minRecommend) {
+        if (to.intValue() <= from.intValue()) {
+            throw new IllegalArgumentException(from + "->" + to + "는 업그레이드가 아닙니다.");
+        }
+        rules.add(new Rule(from, to, minLogin, minRecommend));
+        compiled = null;
+    }
+
+    /**
+     * true면 연달아 이어지는 규칙을 모두 만족하는 사용자를 한 번의 실행에서 여러 단계 올린다.
+     */
+    public synchronized void setChained(boolean chained) {
+        this.chained = chained;
+        compiled = null;
+    }
+
+    public synchronized boolean isChained() {
+        return chained;
+    }
+
+    /**
+     * 설정한 규칙. chained로 이어 붙여 만든 규칙은 포함하지 않는다.
+     */
+    public synchronized List<Rule> getRules() {
+        return Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+
+    /**
+     * @return 올라갈 레벨. 맞는 규칙이 없으면 null
+     */
+    public Level getTargetLevel(Level level, int login, int recommend) {
+        int target = compiled().evaluate(level.intValue(), login, recommend);
+        return target == level.intValue() ? null : Level.valueOf(target);
+    }
+
+    public Level getTargetLevel(User user) {
+        return getTargetLevel(user.getLevel(), user.getLogin(), user.getRecommend());
+    }
+
+    /**
+     * batch의 모든 행을 한 번 훑어서 올라갈 레벨 값을 targets에 채운다. 올라가지 않는 행은 0이다.
+     * @return 업그레이드할 행 수
+     */
+    public int evaluate(UserBatch batch, int[] targets) {
+        Compiled c = compiled();
+        int upgrades = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            int level = batch.getLevelValue(row);
+            int target = c.evaluate(level, batch.getLogin(row), batch.getRecommend(row));
+            int upgraded = (level - target) >>> 31; // target > level이면 1
+            targets[row] = target & -upgraded;
+            upgrades += upgraded;
+        }
+        return upgrades;
+    }
+
+    private Compiled compiled() {
+        Compiled c = compiled;
+        if (c == null) {
+            synchronized (this) {
+                if (compiled == null) {
+                    compiled = new Compiled(chained ? chain(rules) : rules);
+                }
+                c = compiled;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * a->b와 b->c를 모두 만족하면 a->c로 올릴 수 있으므로, 두 조건 중 큰 값을 조건으로 하는 a->c 규칙을 더한다. 더 늘어나지 않을 때까지 반복한다.
+     */
+    private static List<Rule> chain(List<Rule> rules) {
+        List<Rule> closure = new ArrayList<>(rules);
+        for (int i = 0; i < closure.size(); i++) {
+            Rule first = closure.get(i);
+            for (Rule second : rules) {
+                if (second.from == first.to) {
+                    closure.add(new Rule(first.from, second.to,
+                            Math.max(first.minLogin, second.minLogin), Math.max(first.minRecommend, second.minRecommend)));
+                }
+            }
+        }
+        return closure;
+    }
+
+    private static class Compiled {
+        final int[] ruleStart;
+        final int[] minLogin;
+        final int[] minRecommend;
+        final int[] target;
+
+        Compiled(List<Rule> rules) {
+            int maxLevel = 0;
+            for (Level level : Level.values()) {
+                maxLevel = Math.max(maxLevel, level.intValue());
+            }
+
+            List<Rule> sorted = new ArrayList<>(rules);
+            Collections.sort(sorted, new Comparator<Rule>() {
+                @Override
+                public int compare(Rule r1, Rule r2) {
+                    return Integer.compare(r1.from.intValue(), r2.from.intValue());
+                }
+            });
+
+            ruleStart = new int[maxLevel + 2];
+            minLogin = new int[sorted.size()];
+            minRecommend = new int[sorted.size()];
+            target = new int[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                Rule rule = sorted.get(i);
+                minLogin[i] = rule.minLogin;
+                minRecommend[i] = rule.minRecommend;
+                target[i] = rule.to.intValue();
+                ruleStart[rule.from.intValue() + 1] = i + 1;
+            }
+            for (int v = 1; v < ruleStart.length; v++) {
+                ruleStart[v] = Math.max(ruleStart[v], ruleStart[v - 1]);
+            }
+        }
+
+        /**
+         * 만족하는 규칙 중 가장 높은 목표 레벨 값을 돌려준다. 없으면 level을 그대로 돌려준다.
+         * 두 차이가 모두 0 이상일 때만 OR한 값의 부호 비트가 0이므로, 그 비트로 목표 레벨을 마스킹한다.
+         */
+        int evaluate(int level, int login, int recommend) {
+            int result = level;
+            for (int r = ruleStart[level]; r < ruleStart[level + 1]; r++) {
+                long miss = ((long) login - minLogin[r]) | ((long) recommend - minRecommend[r]);
+                int hit = (int) (~miss >>> 63);
+                result = Math.max(result, target[r] & -hit);
+            }
+            return result;
+        }
+    }
+
+    public static class Rule {
+        private final Level from;
+        private final Level to;
+        private final int minLogin;
+        private final int minRecommend;
+
+        Rule(Level from, Level to, int minLogin, int minRecommend) {
+            this.from = from;
+            this.to = to;
+            this.minLogin = minLogin;
+            this.minRecommend = minRecommend;
+        }
+
+        public Level getFrom() {
+            return from;
+        }
+
+        public Level getTo() {
+            return to;
+        }
+
+        public int getMinLogin() {
+            return minLogin;
+        }
+
+        public int getMinRecommend() {
+            return minRecommend;
+        }
+    }
+}
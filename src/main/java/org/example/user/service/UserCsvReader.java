@@ -0,0 +1,157 @@
+package org.example.user.service;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+/**
+ * id,name,password,level,login,recommend,email 순서의 CSV를 한 줄씩 읽어서 User로 돌려주는 Iterator.
+ * 파일 전체를 메모리에 올리지 않으므로 크기에 상관없이 importUsers()에 넘길 수 있다.
+ * 첫 줄이 "id,name,password,level,login,recommend,email" 헤더와 (대소문자와 공백을 빼고) 똑같을 때만 건너뛴다.
+ * 헤더가 없는 파일에서 id가 "id"인 사용자를 헤더로 잘못 보고 버리지 않도록, 헤더를 항상 건너뛰게 하려면 setSkipHeader(true)를 쓴다. level은 숫자(1~3)나 이름(BASIC)으로 쓸 수 있고, 비워두면 null이다.
+ * 큰따옴표로 감싼 값 안에는 쉼표와 "" (따옴표 하나)를 쓸 수 있다.
+ */
+public class UserCsvReader implements Iterator<User>, Closeable {
+    private static final List<String> HEADER = Arrays.asList("id", "name", "password", "level", "login", "recommend", "email");
+    private static final int COLUMN_COUNT = HEADER.size();
+
+    private final BufferedReader reader;
+    private int lineNumber;
+    private User next;
+    private boolean started;
+    private boolean skipHeader;
+
+    public UserCsvReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * true이면 첫 줄의 내용과 상관없이 헤더로 보고 건너뛴다.
+     */
+    public void setSkipHeader(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public User next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        User user = next;
+        next = null;
+        return user;
+    }
+
+    private User readNext() {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                List<String> fields = split(line);
+                if (!started) {
+                    started = true;
+                    if (skipHeader || isHeader(fields)) {
+                        continue;
+                    }
+                }
+                return toUser(fields);
+            }
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isHeader(List<String> fields) {
+        if (fields.size() != COLUMN_COUNT) {
+            return false;
+        }
+        for (int i = 0; i < COLUMN_COUNT; i++) {
+            if (!fields.get(i).trim().equalsIgnoreCase(HEADER.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private User toUser(List<String> fields) {
+        if (fields.size() != COLUMN_COUNT) {
+            throw new IllegalArgumentException(lineNumber + "번째 줄의 컬럼 수가 " + fields.size() + "개입니다. (" + COLUMN_COUNT + "개 필요)");
+        }
+
+        try {
+            return new User(fields.get(0), fields.get(1), fields.get(2), level(fields.get(3)),
+                    Integer.parseInt(fields.get(4).trim()), Integer.parseInt(fields.get(5).trim()),
+                    fields.get(6).isEmpty() ? null : fields.get(6));
+        } catch (RuntimeException | AssertionError e) { // Level.valueOf(int)는 모르는 값에 AssertionError를 던진다.
+            throw new IllegalArgumentException(lineNumber + "번째 줄을 읽을 수 없습니다: " + e.getMessage(), e);
+        }
+    }
+
+    private Level level(String value) {
+        value = value.trim();
+        if (value.isEmpty()) {
+            return null;
+        }
+        if (Character.isDigit(value.charAt(0))) {
+            return Level.valueOf(Integer.parseInt(value));
+        }
+        return Level.valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    private List<String> split(String line) {
+        List<String> fields = new ArrayList<>(COLUMN_COUNT);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
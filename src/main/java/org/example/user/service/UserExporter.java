@@ -0,0 +1,200 @@
+package org.example.user.service;
+
+import org.example.user.dao.UserCallback;
+import org.example.user.dao.UserDao;
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 사용자 테이블을 CSV나 NDJSON(한 줄에 JSON 오브젝트 하나)으로 내보낸다.
+ * UserDao.forEach()로 한 행씩 받아서 바로 스트림에 쓰므로 getAll()처럼 전체 목록을 메모리에 올리지 않는다.
+ * CSV는 UserCsvReader가 읽는 형식과 같아서 importUsers()로 다시 넣을 수 있다.
+ * 비밀번호는 includePassword를 켜지 않으면 비워서 내보낸다.
+ */
+public class UserExporter {
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private UserDao userDao;
+    private Format format = Format.CSV;
+    private boolean gzip = false;
+    private boolean includePassword = false;
+
+    public void setUserDao(UserDao userDao) {
+        this.userDao = userDao;
+    }
+
+    public void setFormat(Format format) {
+        this.format = format;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public void setIncludePassword(boolean includePassword) {
+        this.includePassword = includePassword;
+    }
+
+    public long export(WritableByteChannel channel, Level level) throws IOException {
+        return export(Channels.newOutputStream(channel), level);
+    }
+
+    /**
+     * level인 사용자(null이면 전체)를 out에 쓰고 내보낸 사용자 수를 돌려준다. out은 닫지 않는다.
+     */
+    public long export(OutputStream out, Level level) throws IOException {
+        GZIPOutputStream gzipOut = gzip ? new GZIPOutputStream(new NonClosingOutputStream(out), BUFFER_SIZE) : null;
+        final Writer writer = new BufferedWriter(
+                new OutputStreamWriter(gzipOut != null ? gzipOut : new NonClosingOutputStream(out), StandardCharsets.UTF_8), BUFFER_SIZE);
+        final long[] count = new long[1];
+
+        if (format == Format.CSV) {
+            writer.write("id,name,password,level,login,recommend,email\n");
+        }
+
+        try {
+            userDao.forEach(level, new UserCallback() {
+                @Override
+                public void doWithUser(User user) {
+                    try {
+                        if (format == Format.CSV) {
+                            writeCsv(writer, user);
+                        } else {
+                            writeJson(writer, user);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        writer.close(); // gzip 트레일러까지 쓰고, NonClosingOutputStream 덕분에 out은 열어둔다.
+        return count[0];
+    }
+
+    private void writeCsv(Writer writer, User user) throws IOException {
+        writeCsvField(writer, user.getId());
+        writer.write(',');
+        writeCsvField(writer, user.getName());
+        writer.write(',');
+        writeCsvField(writer, includePassword ? user.getPassword() : null);
+        writer.write(',');
+        writer.write(user.getLevel().name());
+        writer.write(',');
+        writer.write(Integer.toString(user.getLogin()));
+        writer.write(',');
+        writer.write(Integer.toString(user.getRecommend()));
+        writer.write(',');
+        writeCsvField(writer, user.getEmail());
+        writer.write('\n');
+    }
+
+    private void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writeJson(Writer writer, User user) throws IOException {
+        writer.write("{\"id\":");
+        writeJsonString(writer, user.getId());
+        writer.write(",\"name\":");
+        writeJsonString(writer, user.getName());
+        if (includePassword) {
+            writer.write(",\"password\":");
+            writeJsonString(writer, user.getPassword());
+        }
+        writer.write(",\"level\":\"");
+        writer.write(user.getLevel().name());
+        writer.write("\",\"login\":");
+        writer.write(Integer.toString(user.getLogin()));
+        writer.write(",\"recommend\":");
+        writer.write(Integer.toString(user.getRecommend()));
+        writer.write(",\"email\":");
+        writeJsonString(writer, user.getEmail());
+        writer.write("}\n");
+    }
+
+    private void writeJsonString(Writer writer, String value) throws IOException {
+        if (value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': writer.write("\\\""); break;
+                case '\\': writer.write("\\\\"); break;
+                case '\n': writer.write("\\n"); break;
+                case '\r': writer.write("\\r"); break;
+                case '\t': writer.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    /**
+     * 내보내기가 끝나면 writer를 닫아서 버퍼와 gzip 트레일러를 내보내지만, 호출한 쪽이 준 스트림은 열어둔다.
+     */
+    private static class NonClosingOutputStream extends OutputStream {
+        private final OutputStream out;
+
+        NonClosingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.flush();
+        }
+    }
+}
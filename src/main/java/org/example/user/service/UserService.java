@@ -2,8 +2,23 @@ package org.example.user.service;
 
 import org.example.user.domain.User;
 
+import java.io.Reader;
+import java.util.Iterator;
+
 public interface UserService {
     void add(User user);
 
+    /**
+     * 사용자들을 청크 단위로 모아서 한꺼번에 추가한다. 입력을 끝까지 메모리에 올리지 않으므로 크기에 제한이 없다.
+     * add()처럼 레벨이 없는 사용자는 BASIC으로 넣는다. listener는 null이어도 된다.
+     * @return 추가한 사용자 수
+     */
+    long importUsers(Iterator<User> users, ImportProgressListener listener);
+
+    /**
+     * UserCsvReader 형식의 CSV를 읽어서 importUsers(Iterator, ImportProgressListener)와 같이 추가한다.
+     */
+    long importUsers(Reader csv, ImportProgressListener listener);
+
     void upgradeLevels();
 }
@@ -3,53 +3,241 @@ package org.example.user.service;
 import org.example.user.dao.UserDao;
 import org.example.user.domain.Level;
 import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.mail.MailSender;
 import org.springframework.mail.SimpleMailMessage;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
-public class UserServiceImpl implements UserService {
+public class UserServiceImpl implements UserService, UserUpgradeBatch {
     public static final int MIN_LOGIN_COUNT_FOR_SILVER = 50;
     public static final int MIN_RECOMMEND_COUNT_FOR_GOLD = 30;
-    private UserDao userDao;
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+    UserDao userDao;
+    UpgradePolicy upgradePolicy = UpgradePolicy.standard();
     private MailSender mailSender;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    // true이면 upgradeLevels()가 전체 사용자 대신 지난 실행 이후 바뀐 사용자만 처리한다. UserDaoJdbc의 changeTracking이 켜져 있어야 한다.
+    private boolean incremental = false;
+
+    // true이면 청크를 UserBatch에 컬럼별로 읽어서 업그레이드 대상인 행만 User로 만든다.
+    private boolean columnarScan = false;
+
+    // columnarScan일 때 청크마다 다시 쓰는 UserBatch와 targets 배열. 파티션마다 다른 스레드가 upgradeLevelsAfter()를 부르므로 스레드별로 둔다.
+    private final ThreadLocal<ColumnarChunk> columnarChunks = new ThreadLocal<ColumnarChunk>() {
+        @Override
+        protected ColumnarChunk initialValue() {
+            return new ColumnarChunk(chunkSize);
+        }
+    };
+
+    // 다른 곳에서 먼저 수정한 사용자를 다시 읽어서 업그레이드하는 최대 횟수
+    private int maxConflictRetries = 3;
+
+    // 설정하면 importUsers()가 청크마다 트랜잭션을 커밋한다. 호출한 쪽의 트랜잭션이 있으면 거기에 참여하므로 프록시 규칙에서 importUsers는 트랜잭션 없이 호출되게 한다.
+    private PlatformTransactionManager transactionManager;
 
     public void setUserDao(UserDao userDao) {
         this.userDao = userDao;
     }
 
+    public void setUpgradePolicy(UpgradePolicy upgradePolicy) {
+        this.upgradePolicy = upgradePolicy;
+    }
+
     public void setMailSender(MailSender mailSender) {
         this.mailSender = mailSender;
     }
 
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setMaxConflictRetries(int maxConflictRetries) {
+        this.maxConflictRetries = maxConflictRetries;
+    }
+
+    public void setColumnarScan(boolean columnarScan) {
+        this.columnarScan = columnarScan;
+    }
+
     public void upgradeLevels() {
-        List<User> users = userDao.getAll();
+        if (incremental) {
+            upgradeChangedLevels();
+            return;
+        }
+
+        // 전체 사용자를 한 번에 읽지 않고 청크 단위로 읽어서 처리하므로 메모리 사용량이 테이블 크기와 무관하다.
+        String lastId = null;
+        do {
+            lastId = upgradeLevelsAfter(lastId);
+        } while (lastId != null);
+    }
+
+    public String upgradeLevelsAfter(String lastId) {
+        return upgradeLevelsAfter(lastId, null);
+    }
+
+    public String upgradeLevelsAfter(String lastId, String toId) {
+        if (columnarScan) {
+            return upgradeBatchAfter(lastId, toId);
+        }
+
+        List<User> users = (toId == null) ? userDao.getAfter(lastId, chunkSize) : userDao.getRange(lastId, toId, chunkSize);
+        if (users.isEmpty()) {
+            return null;
+        }
+
+        upgradeUsers(users);
+        return users.get(users.size() - 1).getId();
+    }
+
+    private String upgradeBatchAfter(String lastId, String toId) {
+        ColumnarChunk chunk = columnarChunks.get();
+        UserBatch batch = chunk.batch;
+        if (userDao.getRange(lastId, toId, chunkSize, batch) == 0) { // getRange()가 batch를 비우고 채운다.
+            return null;
+        }
+
+        // 청크 전체를 한 번 훑어서 올라갈 레벨을 정해두고, 대상인 행만 User로 만든다.
+        int[] targets = chunk.targets(batch.size());
+        List<User> upgraded = new ArrayList<>(upgradePolicy.evaluate(batch, targets));
+        for (int row = 0; row < batch.size(); row++) {
+            if (targets[row] != 0) {
+                User user = batch.toUser(row);
+                upgradeLevel(user, Level.valueOf(targets[row]));
+                upgraded.add(user);
+            }
+        }
+
+        applyUpgrades(upgraded);
+        return batch.getId(batch.size() - 1);
+    }
+
+    /**
+     * 변경 로그에 쌓인 사용자만 청크 단위로 꺼내서 업그레이드한다. 바뀌지 않은 사용자는 지난 실행 때와 결과가 같으므로 건너뛰어도 된다.
+     * 이번 실행에서 업그레이드하면서 새로 쌓이는 로그는 다음 실행에서 처리하도록 시작 시점의 seq까지만 꺼낸다.
+     */
+    private void upgradeChangedLevels() {
+        long uptoSeq = userDao.getLastChangeSeq();
+        List<User> users;
+        while (!(users = userDao.pollChanged(uptoSeq, chunkSize)).isEmpty()) {
+            upgradeUsers(users);
+        }
+    }
 
+    private void upgradeUsers(List<User> users) {
+        // 업그레이드 대상을 모아뒀다가 청크마다 한 번의 배치 업데이트로 반영한다.
+        List<User> upgraded = new ArrayList<>();
         for (User user : users) {
-            if (canUpgradeLevel(user)) {
-                upgradeLevel(user);
+            Level target = upgradePolicy.getTargetLevel(user);
+            if (target != null) {
+                upgradeLevel(user, target);
+                upgraded.add(user);
             }
         }
+        applyUpgrades(upgraded);
     }
 
-    private boolean canUpgradeLevel(User user) {
-        Level currentLevel = user.getLevel();
+    /**
+     * 업그레이드한 사용자를 한 번에 반영한다. 읽은 뒤에 로그인 등으로 먼저 바뀐 사용자는 batchUpdate()가 반영하지 않고 version을 그대로 두므로,
+     * 그 사용자만 upgradeConflicted()로 다시 읽어서 처리한다.
+     */
+    private void applyUpgrades(List<User> upgraded) {
+        if (upgraded.isEmpty()) {
+            return;
+        }
+
+        int[] versions = new int[upgraded.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = upgraded.get(i).getVersion();
+        }
+
+        List<User> applied = upgraded;
+        try {
+            userDao.batchUpdate(upgraded);
+        } catch (OptimisticLockingFailureException e) {
+            applied = new ArrayList<>();
+            for (int i = 0; i < versions.length; i++) {
+                User user = upgraded.get(i);
+                if (user.getVersion() != versions[i]) {
+                    applied.add(user);
+                    continue;
+                }
+                User retried = upgradeConflicted(user.getId());
+                if (retried != null) {
+                    applied.add(retried);
+                }
+            }
+        }
 
-        switch (currentLevel) {
-            case BASIC: return (user.getLogin() >= MIN_LOGIN_COUNT_FOR_SILVER);
-            case SILVER: return (user.getRecommend() >= MIN_RECOMMEND_COUNT_FOR_GOLD);
-            case GOLD: return false;
-            default: throw new IllegalArgumentException("Unknown Level : " + currentLevel);
+        for (User user : applied) {
+            sendUpgradeEmail(user);
         }
     }
 
-    protected void upgradeLevel(User user) {
-        user.upgradeLevel();
-        userDao.update(user);
-        sendUpgradeEmail(user);
+    /**
+     * 최신 값을 다시 읽어서 업그레이드 조건을 확인하고 반영한다. 그 사이에 다른 작업자가 이미 올렸다면 조건이 달라지므로 두 번 올리지 않는다.
+     * 업그레이드하지 않았으면 null을 돌려준다.
+     */
+    private User upgradeConflicted(String id) {
+        for (int attempt = 1; ; attempt++) {
+            User user;
+            try {
+                user = userDao.getForUpdate(id);
+            } catch (EmptyResultDataAccessException e) {
+                return null;
+            }
+            Level target = upgradePolicy.getTargetLevel(user);
+            if (target == null) {
+                return null;
+            }
+
+            upgradeLevel(user, target);
+            try {
+                userDao.update(user);
+                return user;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxConflictRetries) {
+                    throw e;
+                }
+            }
+        }
     }
 
-    private void sendUpgradeEmail(User user) {
+    public List<String> getPartitionKeys(int partitions) {
+        return userDao.getPartitionKeys(partitions);
+    }
+
+    /**
+     * 메모리의 user 레벨을 upgradePolicy가 정한 target으로 바꾸는 훅. 예전에는 여기서 바로 update()하고 메일을 보냈지만, 지금은 DB 반영과 메일 발송을
+     * applyUpgrades()가 청크마다 모아서 처리한다. 재정의하는 쪽은 이 메서드가 끝났을 때 아직 DB에 쓰이지 않았다는 점에 주의한다.
+     */
+    protected void upgradeLevel(User user, Level target) {
+        if (target == null || target.intValue() <= user.getLevel().intValue()) {
+            throw new IllegalArgumentException(user.getId() + "을 " + user.getLevel() + "에서 " + target + "(으)로 올릴 수 없습니다.");
+        }
+        user.setLevel(target);
+    }
+
+    void sendUpgradeEmail(User user) {
         SimpleMailMessage mailMessage = new SimpleMailMessage();
         mailMessage.setTo(user.getEmail());
         mailMessage.setFrom("useradmin@sug.org");
@@ -66,4 +254,65 @@ public class UserServiceImpl implements UserService {
 
         userDao.add(user);
     }
+
+    public long importUsers(Iterator<User> users, ImportProgressListener listener) {
+        long start = System.nanoTime();
+        long imported = 0;
+        List<User> chunk = new ArrayList<>(chunkSize);
+
+        while (users.hasNext()) {
+            User user = users.next();
+            if (user.getLevel() == null) {
+                user.setLevel(Level.BASIC);
+            }
+            chunk.add(user);
+
+            if (chunk.size() == chunkSize || !users.hasNext()) {
+                addChunk(chunk);
+                imported += chunk.size();
+                chunk.clear(); // 넣은 청크는 버리므로 메모리에는 최대 chunkSize 명만 남는다.
+                if (listener != null) {
+                    listener.progress(imported, System.nanoTime() - start);
+                }
+            }
+        }
+        return imported;
+    }
+
+    public long importUsers(Reader csv, ImportProgressListener listener) {
+        return importUsers(new UserCsvReader(csv), listener);
+    }
+
+    private void addChunk(List<User> chunk) {
+        if (transactionManager == null) {
+            userDao.batchAdd(chunk);
+            return;
+        }
+
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            userDao.batchAdd(chunk);
+        } catch (RuntimeException e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+        transactionManager.commit(status);
+    }
+
+    private static class ColumnarChunk {
+        final UserBatch batch;
+        private int[] targets;
+
+        ColumnarChunk(int capacity) {
+            batch = new UserBatch(capacity);
+            targets = new int[capacity];
+        }
+
+        int[] targets(int size) {
+            if (targets.length < size) {
+                targets = new int[size];
+            }
+            return targets;
+        }
+    }
 }
@@ -1,15 +1,41 @@
 package org.example.user.service;
 
+import org.example.user.dao.CheckpointDao;
 import org.example.user.domain.User;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.support.DefaultTransactionDefinition;
 
-public class UserServiceTx implements UserService {
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class UserServiceTx implements UserService, UserUpgradeBatch {
     UserService userService;
 
     PlatformTransactionManager transactionManager;
 
+    // true이면 upgradeLevels()를 청크마다 별도의 트랜잭션으로 나눠서 커밋한다.
+    boolean commitPerChunk = false;
+
+    // 1보다 크면 사용자 id 공간을 parallelism 개의 범위로 나눠서 각각 다른 스레드와 트랜잭션으로 처리한다.
+    int parallelism = 1;
+
+    // 마지막으로 커밋된 청크의 마지막 id. 중간에 실패하면 다음 upgradeLevels() 호출이 여기서부터 이어서 처리한다.
+    private volatile String lastCommittedId;
+
+    // 설정하면 lastCommittedId를 청크와 같은 트랜잭션에서 저장해두므로 프로세스를 다시 시작해도 이어서 처리한다.
+    private CheckpointDao checkpointDao;
+    private String checkpointName = "upgradeLevels";
+
     public void setUserService(UserService userService) {
         this.userService = userService;
     }
@@ -18,13 +44,61 @@ public class UserServiceTx implements UserService {
         this.transactionManager = transactionManager;
     }
 
+    public void setCommitPerChunk(boolean commitPerChunk) {
+        this.commitPerChunk = commitPerChunk;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public void setCheckpointDao(CheckpointDao checkpointDao) {
+        this.checkpointDao = checkpointDao;
+    }
+
+    public void setCheckpointName(String checkpointName) {
+        this.checkpointName = checkpointName;
+    }
+
+    public void setResumeAfterId(String resumeAfterId) {
+        this.lastCommittedId = resumeAfterId;
+    }
+
+    public String getLastCommittedId() {
+        return lastCommittedId;
+    }
+
     @Override
     public void add(User user) {
         userService.add(user); // DI 받은 UserService에 기능을 위임한다.
     }
 
+    /**
+     * 큰 파일을 트랜잭션 하나로 넣으면 언두 로그와 락이 끝까지 쌓이므로 여기서는 트랜잭션을 시작하지 않는다.
+     * 청크마다 커밋하려면 위임받는 UserServiceImpl에 transactionManager를 설정한다.
+     */
+    @Override
+    public long importUsers(Iterator<User> users, ImportProgressListener listener) {
+        return userService.importUsers(users, listener);
+    }
+
+    @Override
+    public long importUsers(Reader csv, ImportProgressListener listener) {
+        return importUsers(new UserCsvReader(csv), listener);
+    }
+
     @Override
     public void upgradeLevels() {
+        if (parallelism > 1) {
+            upgradeLevelsInParallel();
+            return;
+        }
+
+        if (commitPerChunk) {
+            upgradeLevelsPerChunk();
+            return;
+        }
+
         TransactionStatus status = this.transactionManager.getTransaction(new DefaultTransactionDefinition());
 
         try {
@@ -35,4 +109,114 @@ public class UserServiceTx implements UserService {
             throw e;
         }
     }
+
+    private void upgradeLevelsPerChunk() {
+        String lastId = this.lastCommittedId;
+        if (lastId == null && checkpointDao != null) {
+            lastId = checkpointDao.getLastId(checkpointName);
+        }
+        while ((lastId = upgradeChunk(lastId, null, true)) != null) {
+            this.lastCommittedId = lastId;
+        }
+        this.lastCommittedId = null; // 끝까지 처리했으면 다음 실행은 처음부터 시작한다.
+    }
+
+    /**
+     * 파티션마다 워커 스레드 하나가 청크 단위로 트랜잭션을 커밋하며 처리한다.
+     * 한 파티션이 실패해도 나머지 파티션은 끝까지 처리하고, 실패한 파티션들을 모아서 PartitionedUpgradeException으로 알린다.
+     */
+    private void upgradeLevelsInParallel() {
+        List<String> keys = upgradeBatch().getPartitionKeys(parallelism);
+        List<String> bounds = new ArrayList<>();
+        bounds.add(null);
+        bounds.addAll(keys);
+        bounds.add(null);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, bounds.size() - 1));
+        try {
+            Map<String, Future<?>> partitions = new LinkedHashMap<>();
+            for (int i = 0; i < bounds.size() - 1; i++) {
+                final String fromId = bounds.get(i);
+                final String toId = bounds.get(i + 1);
+                partitions.put("(" + fromId + ", " + toId + "]", executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        String lastId = fromId;
+                        do {
+                            lastId = upgradeLevelsAfter(lastId, toId);
+                        } while (lastId != null);
+                        return null;
+                    }
+                }));
+            }
+
+            Map<String, Throwable> failures = new LinkedHashMap<>();
+            for (Map.Entry<String, Future<?>> partition : partitions.entrySet()) {
+                try {
+                    partition.getValue().get();
+                } catch (ExecutionException e) {
+                    failures.put(partition.getKey(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.put(partition.getKey(), e);
+                }
+            }
+
+            if (!failures.isEmpty()) {
+                PartitionedUpgradeException exception = new PartitionedUpgradeException(failures);
+                for (Throwable failure : failures.values()) {
+                    exception.addSuppressed(failure);
+                }
+                throw exception;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String upgradeLevelsAfter(String lastId) {
+        return upgradeLevelsAfter(lastId, null);
+    }
+
+    @Override
+    public String upgradeLevelsAfter(String lastId, String toId) {
+        return upgradeChunk(lastId, toId, false);
+    }
+
+    /**
+     * 한 청크를 트랜잭션 하나로 처리한다. checkpoint가 true이고 checkpointDao가 있으면 처리한 마지막 id를 같은 트랜잭션에서 저장한다.
+     */
+    private String upgradeChunk(String lastId, String toId, boolean checkpoint) {
+        UserUpgradeBatch upgradeBatch = upgradeBatch();
+        TransactionStatus status = this.transactionManager.getTransaction(new DefaultTransactionDefinition());
+
+        try {
+            String processedId = upgradeBatch.upgradeLevelsAfter(lastId, toId);
+            if (checkpoint && checkpointDao != null) {
+                checkpointDao.saveLastId(checkpointName, processedId); // 끝까지 처리했으면 null이므로 지운다.
+            }
+            this.transactionManager.commit(status);
+            return processedId;
+        } catch (RuntimeException e) {
+            this.transactionManager.rollback(status);
+            throw e;
+        }
+    }
+
+    @Override
+    public List<String> getPartitionKeys(int partitions) {
+        return upgradeBatch().getPartitionKeys(partitions);
+    }
+
+    /**
+     * 청크, 파티션 단위 실행은 DI 받은 UserService가 UserUpgradeBatch도 구현해야 한다.
+     */
+    private UserUpgradeBatch upgradeBatch() {
+        if (!(userService instanceof UserUpgradeBatch)) {
+            throw new IllegalStateException("청크나 파티션으로 나눠서 업그레이드하려면 UserUpgradeBatch를 구현한 UserService가 필요합니다: "
+                    + userService.getClass().getName());
+        }
+        return (UserUpgradeBatch) userService;
+    }
 }
@@ -0,0 +1,25 @@
+package org.example.user.service;
+
+import java.util.List;
+
+/**
+ * upgradeLevels()를 청크나 파티션으로 나눠서 실행하는 UserServiceTx가 쓰는 배치 전용 연산.
+ * UserService에 두면 서비스 프록시와 트랜잭션 규칙에 모두 드러나므로 따로 분리한다.
+ */
+public interface UserUpgradeBatch {
+    /**
+     * id 순서로 lastId 다음 사용자들을 한 청크만큼 업그레이드한다.
+     * 처리한 마지막 사용자의 id를 돌려주며, 더 이상 처리할 사용자가 없으면 null을 돌려준다.
+     */
+    String upgradeLevelsAfter(String lastId);
+
+    /**
+     * upgradeLevelsAfter()와 같지만 id가 toId 이하인 사용자까지만 처리한다. toId가 null이면 끝까지 처리한다.
+     */
+    String upgradeLevelsAfter(String lastId, String toId);
+
+    /**
+     * 병렬 업그레이드를 위해 사용자 id 공간을 partitions 개의 범위로 나누는 경계값을 돌려준다.
+     */
+    List<String> getPartitionKeys(int partitions);
+}
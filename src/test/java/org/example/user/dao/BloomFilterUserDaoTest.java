@@ -0,0 +1,192 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class BloomFilterUserDaoTest extends UserDaoTest {
+    @Override
+    protected UserDao userDao() {
+        BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(new InMemoryUserDao());
+        bloomFilterUserDao.setExpectedInsertions(1000);
+        bloomFilterUserDao.rebuild();
+        return bloomFilterUserDao;
+    }
+
+    @Test
+    public void skipDatabaseForDefiniteMiss() {
+        UserDao target = spy(new InMemoryUserDao());
+        target.add(new User("stored", "유저", "p1", Level.BASIC, 0, 0, null));
+        BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(target);
+        bloomFilterUserDao.rebuild();
+        bloomFilterUserDao.add(new User("added", "유저", "p1", Level.BASIC, 0, 0, null));
+
+        assertThat(bloomFilterUserDao.exists("stored"), is(true));
+        assertThat(bloomFilterUserDao.find("added").isPresent(), is(true));
+        assertThat(bloomFilterUserDao.exists("unknown"), is(false));
+        assertThat(bloomFilterUserDao.find("unknown").isPresent(), is(false));
+        try {
+            bloomFilterUserDao.get("unknown");
+            fail();
+        } catch (EmptyResultDataAccessException expected) {
+        }
+
+        verify(target, never()).exists("unknown");
+        verify(target, never()).find("unknown");
+        verify(target, never()).get("unknown");
+        assertThat(bloomFilterUserDao.getSkippedCount(), is(3L));
+    }
+
+    @Test
+    public void measureFalsePositiveRate() {
+        BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(new InMemoryUserDao());
+        bloomFilterUserDao.setExpectedInsertions(10000);
+        bloomFilterUserDao.setFalsePositiveProbability(0.01);
+        bloomFilterUserDao.rebuild();
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            users.add(new User(String.format("u%07d", i), "유저" + i, "p1", Level.BASIC, 0, 0, null));
+        }
+        bloomFilterUserDao.batchAdd(users);
+
+        int lookups = 100000;
+        for (int i = 0; i < lookups; i++) {
+            assertThat(bloomFilterUserDao.exists(String.format("x%07d", i)), is(false));
+        }
+
+        // 없는 id 중에서 필터를 통과해 DB까지 간 비율이 오탐률이다.
+        double falsePositiveRate = (double) bloomFilterUserDao.getPassedCount() / lookups;
+        assertThat(falsePositiveRate, greaterThan(0.0));
+        assertThat(falsePositiveRate, lessThan(0.015));
+    }
+
+    @Test
+    public void growWhenSaturated() throws InterruptedException {
+        ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor();
+        BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(new InMemoryUserDao());
+        bloomFilterUserDao.setExpectedInsertions(100);
+        bloomFilterUserDao.setRebuildExecutor(rebuildExecutor);
+        bloomFilterUserDao.rebuild();
+
+        for (int i = 0; i < 1000; i++) {
+            bloomFilterUserDao.add(new User(String.format("u%07d", i), "유저" + i, "p1", Level.BASIC, 0, 0, null));
+        }
+        rebuildExecutor.shutdown(); // 다시 만드는 작업은 add()를 호출한 스레드가 아니라 rebuildExecutor에서 돈다.
+        assertThat(rebuildExecutor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        for (int i = 0; i < 1000; i++) {
+            assertThat(bloomFilterUserDao.exists(String.format("u%07d", i)), is(true));
+        }
+
+        int lookups = 10000;
+        for (int i = 0; i < lookups; i++) {
+            bloomFilterUserDao.exists(String.format("x%07d", i));
+        }
+        assertThat((double) (bloomFilterUserDao.getPassedCount() - 1000) / lookups, lessThan(0.03));
+    }
+
+    @Test
+    public void keepUsersAddedWhileRebuilding() throws InterruptedException {
+        final CountDownLatch scanning = new CountDownLatch(1);
+        final CountDownLatch added = new CountDownLatch(1);
+        final AtomicBoolean blockNextScan = new AtomicBoolean();
+        // 스캔을 시작한 시점의 사용자만 돌려주는 DB처럼, 스캔 중에 추가된 사용자는 새 필터를 만드는 스캔에 나오지 않는다.
+        InMemoryUserDao target = new InMemoryUserDao() {
+            @Override
+            public void forEach(UserCallback callback) {
+                if (!blockNextScan.getAndSet(false)) {
+                    super.forEach(callback);
+                    return;
+                }
+                List<User> snapshot = getAll();
+                scanning.countDown();
+                try {
+                    added.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (User user : snapshot) {
+                    callback.doWithUser(user);
+                }
+            }
+        };
+        target.add(new User("stored", "유저", "p1", Level.BASIC, 0, 0, null));
+        final BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(target);
+        bloomFilterUserDao.setExpectedInsertions(1000);
+        bloomFilterUserDao.rebuild();
+
+        blockNextScan.set(true);
+        Thread rebuild = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                bloomFilterUserDao.rebuild();
+            }
+        });
+        rebuild.start();
+        assertThat(scanning.await(5, TimeUnit.SECONDS), is(true));
+        bloomFilterUserDao.add(new User("late", "유저", "p1", Level.BASIC, 0, 0, null));
+        added.countDown();
+        rebuild.join(5000);
+
+        // 새 필터에도 들어 있어서 있는 사용자를 없다고 하지 않는다.
+        assertThat(bloomFilterUserDao.exists("late"), is(true));
+        assertThat(bloomFilterUserDao.exists("stored"), is(true));
+        assertThat(bloomFilterUserDao.getSkippedCount(), is(0L));
+    }
+
+    @Test
+    public void rebuildOneAtATime() throws InterruptedException {
+        final AtomicInteger scans = new AtomicInteger();
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        InMemoryUserDao target = new InMemoryUserDao() {
+            @Override
+            public void forEach(UserCallback callback) {
+                if (scans.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                try {
+                    Thread.sleep(30);
+                    super.forEach(callback);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    scans.decrementAndGet();
+                }
+            }
+        };
+        final BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(target);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    bloomFilterUserDao.rebuild();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+        assertThat(overlapped.get(), is(false));
+    }
+}
@@ -0,0 +1,154 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CachingUserDaoTest {
+    private UserDao mockUserDao;
+    private CachingUserDao cachingUserDao;
+    private User user1;
+    private User user2;
+
+    @Before
+    public void setUp() {
+        user1 = new User("user1", "유저1", "1234", Level.BASIC, 1, 0, "kimhunsope@kakao.com");
+        user2 = new User("user2", "유저2", "1234", Level.SILVER, 55, 10, "kimhunsope@kakao.com");
+
+        mockUserDao = mock(UserDao.class);
+        when(mockUserDao.get("user1")).thenReturn(user1);
+        when(mockUserDao.get("user2")).thenReturn(user2);
+        when(mockUserDao.getCount()).thenReturn(2);
+
+        cachingUserDao = new CachingUserDao(mockUserDao);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void getHitsCache() {
+        cachingUserDao.get("user1");
+        cachingUserDao.get("user1");
+        cachingUserDao.get("user1");
+
+        verify(mockUserDao, times(1)).get("user1");
+        assertThat(cachingUserDao.getMissCount(), is(1L));
+        assertThat(cachingUserDao.getHitCount(), is(2L));
+    }
+
+    @Test
+    public void cachedUserIsNotSharedWithCaller() {
+        User read = cachingUserDao.get("user1");
+        read.upgradeLevel(); // 꺼내간 쪽에서 바꿔도 캐시에는 영향이 없어야 한다.
+
+        assertThat(cachingUserDao.get("user1").getLevel(), is(Level.BASIC));
+    }
+
+    @Test
+    public void updateInvalidates() {
+        cachingUserDao.get("user1");
+        cachingUserDao.update(user1);
+        cachingUserDao.get("user1");
+
+        verify(mockUserDao, times(2)).get("user1");
+    }
+
+    @Test
+    public void countIsCachedUntilAddOrDeleteAll() {
+        assertThat(cachingUserDao.getCount(), is(2));
+        assertThat(cachingUserDao.getCount(), is(2));
+        verify(mockUserDao, times(1)).getCount();
+
+        cachingUserDao.add(new User("user3", "유저3", "1234", Level.GOLD, 100, 40, "kimhunsope@kakao.com"));
+        cachingUserDao.getCount();
+        verify(mockUserDao, times(2)).getCount();
+
+        cachingUserDao.deleteAll();
+        cachingUserDao.getCount();
+        verify(mockUserDao, times(3)).getCount();
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        cachingUserDao.setMaxSize(1);
+
+        cachingUserDao.get("user1");
+        cachingUserDao.get("user2"); // user1이 밀려난다.
+        cachingUserDao.get("user1");
+
+        verify(mockUserDao, times(2)).get("user1");
+        assertThat(cachingUserDao.getEvictionCount(), is(2L));
+        assertThat(cachingUserDao.getSize(), is(1));
+    }
+
+    @Test
+    public void expireAfterTtl() throws InterruptedException {
+        cachingUserDao.setTtlMillis(10);
+
+        cachingUserDao.get("user1");
+        Thread.sleep(20);
+        cachingUserDao.get("user1");
+
+        verify(mockUserDao, times(2)).get("user1");
+    }
+
+    @Test
+    public void readInTransactionIsNotCached() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        cachingUserDao.get("user1");
+        cachingUserDao.getCount();
+        assertThat(cachingUserDao.getSize(), is(0));
+
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        cachingUserDao.get("user1");
+        cachingUserDao.getCount();
+        assertThat(cachingUserDao.getSize(), is(1));
+        verify(mockUserDao, times(2)).get("user1");
+        verify(mockUserDao, times(2)).getCount();
+    }
+
+    @Test
+    public void readYourWritesInTransaction() {
+        cachingUserDao.get("user1");
+        cachingUserDao.get("user2");
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        cachingUserDao.update(user1);
+        cachingUserDao.get("user2"); // 이 트랜잭션에서 바꾸지 않은 사용자는 캐시에서 읽는다.
+        cachingUserDao.get("user1");
+        cachingUserDao.get("user1");
+        verify(mockUserDao, times(1)).get("user2");
+        verify(mockUserDao, times(3)).get("user1");
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+
+        assertThat(TransactionSynchronizationManager.hasResource(cachingUserDao), is(false));
+        cachingUserDao.get("user1");
+        cachingUserDao.get("user1");
+        verify(mockUserDao, times(4)).get("user1");
+    }
+}
@@ -0,0 +1,266 @@
+package org.example.user.dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class ConnectionPoolTest {
+    private CountingConnectionMaker connectionMaker;
+    private List<Connection> physicalConnections = new ArrayList<>();
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        // 목 커넥션을 만들어주는 ConnectionMaker로 실제 DB 없이 풀의 동작만 검증한다.
+        connectionMaker = new CountingConnectionMaker(new ConnectionMaker() {
+            @Override
+            public Connection makeConnection() throws SQLException {
+                Connection c = mock(Connection.class);
+                when(c.isValid(anyInt())).thenReturn(true);
+                when(c.getAutoCommit()).thenReturn(true);
+                when(c.prepareStatement(anyString())).thenAnswer(new Answer<PreparedStatement>() {
+                    @Override
+                    public PreparedStatement answer(InvocationOnMock invocation) {
+                        return mock(PreparedStatement.class);
+                    }
+                });
+                physicalConnections.add(c);
+                return c;
+            }
+        });
+
+        pool = new ConnectionPool(connectionMaker);
+        pool.setMaxTotal(2);
+        pool.setMaxWaitMillis(100);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void reuseReturnedConnection() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Connection c = pool.getConnection();
+            c.close();
+        }
+
+        assertThat(connectionMaker.getCounter(), is(1));
+        assertThat(pool.getIdleCount(), is(1));
+    }
+
+    @Test
+    public void closeReturnsToPoolInsteadOfClosingPhysical() throws Exception {
+        Connection c = pool.getConnection();
+        c.close();
+
+        assertThat(c.isClosed(), is(true));
+        assertThat(pool.getTotalCount(), is(1));
+    }
+
+    @Test(expected = SQLException.class)
+    public void useAfterClose() throws Exception {
+        Connection c = pool.getConnection();
+        c.close();
+
+        c.createStatement();
+    }
+
+    @Test
+    public void waitTimeoutWhenExhausted() throws Exception {
+        pool.getConnection();
+        pool.getConnection();
+
+        try {
+            pool.getConnection();
+            fail("SQLTransientConnectionException expected");
+        } catch (SQLTransientConnectionException e) {
+        }
+
+        assertThat(connectionMaker.getCounter(), is(2));
+    }
+
+    @Test
+    public void waiterGetsReturnedConnection() throws Exception {
+        pool.setMaxWaitMillis(2000);
+        final Connection c1 = pool.getConnection();
+        pool.getConnection();
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                    c1.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }).start();
+
+        Connection c3 = pool.getConnection();
+        assertThat(c3, is(not(sameInstance(c1))));
+        assertThat(connectionMaker.getCounter(), is(2));
+    }
+
+    @Test
+    public void discardInvalidConnectionOnBorrow() throws Exception {
+        pool.getConnection().close();
+        Connection physical = physicalConnections.get(0);
+
+        when(physical.isValid(anyInt())).thenReturn(false);
+        pool.getConnection();
+
+        verify(physical).close();
+        assertThat(connectionMaker.getCounter(), is(2));
+        assertThat(pool.getTotalCount(), is(1));
+    }
+
+    @Test
+    public void evictIdleConnections() throws Exception {
+        pool.setIdleTimeoutMillis(0);
+        pool.setMinIdle(1);
+
+        Connection c1 = pool.getConnection();
+        Connection c2 = pool.getConnection();
+        c1.close();
+        c2.close();
+        assertThat(pool.getIdleCount(), is(2));
+
+        pool.evict();
+
+        assertThat(pool.getIdleCount(), is(1));
+        assertThat(pool.getTotalCount(), is(1));
+    }
+
+    @Test
+    public void initFillsMinIdle() throws Exception {
+        pool.setMinIdle(2);
+        pool.init();
+
+        assertThat(connectionMaker.getCounter(), is(2));
+        assertThat(pool.getIdleCount(), is(2));
+
+        pool.getConnection().close(); // 미리 만든 커넥션을 내준다.
+        assertThat(connectionMaker.getCounter(), is(2));
+    }
+
+    @Test
+    public void reusePreparedStatementPerConnection() throws Exception {
+        pool.setStatementCacheSize(2);
+
+        Connection c = pool.getConnection();
+        PreparedStatement ps1 = c.prepareStatement("select a");
+        ps1.setString(1, "x");
+        ps1.close();
+        assertThat(ps1.isClosed(), is(true));
+        c.close();
+
+        c = pool.getConnection(); // 같은 물리 커넥션이면 반납한 뒤에도 캐시가 남아 있다.
+        PreparedStatement ps2 = c.prepareStatement("select a");
+        ps2.close();
+
+        Connection physical = physicalConnections.get(0);
+        verify(physical, times(1)).prepareStatement("select a");
+        assertThat(pool.getStatementCacheHits(), is(1L));
+        assertThat(pool.getStatementCacheMisses(), is(1L));
+    }
+
+    @Test
+    public void closeLeastRecentlyUsedStatement() throws Exception {
+        pool.setStatementCacheSize(2);
+        Connection c = pool.getConnection();
+        Connection physical = physicalConnections.get(0);
+
+        c.prepareStatement("select a").close();
+        c.prepareStatement("select b").close();
+        c.prepareStatement("select a").close();
+        c.prepareStatement("select c").close(); // 가장 오래 안 쓴 b를 닫는다.
+        c.prepareStatement("select a").close();
+        c.prepareStatement("select b").close();
+
+        verify(physical, times(1)).prepareStatement("select a");
+        verify(physical, times(2)).prepareStatement("select b");
+        assertThat(pool.getStatementCacheHits(), is(2L));
+    }
+
+    @Test
+    public void prepareSameSqlWhileInUse() throws Exception {
+        pool.setStatementCacheSize(2);
+        Connection c = pool.getConnection();
+        Connection physical = physicalConnections.get(0);
+
+        PreparedStatement outer = c.prepareStatement("select a");
+        PreparedStatement inner = c.prepareStatement("select a"); // 아직 쓰고 있으므로 캐시한 것을 내주면 안 된다.
+        inner.close();
+        outer.close();
+
+        verify(physical, times(2)).prepareStatement("select a");
+        verify(inner).close(); // 캐시하지 않은 문장은 그대로 닫는다.
+    }
+
+    @Test
+    public void restoreStatementOptionsOnClose() throws Exception {
+        pool.setStatementCacheSize(2);
+        Connection c = pool.getConnection();
+        Connection physical = physicalConnections.get(0);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        when(statement.getFetchSize()).thenReturn(0);
+        when(statement.getFetchDirection()).thenReturn(ResultSet.FETCH_FORWARD);
+        when(physical.prepareStatement("select a")).thenReturn(statement);
+
+        PreparedStatement streaming = c.prepareStatement("select a");
+        streaming.setFetchSize(Integer.MIN_VALUE); // MySQL 스트리밍
+        streaming.setQueryTimeout(5);
+        streaming.close();
+
+        // 같은 SQL을 다음에 빌려가는 쪽은 처음 옵션으로 실행한다.
+        verify(statement).setFetchSize(0);
+        verify(statement).setFetchDirection(ResultSet.FETCH_FORWARD);
+        verify(statement).setQueryTimeout(0);
+        c.prepareStatement("select a").close();
+        assertThat(pool.getStatementCacheHits(), is(1L));
+        verify(statement, times(1)).setFetchSize(0); // 옵션을 바꾸지 않았으면 되돌리지 않는다.
+    }
+
+    @Test
+    public void closeResultSetWithCachedStatement() throws Exception {
+        pool.setStatementCacheSize(2);
+        Connection c = pool.getConnection();
+        Connection physical = physicalConnections.get(0);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(physical.prepareStatement("select a", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        PreparedStatement ps = c.prepareStatement("select a", ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        ps.executeQuery();
+        ps.close();
+
+        verify(resultSet).close();
+        verify(statement, never()).close();
+
+        // 기본 옵션으로 준비한 같은 SQL은 같은 문장이고, 옵션이 다르면 다른 문장이다.
+        c.prepareStatement("select a").close();
+        assertThat(pool.getStatementCacheHits(), is(1L));
+        c.prepareStatement("select a", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        assertThat(pool.getStatementCacheMisses(), is(2L));
+    }
+}
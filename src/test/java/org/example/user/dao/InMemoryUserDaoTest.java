@@ -0,0 +1,102 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class InMemoryUserDaoTest extends UserDaoTest {
+    private File file;
+    private InMemoryUserDao persistentDao;
+
+    @Override
+    protected UserDao userDao() {
+        return new InMemoryUserDao();
+    }
+
+    @After
+    public void tearDown() {
+        if (persistentDao != null) {
+            persistentDao.close();
+        }
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void storedUserIsNotChangedByCaller() {
+        User user = new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, null);
+        dao.add(user);
+
+        user.setLevel(Level.GOLD);
+        dao.get("hoon").setLevel(Level.SILVER);
+
+        assertThat(dao.get("hoon").getLevel(), is(Level.BASIC));
+    }
+
+    @Test
+    public void duplicateIdInOneBatchAddsNothing() {
+        User first = new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, null);
+        User second = new User("hoon", "두번째", "p1234", Level.BASIC, 1, 0, null);
+        try {
+            dao.batchAdd(Arrays.asList(first, second));
+            fail("DuplicateKeyException expected");
+        } catch (DuplicateKeyException e) {
+        }
+
+        assertThat(dao.getCount(), is(0));
+    }
+
+    @Test
+    public void restoreFromFile() throws IOException {
+        file = File.createTempFile("users", ".log");
+        persistentDao = new InMemoryUserDao(file);
+        persistentDao.batchAdd(Arrays.asList(
+                new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, null),
+                new User("min", "민", "p1234", Level.SILVER, 60, 10, "c@kakao.com")));
+        persistentDao.deleteAll();
+        persistentDao.add(new User("young", "영", "p1234", Level.BASIC, 1, 0, "d@kakao.com"));
+        User young = persistentDao.get("young");
+        young.setLevel(Level.GOLD);
+        persistentDao.update(young);
+        persistentDao.close();
+
+        persistentDao = new InMemoryUserDao(file);
+
+        assertThat(persistentDao.getCount(), is(1));
+        assertThat(persistentDao.get("young").getLevel(), is(Level.GOLD));
+        assertThat(persistentDao.get("young").getEmail(), is("d@kakao.com"));
+    }
+
+    @Test
+    public void dropTornRecordOnRestore() throws IOException {
+        file = File.createTempFile("users", ".log");
+        persistentDao = new InMemoryUserDao(file);
+        persistentDao.add(new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, null));
+        persistentDao.add(new User("min", "민", "p1234", Level.SILVER, 60, 10, null));
+        persistentDao.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 3); // 마지막 기록을 쓰다가 죽은 상황
+        }
+
+        persistentDao = new InMemoryUserDao(file);
+        assertThat(persistentDao.getCount(), is(1));
+
+        persistentDao.add(new User("young", "영", "p1234", Level.BASIC, 1, 0, null)); // 잘린 부분 뒤에 이어 쓰지 않는다.
+        persistentDao.close();
+        persistentDao = new InMemoryUserDao(file);
+        assertThat(persistentDao.getCount(), is(2));
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.user.dao;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+public class InstrumentedConnectionMakerTest {
+    private CountingConnectionMaker connectionMaker;
+    private InstrumentedConnectionMaker instrumented;
+
+    @Before
+    public void setUp() {
+        connectionMaker = new CountingConnectionMaker(new ConnectionMaker() {
+            @Override
+            public Connection makeConnection() {
+                return mock(Connection.class);
+            }
+        });
+        instrumented = new InstrumentedConnectionMaker(connectionMaker);
+    }
+
+    @Test
+    public void recordOpenCloseAndStatements() throws Exception {
+        Connection c = instrumented.getConnection();
+        c.prepareStatement("select 1");
+        c.createStatement();
+        c.close();
+        c.close(); // 두 번 닫아도 한 번만 기록한다.
+
+        ConnectionUsageSnapshot snapshot = instrumented.snapshot();
+        assertThat(snapshot.getOpenedCount(), is(1L));
+        assertThat(snapshot.getClosedCount(), is(1L));
+        assertThat(snapshot.getActiveCount(), is(0L));
+        assertThat(snapshot.getStatementsPerConnection().getMax(), is(2L));
+        assertThat(snapshot.getHeldNanos().getCount(), is(1L));
+        assertThat(snapshot.getAcquireNanos().getCount(), is(1L));
+    }
+
+    @Test
+    public void detectLeakWithStackTrace() throws Exception {
+        instrumented.setLeakThresholdMillis(0);
+
+        instrumented.getConnection(); // 닫지 않는다.
+
+        ConnectionUsageSnapshot snapshot = instrumented.snapshot();
+        assertThat(snapshot.getLeakedCount(), is(1L));
+        assertThat(snapshot.getLeaks().size(), is(1));
+        assertThat(snapshot.getLeaks().get(0).toString(), containsString("detectLeakWithStackTrace"));
+
+        instrumented.snapshot(); // 같은 누수는 다시 세지 않는다.
+        assertThat(instrumented.getLeakedCount(), is(1L));
+    }
+
+    @Test
+    public void countAcquireFailure() {
+        instrumented.setConnectionMaker(new ConnectionMaker() {
+            @Override
+            public Connection makeConnection() throws SQLException {
+                throw new SQLException("down");
+            }
+        });
+
+        try {
+            instrumented.getConnection();
+        } catch (SQLException expected) {
+        }
+
+        assertThat(instrumented.getAcquireFailureCount(), is(1L));
+        assertThat(instrumented.getOpenedCount(), is(0L));
+    }
+
+    @Test
+    public void countConcurrently() throws Exception {
+        final int threads = 8;
+        final int perThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (int j = 0; j < perThread; j++) {
+                        Connection c = instrumented.getConnection();
+                        c.createStatement();
+                        c.close();
+                    }
+                    return null;
+                }
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(connectionMaker.getCounter(), is(threads * perThread));
+        assertThat(instrumented.getOpenedCount(), is((long) threads * perThread));
+        assertThat(instrumented.getClosedCount(), is((long) threads * perThread));
+        assertThat(instrumented.snapshot().getStatementsPerConnection().getSum(), is((long) threads * perThread));
+    }
+
+    @Test
+    public void exposeThroughJmx() throws Exception {
+        instrumented.setObjectName("org.example.user:type=ConnectionUsage,name=test");
+        instrumented.start();
+        try {
+            instrumented.getConnection().close();
+
+            Object opened = ManagementFactory.getPlatformMBeanServer()
+                    .getAttribute(new ObjectName("org.example.user:type=ConnectionUsage,name=test"), "OpenedCount");
+            assertThat(opened, is((Object) 1L));
+        } finally {
+            instrumented.close();
+        }
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getCount(), is(1000L));
+        assertThat(snapshot.getMax(), is(1000000L));
+        assertThat(withinEighth(snapshot.getPercentile(50), 500000), is(true));
+        assertThat(withinEighth(snapshot.getPercentile(99), 990000), is(true));
+        assertThat(snapshot.getPercentile(100), is(1000000L));
+    }
+
+    private boolean withinEighth(long actual, long expected) {
+        return Math.abs(actual - expected) <= expected / 8;
+    }
+}
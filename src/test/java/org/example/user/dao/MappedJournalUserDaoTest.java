@@ -0,0 +1,132 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class MappedJournalUserDaoTest extends UserDaoTest {
+    private File file;
+    private MappedJournalUserDao mappedDao;
+
+    @Override
+    protected UserDao userDao() {
+        try {
+            file = File.createTempFile("users", ".journal");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        mappedDao = new MappedJournalUserDao(file, 4096);
+        return mappedDao;
+    }
+
+    @After
+    public void tearDown() {
+        mappedDao.close();
+        file.delete();
+    }
+
+    @Test
+    public void restoreFromFile() {
+        mappedDao.batchAdd(Arrays.asList(
+                new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, null),
+                new User("min", "민", "p1234", Level.SILVER, 60, 10, "c@kakao.com")));
+        mappedDao.deleteAll();
+        mappedDao.add(new User("young", "영", "p1234", Level.BASIC, 1, 0, "d@kakao.com"));
+        User young = mappedDao.get("young");
+        young.setLevel(Level.GOLD);
+        mappedDao.update(young);
+        mappedDao.close();
+
+        mappedDao = new MappedJournalUserDao(file, 4096);
+
+        assertThat(mappedDao.getCount(), is(1));
+        assertThat(mappedDao.get("young").getLevel(), is(Level.GOLD));
+        assertThat(mappedDao.get("young").getEmail(), is("d@kakao.com"));
+
+        final int[] basicUsers = new int[1];
+        mappedDao.forEach(Level.BASIC, new UserCallback() {
+            @Override
+            public void doWithUser(User user) {
+                basicUsers[0]++;
+            }
+        });
+        assertThat(basicUsers[0], is(0));
+    }
+
+    @Test
+    public void rejectValueLongerThanLengthPrefix() {
+        char[] name = new char[Short.MAX_VALUE / 3 + 1];
+        Arrays.fill(name, '훈'); // UTF-8로 3바이트씩이므로 Short.MAX_VALUE 바이트를 넘는다.
+        try {
+            mappedDao.batchAdd(Arrays.asList(
+                    new User("min", "민", "p1234", Level.SILVER, 60, 10, null),
+                    new User("hoon", new String(name), "p1234", Level.BASIC, 1, 0, null)));
+            fail("DataIntegrityViolationException expected");
+        } catch (DataIntegrityViolationException e) {
+        }
+
+        assertThat(mappedDao.getCount(), is(0));
+        mappedDao.close();
+        mappedDao = new MappedJournalUserDao(file, 4096);
+        assertThat(mappedDao.getCount(), is(0));
+    }
+
+    @Test
+    public void dropTornRecordOnRestore() throws IOException {
+        mappedDao.add(new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, null));
+        long end = mappedDao.getLiveBytes();
+        mappedDao.add(new User("min", "민", "p1234", Level.SILVER, 60, 10, null));
+        mappedDao.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(end + 20);
+            raf.write(0x7f); // 마지막 레코드를 쓰다가 죽은 상황
+        }
+
+        mappedDao = new MappedJournalUserDao(file, 4096);
+        assertThat(mappedDao.getCount(), is(1));
+
+        mappedDao.add(new User("young", "영", "p1234", Level.BASIC, 1, 0, null));
+        mappedDao.close();
+        mappedDao = new MappedJournalUserDao(file, 4096);
+        assertThat(mappedDao.getCount(), is(2));
+        assertThat(mappedDao.get("young").getName(), is("영"));
+    }
+
+    @Test
+    public void growAndCompact() {
+        mappedDao.setMinCompactionBytes(16 * 1024);
+        for (int i = 0; i < 100; i++) {
+            mappedDao.add(new User(String.format("user%03d", i), "유저" + i, "p1234", Level.BASIC, 0, 0, null));
+        }
+        long liveBytes = mappedDao.getLiveBytes();
+
+        for (int login = 1; login <= 10; login++) {
+            for (User user : mappedDao.getAll()) {
+                user.setLogin(login);
+                mappedDao.update(user);
+            }
+        }
+
+        assertThat(mappedDao.getLiveBytes(), is(liveBytes));
+        assertThat(mappedDao.getDeadBytes(), lessThan(liveBytes + 16 * 1024));
+        assertThat(file.length(), lessThan(64 * 1024L));
+
+        mappedDao.close();
+        mappedDao = new MappedJournalUserDao(file, 4096);
+        assertThat(mappedDao.getCount(), is(100));
+        assertThat(mappedDao.get("user042").getLogin(), is(10));
+    }
+}
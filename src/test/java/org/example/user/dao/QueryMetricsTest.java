@@ -0,0 +1,118 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = "/test-applicationContext.xml")
+public class QueryMetricsTest {
+    @Autowired
+    private DataSource dataSource;
+
+    private UserDaoJdbc dao;
+    private QueryMetrics queryMetrics;
+    private final List<String> slowQueryLogs = new ArrayList<>();
+    private final Handler slowQueryHandler = new Handler() {
+        @Override
+        public void publish(LogRecord record) {
+            slowQueryLogs.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Before
+    public void setUp() {
+        queryMetrics = new QueryMetrics();
+        dao = new UserDaoJdbc();
+        dao.setJdbcTemplate(dataSource);
+        dao.setQueryMetrics(queryMetrics);
+        Logger.getLogger(QueryMetrics.class.getName()).addHandler(slowQueryHandler);
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getLogger(QueryMetrics.class.getName()).removeHandler(slowQueryHandler);
+    }
+
+    @Test
+    public void recordPerMethod() {
+        dao.deleteAll();
+        dao.add(new User("user1", "유저1", "secret1", Level.BASIC, 1, 0, "a@kakao.com"));
+        dao.add(new User("user2", "유저2", "secret2", Level.SILVER, 55, 10, "b@kakao.com"));
+        dao.get("user1");
+        dao.getAll();
+        dao.getCount();
+        try {
+            dao.get("unknown");
+            fail("EmptyResultDataAccessException expected");
+        } catch (EmptyResultDataAccessException e) {
+        }
+
+        assertThat(queryMetrics.getStats("add").getCalls(), is(2L));
+        assertThat(queryMetrics.getStats("add").getRows(), is(2L));
+        assertThat(queryMetrics.getStats("getAll").getRows(), is(2L));
+        assertThat(queryMetrics.getStats("get").getCalls(), is(2L));
+        assertThat(queryMetrics.getStats("get").getErrors(), is(1L));
+        assertThat(queryMetrics.getStats("getCount").getCalls(), is(1L));
+        assertThat(queryMetrics.toString(), containsString("p999="));
+    }
+
+    @Test
+    public void slowQueryLogMasksPassword() {
+        queryMetrics.setSlowQueryThresholdMillis(0);
+
+        dao.deleteAll();
+        dao.add(new User("user1", "유저1", "secret1", Level.BASIC, 1, 0, "a@kakao.com"));
+        User user = dao.get("user1");
+        user.setPassword("secret2");
+        dao.update(user);
+
+        assertThat(slowQueryLogs.size(), is(4));
+        for (String log : slowQueryLogs) {
+            assertThat(log, not(containsString("secret")));
+        }
+        assertThat(slowQueryLogs.get(1), containsString("[user1, 유저1, ****, 1, 1, 0, a@kakao.com, 0]"));
+        assertThat(slowQueryLogs.get(3), containsString("[유저1, ****, 1, 1, 0, a@kakao.com, user1, 0]"));
+        assertThat(queryMetrics.getStats("update").getSlowQueries(), is(1L));
+    }
+
+    @Test
+    public void maskByComparedColumn() {
+        assertThat(queryMetrics.maskedArguments("select id from users where password = ? and id = ?", new Object[] {"secret", "user1"}),
+                is("[****, user1]"));
+    }
+
+    @Test
+    public void maskEveryRowOfMultiRowInsert() {
+        assertThat(queryMetrics.maskedArguments("insert into users(id, password) values(?, ?), (?, ?)", new Object[] {"user1", "s1", "user2", "s2"}),
+                is("[user1, ****, user2, ****]"));
+    }
+}
@@ -0,0 +1,234 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.*;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = "/replica-test-applicationContext.xml")
+public class ReplicaRoutingDataSourceTest {
+    private UserDao userDao;
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("primary")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replica0")
+    private DataSource replica0;
+
+    @Autowired
+    @Qualifier("replica1")
+    private DataSource replica1;
+
+    @Before
+    public void setUp() {
+        // DB마다 이름이 다른 같은 사용자를 넣어두고 읽은 이름으로 어느 DB에서 읽었는지 확인한다.
+        mark(primary, "primary");
+        mark(replica0, "replica0");
+        mark(replica1, "replica1");
+
+        // 원본에 붙어 있는 기간(read-your-writes)이 다음 테스트로 넘어가지 않도록 테스트마다 새로 만든다.
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setPrimary(primary);
+        routing.setReplicas(Arrays.asList(replica0, replica1));
+        routing.setMaxReplicationLagMillis(100);
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        UserDaoJdbc userDaoJdbc = new UserDaoJdbc();
+        userDaoJdbc.setJdbcTemplate(dataSource);
+        userDao = userDaoJdbc;
+    }
+
+    private static void mark(DataSource dataSource, String name) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("delete from users");
+        jdbcTemplate.update("insert into users(id, name, password, level, login, recommend, email) values('where', ?, 'p', 1, 0, 0, null)", name);
+    }
+
+    private String readFrom(UserDao dao) {
+        return dao.get("where").getName();
+    }
+
+    @Test
+    public void readOutsideTransactionGoesToReplicas() {
+        Set<String> sources = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            sources.add(readFrom(userDao));
+        }
+        assertThat(sources, is((Set<String>) new HashSet<>(Arrays.asList("replica0", "replica1"))));
+    }
+
+    @Test
+    public void readInWriteTransactionStaysOnPrimary() {
+        String source = new TransactionTemplate(transactionManager).execute(new TransactionCallback<String>() {
+            @Override
+            public String doInTransaction(TransactionStatus status) {
+                return readFrom(userDao);
+            }
+        });
+        assertThat(source, is("primary"));
+    }
+
+    @Test
+    public void readingOnPrimaryDoesNotStickToPrimary() {
+        readInWriteTransactionStaysOnPrimary();
+        assertThat(readFrom(userDao).startsWith("replica"), is(true));
+
+        // 롤백한 쓰기도 복제본에 없는 값을 만들지 않는다.
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        userDao.add(new User("rolledback", "새유저", "p1", Level.BASIC, 0, 0, null));
+        transactionManager.rollback(status);
+        assertThat(readFrom(userDao).startsWith("replica"), is(true));
+    }
+
+    @Test
+    public void writeInCallbackGoesToPrimary() {
+        userDao.forEach(new UserCallback() {
+            @Override
+            public void doWithUser(User user) {
+                userDao.add(new User("callback", "새유저", "p1", Level.BASIC, 0, 0, null));
+            }
+        });
+        assertThat(new JdbcTemplate(primary).queryForInt("select count(*) from users where id = 'callback'"), is(1));
+    }
+
+    @Test
+    public void primaryReadGoesToPrimary() {
+        ReplicaRoutingDataSource.beginPrimaryRead();
+        try {
+            assertThat(readFrom(userDao), is("primary"));
+        } finally {
+            ReplicaRoutingDataSource.endPrimaryRead();
+        }
+        assertThat(readFrom(userDao).startsWith("replica"), is(true));
+    }
+
+    @Test
+    public void cacheLoadsFromPrimary() {
+        // 복제본에서 읽은 값을 캐시하면 복제 지연 동안 빠진 변경이 ttl 동안 모든 호출자에게 나간다.
+        CachingUserDao cachingUserDao = new CachingUserDao(userDao);
+        assertThat(readFrom(cachingUserDao), is("primary"));
+        assertThat(cachingUserDao.find("where").get().getName(), is("primary"));
+        assertThat(readFrom(userDao).startsWith("replica"), is(true));
+    }
+
+    @Test
+    public void bloomFilterRebuildsFromPrimary() {
+        // 아직 복제되지 않은 사용자. 복제본에서 필터를 만들면 있는 사용자를 없다고 하게 된다.
+        new JdbcTemplate(primary).update("insert into users(id, name, password, level, login, recommend, email) values('fresh', 'primary', 'p', 1, 0, 0, null)");
+        BloomFilterUserDao bloomFilterUserDao = new BloomFilterUserDao(userDao);
+        bloomFilterUserDao.rebuild();
+
+        bloomFilterUserDao.exists("fresh");
+        assertThat(bloomFilterUserDao.getSkippedCount(), is(0L));
+        assertThat(bloomFilterUserDao.getPassedCount(), is(1L));
+    }
+
+    @Test(expected = SQLFeatureNotSupportedException.class)
+    public void connectionWithCredentialsIsNotSupported() throws SQLException {
+        new ReplicaRoutingDataSource().getConnection("user", "password");
+    }
+
+    @Test
+    public void readOnlyTransactionGoesToReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        String source = readOnly.execute(new TransactionCallback<String>() {
+            @Override
+            public String doInTransaction(TransactionStatus status) {
+                return readFrom(userDao);
+            }
+        });
+        assertThat(source.startsWith("replica"), is(true));
+    }
+
+    @Test
+    public void readYourWritesAfterWrite() throws InterruptedException {
+        userDao.add(new User("written", "새유저", "p1", Level.BASIC, 0, 0, null));
+
+        // 복제 지연 한도 동안은 쓴 스레드의 읽기가 원본으로 간다.
+        assertThat(readFrom(userDao), is("primary"));
+        assertThat(userDao.get("written").getName(), is("새유저"));
+
+        Thread.sleep(150);
+        assertThat(readFrom(userDao).startsWith("replica"), is(true));
+    }
+
+    @Test
+    public void ejectFailingReplica() throws SQLException {
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setPrimary(primary);
+        routing.setReplicas(Arrays.asList(broken, replica1));
+        UserDaoJdbc dao = new UserDaoJdbc();
+        dao.setJdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(readFrom(dao), is("replica1"));
+        }
+        verify(broken, times(1)).getConnection(); // 한 번 실패한 뒤로는 시도하지 않는다.
+        assertThat(routing.getHealthyReplicaCount(), is(1));
+
+        // 검사에서도 실패하면 계속 빠져 있고, 살아나면 다시 읽기에 쓴다.
+        routing.checkReplicas();
+        assertThat(routing.getHealthyReplicaCount(), is(1));
+        reset(broken);
+        when(broken.getConnection()).thenAnswer(new Answer<Connection>() {
+            @Override
+            public Connection answer(InvocationOnMock invocation) throws SQLException {
+                return replica0.getConnection();
+            }
+        });
+        routing.checkReplicas();
+        assertThat(routing.getHealthyReplicaCount(), is(2));
+    }
+
+    @Test
+    public void fallBackToPrimaryWhenNoReplicaAvailable() throws SQLException {
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource();
+        routing.setPrimary(primary);
+        routing.setReplicas(Arrays.asList(broken));
+        UserDaoJdbc dao = new UserDaoJdbc();
+        dao.setJdbcTemplate(new LazyConnectionDataSourceProxy(routing));
+
+        assertThat(readFrom(dao), is("primary"));
+        assertThat(readFrom(dao), is("primary"));
+        assertThat(routing.getHealthyReplicaCount(), is(0));
+    }
+}
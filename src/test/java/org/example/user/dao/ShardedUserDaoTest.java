@@ -0,0 +1,180 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = "/sharded-test-applicationContext.xml")
+public class ShardedUserDaoTest extends UserDaoTest {
+    @Autowired
+    private ShardedUserDao shardedUserDao;
+
+    @Autowired
+    @Qualifier("shard0")
+    private DataSource shard0;
+
+    @Autowired
+    @Qualifier("shard1")
+    private DataSource shard1;
+
+    @Autowired
+    @Qualifier("shard2")
+    private DataSource shard2;
+
+    @Override
+    protected UserDao userDao() {
+        return shardedUserDao;
+    }
+
+    @Test
+    public void routeEachUserToOneShard() {
+        dao.deleteAll();
+        List<User> users = users(300);
+        dao.batchAdd(users);
+
+        List<DataSource> shards = Arrays.asList(shard0, shard1, shard2);
+        int total = 0;
+        for (DataSource shard : shards) {
+            int count = new JdbcTemplate(shard).queryForInt("select count(*) from users");
+            assertThat(count, greaterThan(50));
+            total += count;
+        }
+        assertThat(total, is(300));
+        assertThat(dao.getCount(), is(300));
+
+        for (User user : users.subList(0, 20)) {
+            JdbcTemplate owner = new JdbcTemplate(shards.get(shardedUserDao.shardOf(user.getId())));
+            assertThat(owner.queryForInt("select count(*) from users where id = ?", user.getId()), is(1));
+        }
+    }
+
+    @Test
+    public void mergeShardsInIdOrder() {
+        dao.deleteAll();
+        List<User> users = users(50);
+        Collections.shuffle(users, new Random(20));
+        dao.batchAdd(users);
+
+        List<String> expected = new ArrayList<>();
+        for (User user : users) {
+            expected.add(user.getId());
+        }
+        Collections.sort(expected);
+
+        assertThat(ids(dao.getAll()), is(expected));
+        assertThat(ids(dao.getAfter(expected.get(9), 10)), is(expected.subList(10, 20)));
+
+        final List<String> streamed = new ArrayList<>();
+        dao.forEach(new UserCallback() { // 샤드마다 2명씩 읽어가며 병합한다.
+            @Override
+            public void doWithUser(User user) {
+                streamed.add(user.getId());
+            }
+        });
+        assertThat(streamed, is(expected));
+    }
+
+    @Test
+    public void mergeMixedCaseIdsInBinaryOrder() {
+        dao.deleteAll();
+        List<User> users = new ArrayList<>();
+        for (String id : Arrays.asList("b", "B", "a", "A", "훈", "_x", "Zed", "zed", "c1", "C2")) {
+            users.add(new User(id, "유저", "p1234", Level.BASIC, 1, 0, null));
+        }
+        dao.batchAdd(users);
+
+        List<String> expected = new ArrayList<>(ids(users));
+        Collections.sort(expected);
+
+        assertThat(ids(dao.getAll()), is(expected));
+        List<String> paged = new ArrayList<>();
+        String lastId = null;
+        List<User> page;
+        while (!(page = dao.getAfter(lastId, 3)).isEmpty()) { // 키셋 페이징도 건너뛰거나 반복하지 않는다.
+            paged.addAll(ids(page));
+            lastId = page.get(page.size() - 1).getId();
+        }
+        assertThat(paged, is(expected));
+    }
+
+    @Test
+    public void addShardMovesFewUsers() {
+        ShardedUserDao three = new ShardedUserDao();
+        three.setShards(Arrays.<UserDao>asList(new InMemoryUserDao(), new InMemoryUserDao(), new InMemoryUserDao()));
+        ShardedUserDao four = new ShardedUserDao();
+        four.setShards(Arrays.<UserDao>asList(new InMemoryUserDao(), new InMemoryUserDao(), new InMemoryUserDao(), new InMemoryUserDao()));
+
+        int moved = 0;
+        for (int i = 0; i < 10000; i++) {
+            String id = "u" + i;
+            if (three.shardOf(id) != four.shardOf(id)) {
+                assertThat(four.shardOf(id), is(3)); // 옮겨가는 사용자는 모두 새 샤드로 간다.
+                moved++;
+            }
+        }
+        assertThat(moved, greaterThan(1500));
+        assertThat(moved, lessThan(3500));
+    }
+
+    @Test
+    public void pollChangesFromEveryShard() {
+        List<UserDao> shards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            InMemoryUserDao shard = new InMemoryUserDao();
+            shard.setChangeTracking(true);
+            shards.add(shard);
+        }
+        ShardedUserDao sharded = new ShardedUserDao();
+        sharded.setShards(shards);
+        sharded.batchAdd(users(30));
+
+        long uptoSeq = sharded.getLastChangeSeq();
+        sharded.add(new User("s9999", "유저", "p1234", Level.BASIC, 0, 0, null)); // 기억해둔 seq 이후의 변경은 꺼내지 않는다.
+
+        List<String> polled = new ArrayList<>();
+        List<User> users;
+        while (!(users = sharded.pollChanged(uptoSeq, 4)).isEmpty()) {
+            polled.addAll(ids(users));
+        }
+        Collections.sort(polled);
+        assertThat(polled, is(ids(users(30))));
+
+        List<String> later = ids(sharded.pollChanged(sharded.getLastChangeSeq(), 10));
+        assertThat(later, is(Collections.singletonList("s9999")));
+    }
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new User(String.format("s%04d", i), "유저" + i, "p1234", Level.valueOf(i % 3 + 1), i, i % 40, null));
+        }
+        return users;
+    }
+
+    private static List<String> ids(List<User> users) {
+        List<String> ids = new ArrayList<>();
+        for (User user : users) {
+            ids.add(user.getId());
+        }
+        return ids;
+    }
+}
@@ -2,140 +2,59 @@ package org.example.user.dao;
 
 import org.example.user.domain.Level;
 import org.example.user.domain.User;
-
-import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
-import org.springframework.dao.DuplicateKeyException;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 
-import java.sql.SQLException;
-import java.util.List;
+import java.util.Collections;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(locations = "/test-applicationContext.xml")
-public class UserDaoJdbcTest {
+public class UserDaoJdbcTest extends UserDaoTest {
     @Autowired
     private ApplicationContext context;
 
     @Autowired
-    private UserDao dao;
-    private User user1;
-    private User user2;
-    private User user3;
-
-    @Before
-    public void setUp() {
-        user1 = new User("user1", "유저1", "1234", Level.BASIC, 1, 0, "kimhunsope@kakao.com");
-        user2 = new User("user2", "유저2", "1234", Level.SILVER, 55, 10, "kimhunsope@kakao.com");
-        user3 = new User("user3", "유저3", "1234", Level.GOLD, 100, 40, "kimhunsope@kakao.com");
-    }
-
-    @Test
-    public void addAndGet() throws SQLException {
-        dao.deleteAll();
-        assertThat(dao.getCount(), is(0));
-
-        dao.add(user1);
-        dao.add(user2);
-        assertThat(dao.getCount(), is(2));
-
-        User userget1 = dao.get(user1.getId());
-        checkSameUser(userget1, user1);
-
-        User userget2 = dao.get(user2.getId());
-        checkSameUser(userget2, user2);
-    }
-
-    @Test
-    public void count() throws SQLException {
-        dao.deleteAll();
-        assertThat(dao.getCount(), is(0));
-
-        dao.add(user1);
-        assertThat(dao.getCount(), is(1));
-
-        dao.add(user2);
-        assertThat(dao.getCount(), is(2));
-
-        dao.add(user3);
-        assertThat(dao.getCount(), is(3));
-    }
-
-    @Test(expected = EmptyResultDataAccessException.class)
-    public void getUserFailure() throws SQLException {
-        dao.deleteAll();
-        assertThat(dao.getCount(), is(0));
+    private UserDao userDao;
 
-        dao.get("unknown_id");
-    }
-
-    @Test
-    public void getAll() {
-        dao.deleteAll();
-
-        List<User> users0 = dao.getAll();
-        assertThat(users0.size(), is(0));
-
-        dao.add(user1);
-        List<User> users1 = dao.getAll();
-        assertThat(users1.size(), is(1));
-        checkSameUser(user1, users1.get(0));
-
-        dao.add(user2);
-        List<User> users2 = dao.getAll();
-        assertThat(users2.size(), is(2));
-        checkSameUser(user2, users2.get(1));
-
-        dao.add(user3);
-        List<User> users3 = dao.getAll();
-        assertThat(users3.size(), is(3));
-        checkSameUser(user3, users3.get(2));
-    }
-
-    @Test(expected = DuplicateKeyException.class)
-    public void duplicateKey() {
-        dao.deleteAll();
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
-        dao.add(user1);
-        dao.add(user1);
+    @Override
+    protected UserDao userDao() {
+        return userDao;
     }
 
     @Test
-    public void update() {
+    public void versionRevertsOnRollback() {
         dao.deleteAll();
-
-        dao.add(user1);
-        dao.add(user2); // 변경되지 않는 유저
-
-        user1.setName("섭섭킴");
-        user1.setPassword("1234");
-        user1.setLevel(Level.GOLD);
-        user1.setLogin(1000);
-        user1.setRecommend(999);
-        dao.update(user1);
-
-        User user1update = dao.get(user1.getId());
-        checkSameUser(user1update, user1);
-
-        User user2same = dao.get(user2.getId());
-        checkSameUser(user2same, user2);
-    }
-
-
-    private void checkSameUser(User user1, User user2) {
-        assertThat(user1.getId(), is(user2.getId()));
-        assertThat(user1.getName(), is(user2.getName()));
-        assertThat(user1.getPassword(), is(user2.getPassword()));
-        assertThat(user1.getLevel(), is(user2.getLevel()));
-        assertThat(user1.getLogin(), is(user2.getLogin()));
-        assertThat(user1.getRecommend(), is(user2.getRecommend()));
+        User user = new User("user1", "유저1", "1234", Level.BASIC, 1, 0, "kimhunsope@kakao.com");
+        dao.add(user);
+
+        TransactionStatus status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        user.setLevel(Level.SILVER);
+        dao.batchUpdate(Collections.singletonList(user));
+        assertThat(user.getVersion(), is(1)); // 반영된 사용자는 트랜잭션 안에서도 바로 올라간다.
+        transactionManager.rollback(status);
+
+        assertThat(user.getVersion(), is(0)); // 롤백됐으므로 DB와 같은 version으로 다시 저장할 수 있다.
+        dao.update(user);
+        assertThat(user.getVersion(), is(1));
+
+        status = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        user.setLevel(Level.GOLD);
+        dao.batchUpdate(Collections.singletonList(user));
+        transactionManager.commit(status);
+        assertThat(user.getVersion(), is(2));
+        assertThat(dao.get("user1").getVersion(), is(2));
     }
 }
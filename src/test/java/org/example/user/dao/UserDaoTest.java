@@ -0,0 +1,326 @@
+package org.example.user.dao;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * 모든 UserDao 구현이 지켜야 하는 동작. 구현마다 이 클래스를 상속하고 userDao()로 테스트할 오브젝트를 넘겨준다.
+ */
+public abstract class UserDaoTest {
+    protected UserDao dao;
+    private User user1;
+    private User user2;
+    private User user3;
+
+    protected abstract UserDao userDao();
+
+    @Before
+    public void setUp() {
+        dao = userDao();
+        user1 = new User("user1", "유저1", "1234", Level.BASIC, 1, 0, "kimhunsope@kakao.com");
+        user2 = new User("user2", "유저2", "1234", Level.SILVER, 55, 10, "kimhunsope@kakao.com");
+        user3 = new User("user3", "유저3", "1234", Level.GOLD, 100, 40, "kimhunsope@kakao.com");
+    }
+
+    @Test
+    public void addAndGet() throws SQLException {
+        dao.deleteAll();
+        assertThat(dao.getCount(), is(0));
+
+        dao.add(user1);
+        dao.add(user2);
+        assertThat(dao.getCount(), is(2));
+
+        User userget1 = dao.get(user1.getId());
+        checkSameUser(userget1, user1);
+
+        User userget2 = dao.get(user2.getId());
+        checkSameUser(userget2, user2);
+    }
+
+    @Test
+    public void count() throws SQLException {
+        dao.deleteAll();
+        assertThat(dao.getCount(), is(0));
+
+        dao.add(user1);
+        assertThat(dao.getCount(), is(1));
+
+        dao.add(user2);
+        assertThat(dao.getCount(), is(2));
+
+        dao.add(user3);
+        assertThat(dao.getCount(), is(3));
+    }
+
+    @Test(expected = EmptyResultDataAccessException.class)
+    public void getUserFailure() throws SQLException {
+        dao.deleteAll();
+        assertThat(dao.getCount(), is(0));
+
+        dao.get("unknown_id");
+    }
+
+    @Test
+    public void findAndExists() {
+        dao.deleteAll();
+        dao.add(user1);
+
+        assertThat(dao.exists(user1.getId()), is(true));
+        assertThat(dao.exists("unknown_id"), is(false));
+        checkSameUser(dao.find(user1.getId()).get(), user1);
+        assertThat(dao.find("unknown_id").isPresent(), is(false));
+
+        dao.deleteAll();
+        assertThat(dao.exists(user1.getId()), is(false));
+    }
+
+    @Test
+    public void getAll() {
+        dao.deleteAll();
+
+        List<User> users0 = dao.getAll();
+        assertThat(users0.size(), is(0));
+
+        dao.add(user1);
+        List<User> users1 = dao.getAll();
+        assertThat(users1.size(), is(1));
+        checkSameUser(user1, users1.get(0));
+
+        dao.add(user2);
+        List<User> users2 = dao.getAll();
+        assertThat(users2.size(), is(2));
+        checkSameUser(user2, users2.get(1));
+
+        dao.add(user3);
+        List<User> users3 = dao.getAll();
+        assertThat(users3.size(), is(3));
+        checkSameUser(user3, users3.get(2));
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void duplicateKey() {
+        dao.deleteAll();
+
+        dao.add(user1);
+        dao.add(user1);
+    }
+
+    @Test(expected = DuplicateKeyException.class)
+    public void duplicateKeyInBatch() {
+        dao.deleteAll();
+
+        dao.batchAdd(Arrays.asList(user1, user2, user1));
+    }
+
+    @Test
+    public void update() {
+        dao.deleteAll();
+
+        dao.add(user1);
+        dao.add(user2); // 변경되지 않는 유저
+
+        user1.setName("섭섭킴");
+        user1.setPassword("1234");
+        user1.setLevel(Level.GOLD);
+        user1.setLogin(1000);
+        user1.setRecommend(999);
+        dao.update(user1);
+
+        User user1update = dao.get(user1.getId());
+        checkSameUser(user1update, user1);
+
+        User user2same = dao.get(user2.getId());
+        checkSameUser(user2same, user2);
+    }
+
+    @Test
+    public void updateWithStaleVersionFails() {
+        dao.deleteAll();
+        dao.add(user1);
+
+        User first = dao.get(user1.getId());
+        User stale = dao.get(user1.getId());
+        first.setName("먼저");
+        dao.update(first);
+        assertThat(first.getVersion(), is(1));
+
+        stale.setLogin(1000);
+        try {
+            dao.update(stale);
+            fail("OptimisticLockingFailureException expected");
+        } catch (OptimisticLockingFailureException e) {
+        }
+
+        User stored = dao.get(user1.getId());
+        assertThat(stored.getName(), is("먼저"));
+        assertThat(stored.getLogin(), is(user1.getLogin()));
+        assertThat(stored.getVersion(), is(1));
+        assertThat(dao.getForUpdate(user1.getId()).getVersion(), is(1));
+    }
+
+    @Test
+    public void batchUpdateAppliesNonConflictingUsers() {
+        dao.deleteAll();
+        dao.batchAdd(Arrays.asList(user1, user2));
+
+        User stale1 = dao.get(user1.getId());
+        User fresh2 = dao.get(user2.getId());
+        dao.incrementLogin(user1.getId()); // 읽은 뒤에 로그인
+
+        stale1.setLevel(Level.SILVER);
+        fresh2.setLevel(Level.GOLD);
+        try {
+            dao.batchUpdate(Arrays.asList(stale1, fresh2));
+            fail("OptimisticLockingFailureException expected");
+        } catch (OptimisticLockingFailureException e) {
+        }
+
+        assertThat(stale1.getVersion(), is(0));
+        assertThat(fresh2.getVersion(), is(1));
+        assertThat(dao.get(user1.getId()).getLevel(), is(Level.BASIC));
+        assertThat(dao.get(user1.getId()).getLogin(), is(user1.getLogin() + 1));
+        assertThat(dao.get(user2.getId()).getLevel(), is(Level.GOLD));
+    }
+
+    @Test
+    public void incrementLoginAndRecommend() {
+        dao.deleteAll();
+        dao.add(user2);
+
+        dao.incrementLogin(user2.getId());
+        dao.incrementLogin(user2.getId());
+        dao.incrementRecommend(user2.getId());
+        dao.incrementLogin("nobody");
+
+        User stored = dao.get(user2.getId());
+        assertThat(stored.getLogin(), is(user2.getLogin() + 2));
+        assertThat(stored.getRecommend(), is(user2.getRecommend() + 1));
+        assertThat(stored.getVersion(), is(3));
+    }
+
+    @Test
+    public void batchAddAndUpdate() {
+        dao.deleteAll();
+
+        dao.batchAdd(Arrays.asList(user1, user2, user3));
+        assertThat(dao.getCount(), is(3));
+
+        user1.setLevel(Level.SILVER);
+        user3.setLogin(1000);
+        dao.batchUpdate(Arrays.asList(user1, user3));
+
+        checkSameUser(dao.get(user1.getId()), user1);
+        checkSameUser(dao.get(user2.getId()), user2);
+        checkSameUser(dao.get(user3.getId()), user3);
+    }
+
+    @Test
+    public void getAfterAndRange() {
+        dao.deleteAll();
+        dao.batchAdd(Arrays.asList(user3, user1, user2));
+
+        List<User> first = dao.getAfter(null, 2);
+        assertThat(first.size(), is(2));
+        checkSameUser(first.get(0), user1);
+        checkSameUser(first.get(1), user2);
+
+        List<User> rest = dao.getAfter(user2.getId(), 2);
+        assertThat(rest.size(), is(1));
+        checkSameUser(rest.get(0), user3);
+
+        List<User> range = dao.getRange(user1.getId(), user2.getId(), 10);
+        assertThat(range.size(), is(1));
+        checkSameUser(range.get(0), user2);
+
+        assertThat(dao.getPartitionKeys(3), is(Arrays.asList(user1.getId(), user2.getId())));
+    }
+
+    @Test
+    public void getRangeIntoBatch() {
+        dao.deleteAll();
+        User noEmail = new User("user4", "유저4", "1234", Level.BASIC, 0, 0, null);
+        dao.batchAdd(Arrays.asList(user3, noEmail, user1, user2));
+
+        UserBatch batch = new UserBatch(1); // 다 채우려면 배열을 늘려야 한다.
+        assertThat(dao.getRange(null, null, 10, batch), is(4));
+        checkSameUser(batch.toUser(0), user1);
+        checkSameUser(batch.toUser(2), user3);
+        checkSameUser(batch.toUser(3), noEmail);
+        assertThat(batch.getLevel(1), is(Level.SILVER));
+        assertThat(batch.getRecommend(2), is(40));
+        assertThat(batch.getEmail(2), is(user3.getEmail()));
+        assertThat(batch.getEmail(3), is((String) null));
+
+        assertThat(dao.getRange(user1.getId(), user3.getId(), 10, batch), is(2));
+        checkSameUser(batch.toUser(0), user2);
+        checkSameUser(batch.toUser(1), user3);
+
+        assertThat(dao.getRange(user2.getId(), null, 1, batch), is(1));
+        assertThat(batch.getId(0), is(user3.getId()));
+    }
+
+    @Test
+    public void forEachByLevel() {
+        dao.deleteAll();
+        dao.batchAdd(Arrays.asList(user1, user2, user3));
+
+        final List<User> all = new ArrayList<>();
+        dao.forEach(new UserCallback() {
+            @Override
+            public void doWithUser(User user) {
+                all.add(user);
+            }
+        });
+        assertThat(all.size(), is(3));
+        checkSameUser(all.get(2), user3);
+
+        final List<User> silver = new ArrayList<>();
+        dao.forEach(Level.SILVER, new UserCallback() {
+            @Override
+            public void doWithUser(User user) {
+                silver.add(user);
+            }
+        });
+        assertThat(silver.size(), is(1));
+        checkSameUser(silver.get(0), user2);
+    }
+
+    @Test
+    public void upgradeLevelsBySql() {
+        dao.deleteAll();
+        dao.batchAdd(Arrays.asList(user1, user2, user3));
+
+        List<User> upgraded = dao.upgradeLevels(Level.SILVER, 50, 10);
+
+        assertThat(upgraded.size(), is(1));
+        assertThat(upgraded.get(0).getLevel(), is(Level.GOLD));
+        assertThat(dao.get(user2.getId()).getLevel(), is(Level.GOLD));
+        assertThat(dao.get(user1.getId()).getLevel(), is(Level.BASIC));
+    }
+
+    protected void checkSameUser(User user1, User user2) {
+        assertThat(user1.getId(), is(user2.getId()));
+        assertThat(user1.getName(), is(user2.getName()));
+        assertThat(user1.getPassword(), is(user2.getPassword()));
+        assertThat(user1.getLevel(), is(user2.getLevel()));
+        assertThat(user1.getLogin(), is(user2.getLogin()));
+        assertThat(user1.getRecommend(), is(user2.getRecommend()));
+    }
+}
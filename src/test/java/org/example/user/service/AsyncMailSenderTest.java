@@ -0,0 +1,237 @@
+package org.example.user.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.MailSender;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncMailSenderTest {
+    private SlowMailSender slowMailSender;
+    private AsyncMailSender asyncMailSender;
+
+    @Before
+    public void setUp() {
+        slowMailSender = new SlowMailSender(50);
+        asyncMailSender = new AsyncMailSender(slowMailSender);
+        asyncMailSender.setWorkers(1);
+        asyncMailSender.setMaxBatchSize(10);
+        asyncMailSender.setInitialBackoffMillis(1);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        asyncMailSender.close();
+    }
+
+    @Test
+    public void sendReturnsBeforeSlowServerAndBatches() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 20; i++) {
+            asyncMailSender.send(message("user" + i + "@kakao.com"));
+        }
+        assertThat(System.currentTimeMillis() - start < 500, is(true)); // 20통을 차례로 보내면 1초가 걸리는 서버를 기다리지 않는다.
+
+        asyncMailSender.close();
+
+        assertThat(slowMailSender.getRecipients().size(), is(20));
+        assertThat(asyncMailSender.getSentCount(), is(20L));
+        assertThat(asyncMailSender.getBatchCount() < 20, is(true)); // 여러 메일이 한 번의 send()로 묶여서 나간다.
+        assertThat(asyncMailSender.getQueueDepth(), is(0));
+    }
+
+    @Test
+    public void sendAfterCommitOnly() throws InterruptedException {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            asyncMailSender.send(message("commit@kakao.com"));
+            assertThat(asyncMailSender.getQueueDepth(), is(0));
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            asyncMailSender.send(message("rollback@kakao.com"));
+
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        asyncMailSender.close();
+
+        assertThat(slowMailSender.getRecipients(), is(Collections.singletonList("commit@kakao.com")));
+    }
+
+    @Test
+    public void retryWithBackoff() throws InterruptedException {
+        slowMailSender.failTimes(2);
+
+        asyncMailSender.send(message("retry@kakao.com"));
+        asyncMailSender.close();
+
+        assertThat(slowMailSender.getRecipients().size(), is(1));
+        assertThat(asyncMailSender.getRetryCount(), is(2L));
+        assertThat(asyncMailSender.getFailedCount(), is(0L));
+    }
+
+    @Test
+    public void retryOnlyFailedMessages() throws InterruptedException {
+        slowMailSender.failRecipient("fail@kakao.com", 1);
+
+        asyncMailSender.send(new SimpleMailMessage[] {message("ok1@kakao.com"), message("fail@kakao.com"), message("ok2@kakao.com")});
+        asyncMailSender.close();
+
+        // 처음에 나간 두 통은 다시 보내지 않는다.
+        assertThat(slowMailSender.getRecipients(), is(Arrays.asList("ok1@kakao.com", "ok2@kakao.com", "fail@kakao.com")));
+        assertThat(asyncMailSender.getRetryCount(), is(1L));
+        assertThat(asyncMailSender.getSentCount(), is(3L));
+        assertThat(asyncMailSender.getFailedCount(), is(0L));
+    }
+
+    @Test
+    public void backpressureWhenQueueIsFull() {
+        asyncMailSender.setQueueCapacity(1);
+        asyncMailSender.setMaxBatchSize(1);
+        asyncMailSender.setOfferTimeoutMillis(10);
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                asyncMailSender.send(message("user" + i + "@kakao.com"));
+            }
+            fail("MailSendException expected");
+        } catch (MailSendException e) {
+        }
+
+        assertThat(asyncMailSender.getQueueDepth(), is(lessThan(2)));
+    }
+
+    @Test
+    public void countFailuresWhenQueueIsFullAfterCommit() throws InterruptedException {
+        asyncMailSender.setQueueCapacity(1);
+        asyncMailSender.setMaxBatchSize(1);
+        asyncMailSender.setOfferTimeoutMillis(10);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (int i = 0; i < 10; i++) {
+                asyncMailSender.send(message("user" + i + "@kakao.com"));
+            }
+
+            // 커밋은 이미 끝났으므로 큐에 넣지 못해도 예외를 던지지 않는다.
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCommit(synchronizations);
+            TransactionSynchronizationUtils.invokeAfterCompletion(synchronizations, TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        asyncMailSender.close();
+
+        assertThat(asyncMailSender.getFailedCount() > 0, is(true));
+        assertThat(asyncMailSender.getSentCount() + asyncMailSender.getFailedCount(), is(10L));
+    }
+
+    @Test
+    public void countMailsDroppedOnShutdownTimeout() throws InterruptedException {
+        asyncMailSender.setMaxBatchSize(1);
+        asyncMailSender.setShutdownTimeoutMillis(10);
+
+        for (int i = 0; i < 20; i++) {
+            asyncMailSender.send(message("user" + i + "@kakao.com"));
+        }
+        asyncMailSender.close();
+
+        assertThat(asyncMailSender.getFailedCount() > 0, is(true));
+        assertThat(asyncMailSender.getSentCount() + asyncMailSender.getFailedCount(), is(20L));
+        assertThat(asyncMailSender.getQueueDepth(), is(0));
+    }
+
+    private SimpleMailMessage message(String to) {
+        SimpleMailMessage mailMessage = new SimpleMailMessage();
+        mailMessage.setTo(to);
+        return mailMessage;
+    }
+
+    static class SlowMailSender implements MailSender {
+        private final long delayMillis;
+        private final List<String> recipients = Collections.synchronizedList(new ArrayList<String>());
+        private volatile int failures;
+        private volatile String failingRecipient;
+        private volatile int recipientFailures;
+
+        SlowMailSender(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        void failTimes(int failures) {
+            this.failures = failures;
+        }
+
+        // 다른 메일은 보내고 이 수신자에게 가는 메일만 실패한 것으로 알린다. JavaMailSenderImpl의 부분 실패와 같은 모양이다.
+        void failRecipient(String recipient, int failures) {
+            this.failingRecipient = recipient;
+            this.recipientFailures = failures;
+        }
+
+        List<String> getRecipients() {
+            return recipients;
+        }
+
+        @Override
+        public void send(SimpleMailMessage mailMessage) throws MailException {
+            send(new SimpleMailMessage[] {mailMessage});
+        }
+
+        @Override
+        public void send(SimpleMailMessage[] mailMessages) throws MailException {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (failures > 0) {
+                failures--;
+                throw new MailSendException("메일 서버 오류");
+            }
+
+            Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+            for (SimpleMailMessage mailMessage : mailMessages) {
+                String recipient = mailMessage.getTo()[0];
+                if (recipient.equals(failingRecipient) && recipientFailures > 0) {
+                    recipientFailures--;
+                    failedMessages.put(mailMessage, new Exception("수신 거부"));
+                } else {
+                    recipients.add(recipient);
+                }
+            }
+            if (!failedMessages.isEmpty()) {
+                throw new MailSendException(failedMessages);
+            }
+        }
+    }
+}
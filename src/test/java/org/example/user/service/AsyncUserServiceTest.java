@@ -0,0 +1,111 @@
+package org.example.user.service;
+
+import org.example.user.dao.UserDao;
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class AsyncUserServiceTest {
+    private UserService userService;
+    private UserDao userDao;
+    private AsyncUserService asyncUserService;
+
+    @Before
+    public void setUp() {
+        userService = mock(UserService.class);
+        userDao = mock(UserDao.class);
+
+        asyncUserService = new AsyncUserService();
+        asyncUserService.setUserService(userService);
+        asyncUserService.setUserDao(userDao);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        asyncUserService.close();
+    }
+
+    @Test
+    public void completeWithResult() throws Exception {
+        User user = new User("user1", "유저1", "p1", Level.BASIC, 1, 0, null);
+        when(userDao.get("user1")).thenReturn(user);
+
+        assertThat(asyncUserService.get("user1").get(1, TimeUnit.SECONDS), is(user));
+
+        asyncUserService.add(user).get(1, TimeUnit.SECONDS);
+        verify(userService).add(user);
+    }
+
+    @Test
+    public void completeExceptionally() throws Exception {
+        when(userDao.get("none")).thenThrow(new IllegalStateException("실패"));
+
+        try {
+            asyncUserService.get("none").get(1, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+        }
+    }
+
+    @Test
+    public void limitConcurrentCalls() throws Exception {
+        ExecutorService platformThreads = Executors.newCachedThreadPool();
+        asyncUserService.setExecutor(platformThreads);
+        asyncUserService.setMaxConcurrency(3);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        when(userDao.get(anyString())).thenAnswer(new Answer<User>() {
+            @Override
+            public User answer(InvocationOnMock invocation) throws InterruptedException {
+                int now = running.incrementAndGet();
+                int max;
+                while (now > (max = maxRunning.get()) && !maxRunning.compareAndSet(max, now)) {
+                }
+                release.await();
+                running.decrementAndGet();
+                return null;
+            }
+        });
+
+        List<CompletableFuture<User>> futures = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            futures.add(asyncUserService.get("user" + i)); // 호출한 스레드는 막히지 않고 바로 돌아온다.
+        }
+        while (asyncUserService.getActiveCount() < 3) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(50);
+        assertThat(running.get(), is(3));
+
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        assertThat(maxRunning.get(), lessThanOrEqualTo(3));
+        verify(userDao, times(30)).get(anyString());
+
+        platformThreads.shutdown();
+    }
+}
@@ -0,0 +1,149 @@
+package org.example.user.service;
+
+import org.example.user.dao.UserDao;
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Properties;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.*;
+
+public class TxProxyFactoryBeanTest {
+    private PlatformTransactionManager transactionManager;
+    private TransactionStatus status;
+    private User user;
+
+    @Before
+    public void setUp() {
+        transactionManager = mock(PlatformTransactionManager.class);
+        status = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenReturn(status);
+
+        user = new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, "a@kakao.com");
+    }
+
+    @Test
+    public void jdkProxyAppliesMethodRules() {
+        UserService target = mock(UserService.class);
+        UserService proxy = (UserService) txProxy(target, false).getObject();
+
+        proxy.add(user);
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().getPropagationBehavior(), is(TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        assertThat(definition.getValue().getTimeout(), is(5));
+        verify(target).add(user);
+        verify(transactionManager).commit(status);
+
+        Iterator<User> noUsers = Collections.<User>emptyList().iterator();
+        proxy.importUsers(noUsers, null); // 규칙에 없는 메서드는 트랜잭션 없이 위임만 한다.
+        verify(target).importUsers(noUsers, null);
+        verifyNoMoreInteractions(transactionManager);
+    }
+
+    @Test
+    public void rollbackOnRuntimeException() {
+        UserService target = mock(UserService.class);
+        doThrow(new IllegalStateException()).when(target).upgradeLevels();
+        UserService proxy = (UserService) txProxy(target, false).getObject();
+
+        try {
+            proxy.upgradeLevels();
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+        }
+
+        verify(transactionManager).rollback(status);
+        verify(transactionManager, never()).commit(status);
+    }
+
+    @Test
+    public void cglibProxyExtendsTargetClass() {
+        UserServiceImpl target = new UserServiceImpl();
+        target.setUserDao(mock(UserDao.class));
+        target.setMailSender(new DummyMailSender());
+
+        Object proxy = txProxy(target, true).getObject();
+        assertThat(proxy, is(instanceOf(UserServiceImpl.class)));
+
+        ((UserService) proxy).upgradeLevels();
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().getPropagationBehavior(), is(TransactionDefinition.PROPAGATION_REQUIRED));
+        verify(transactionManager).commit(status);
+    }
+
+    @Test
+    public void annotationOverridesMethodRules() {
+        TxProxyFactoryBean txProxyFactoryBean = new TxProxyFactoryBean();
+        txProxyFactoryBean.setTarget(mock(ReadOnlyLookup.class));
+        txProxyFactoryBean.setTransactionManager(transactionManager);
+        txProxyFactoryBean.setServiceInterface(ReadOnlyLookup.class);
+        Properties rules = new Properties();
+        rules.setProperty("*", "PROPAGATION_REQUIRED");
+        txProxyFactoryBean.setMethodRules(rules);
+
+        ((ReadOnlyLookup) txProxyFactoryBean.getObject()).find("hoon");
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertThat(definition.getValue().isReadOnly(), is(true));
+        assertThat(definition.getValue().getPropagationBehavior(), is(TransactionDefinition.PROPAGATION_SUPPORTS));
+    }
+
+    @Test
+    public void objectMethodsRunWithoutTransaction() {
+        UserServiceImpl target = new UserServiceImpl();
+        Properties rules = new Properties();
+        rules.setProperty("*", "PROPAGATION_REQUIRED");
+
+        TxProxyFactoryBean jdkProxyFactoryBean = txProxy(target, false);
+        jdkProxyFactoryBean.setMethodRules(rules);
+        Object jdkProxy = jdkProxyFactoryBean.getObject();
+        assertThat(jdkProxy.toString(), is(target.toString()));
+        assertThat(jdkProxy.hashCode(), is(target.hashCode()));
+        assertThat(jdkProxy.equals(target), is(true));
+
+        TxProxyFactoryBean cglibProxyFactoryBean = txProxy(target, true);
+        cglibProxyFactoryBean.setMethodRules(rules);
+        Object cglibProxy = cglibProxyFactoryBean.getObject();
+        assertThat(cglibProxy.toString(), is(target.toString()));
+        assertThat(cglibProxy.hashCode(), is(target.hashCode()));
+
+        verifyNoMoreInteractions(transactionManager);
+    }
+
+    private TxProxyFactoryBean txProxy(Object target, boolean proxyTargetClass) {
+        TxProxyFactoryBean txProxyFactoryBean = new TxProxyFactoryBean();
+        txProxyFactoryBean.setTarget(target);
+        txProxyFactoryBean.setTransactionManager(transactionManager);
+        txProxyFactoryBean.setServiceInterface(UserService.class);
+        txProxyFactoryBean.setProxyTargetClass(proxyTargetClass);
+
+        Properties rules = new Properties();
+        rules.setProperty("upgrade*", "PROPAGATION_REQUIRED");
+        rules.setProperty("add", "PROPAGATION_REQUIRES_NEW,timeout_5");
+        txProxyFactoryBean.setMethodRules(rules);
+        return txProxyFactoryBean;
+    }
+
+    interface ReadOnlyLookup {
+        @Transactional(readOnly = true, propagation = org.springframework.transaction.annotation.Propagation.SUPPORTS)
+        User find(String id);
+    }
+}
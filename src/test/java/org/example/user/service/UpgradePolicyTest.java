@@ -0,0 +1,106 @@
+package org.example.user.service;
+
+import org.example.user.domain.Level;
+import org.example.user.domain.UserBatch;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.example.user.service.UserServiceImpl.MIN_LOGIN_COUNT_FOR_SILVER;
+import static org.example.user.service.UserServiceImpl.MIN_RECOMMEND_COUNT_FOR_GOLD;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class UpgradePolicyTest {
+    @Test
+    public void standardPolicy() {
+        UpgradePolicy policy = UpgradePolicy.standard();
+
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            Level level = Level.values()[random.nextInt(Level.values().length)];
+            int login = random.nextInt(100);
+            int recommend = random.nextInt(60);
+            assertThat(policy.getTargetLevel(level, login, recommend), is(switchTarget(level, login, recommend)));
+        }
+    }
+
+    // 규칙표를 도입하기 전 UserServiceImpl.canUpgradeLevel()의 규칙
+    private static Level switchTarget(Level level, int login, int recommend) {
+        switch (level) {
+            case BASIC: return login >= MIN_LOGIN_COUNT_FOR_SILVER ? Level.SILVER : null;
+            case SILVER: return recommend >= MIN_RECOMMEND_COUNT_FOR_GOLD ? Level.GOLD : null;
+            default: return null;
+        }
+    }
+
+    @Test
+    public void rulesFromProperties() {
+        Properties rules = new Properties();
+        rules.setProperty("BASIC->SILVER", "login >= 50");
+        rules.setProperty("SILVER->GOLD", "recommend >= 30");
+        rules.setProperty("BASIC -> GOLD", "login >= 100, recommend >= 50");
+
+        UpgradePolicy policy = new UpgradePolicy();
+        policy.setRules(rules);
+
+        assertThat(policy.getRules().size(), is(3));
+        assertThat(policy.getTargetLevel(Level.BASIC, 49, 100), is(nullValue()));
+        assertThat(policy.getTargetLevel(Level.BASIC, 100, 49), is(Level.SILVER));
+        assertThat(policy.getTargetLevel(Level.BASIC, 100, 50), is(Level.GOLD)); // 맞는 규칙 중 가장 높은 레벨
+        assertThat(policy.getTargetLevel(Level.SILVER, 0, 30), is(Level.GOLD));
+        assertThat(policy.getTargetLevel(Level.GOLD, Integer.MAX_VALUE, Integer.MAX_VALUE), is(nullValue()));
+    }
+
+    @Test
+    public void chainedRules() {
+        UpgradePolicy policy = UpgradePolicy.standard();
+        assertThat(policy.getTargetLevel(Level.BASIC, 50, 30), is(Level.SILVER));
+
+        policy.setChained(true);
+        assertThat(policy.getTargetLevel(Level.BASIC, 50, 30), is(Level.GOLD));
+        assertThat(policy.getTargetLevel(Level.BASIC, 50, 29), is(Level.SILVER));
+        assertThat(policy.getTargetLevel(Level.BASIC, 49, 30), is(nullValue()));
+        assertThat(policy.getRules().size(), is(2));
+    }
+
+    @Test
+    public void evaluateBatch() {
+        UpgradePolicy policy = UpgradePolicy.standard();
+        policy.addRule(Level.BASIC, Level.GOLD, 90, 40);
+
+        UserBatch batch = new UserBatch();
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            Level level = Level.values()[random.nextInt(Level.values().length)];
+            batch.add("u" + i, "유저" + i, "p1234", level, random.nextInt(100), random.nextInt(60), null, 1);
+        }
+
+        int[] targets = new int[batch.size()];
+        int upgrades = policy.evaluate(batch, targets);
+
+        int expected = 0;
+        for (int row = 0; row < batch.size(); row++) {
+            Level target = policy.getTargetLevel(batch.getLevel(row), batch.getLogin(row), batch.getRecommend(row));
+            assertThat(targets[row], is(target == null ? 0 : target.intValue()));
+            if (target != null) {
+                expected++;
+            }
+        }
+        assertThat(upgrades, is(expected));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void downgradeRule() {
+        new UpgradePolicy().addRule(Level.GOLD, Level.SILVER, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownCondition() {
+        Properties rules = new Properties();
+        rules.setProperty("BASIC->SILVER", "visit >= 10");
+        new UpgradePolicy().setRules(rules);
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.user.service;
+
+import org.example.user.dao.UserDao;
+import org.example.user.domain.Level;
+import org.example.user.domain.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = "/test-applicationContext.xml")
+public class UserExporterTest {
+    @Autowired
+    UserDao userDao;
+
+    UserExporter userExporter;
+    List<User> users;
+
+    @Before
+    public void setUp() {
+        users = Arrays.asList(
+                new User("hoon", "훈", "p1234", Level.BASIC, 1, 0, "a@kakao.com"),
+                new User("min", "민, \"min\"", "p1234", Level.SILVER, 60, 10, null),
+                new User("young", "영", "p1234", Level.GOLD, 100, 40, "d@kakao.com"));
+        userDao.deleteAll();
+        userDao.batchAdd(users);
+
+        userExporter = new UserExporter();
+        userExporter.setUserDao(userDao);
+    }
+
+    @Test
+    public void csvRoundTrip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = userExporter.export(out, null);
+
+        assertThat(exported, is(3L));
+        List<User> read = new ArrayList<>();
+        UserCsvReader reader = new UserCsvReader(new StringReader(out.toString("UTF-8")));
+        while (reader.hasNext()) {
+            read.add(reader.next());
+        }
+        assertThat(read.size(), is(3));
+        assertThat(read.get(1).getName(), is("민, \"min\""));
+        assertThat(read.get(1).getEmail(), is((String) null));
+        assertThat(read.get(1).getPassword(), is("")); // includePassword가 꺼져 있으면 비밀번호는 비운다.
+        assertThat(read.get(2).getLevel(), is(Level.GOLD));
+    }
+
+    @Test
+    public void gzipNdjsonFilteredByLevel() throws Exception {
+        userExporter.setFormat(UserExporter.Format.NDJSON);
+        userExporter.setGzip(true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = userExporter.export(out, Level.SILVER);
+
+        assertThat(exported, is(1L));
+        StringBuilder json = new StringBuilder();
+        InputStreamReader reader = new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())), StandardCharsets.UTF_8);
+        char[] buffer = new char[1024];
+        for (int n; (n = reader.read(buffer)) > 0; ) {
+            json.append(buffer, 0, n);
+        }
+        assertThat(json.toString(), is("{\"id\":\"min\",\"name\":\"민, \\\"min\\\"\",\"level\":\"SILVER\",\"login\":60,\"recommend\":10,\"email\":null}\n"));
+    }
+}
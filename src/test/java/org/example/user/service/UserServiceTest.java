@@ -1,8 +1,12 @@
 package org.example.user.service;
 
+import org.example.user.dao.CheckpointDaoJdbc;
+import org.example.user.dao.UserCallback;
 import org.example.user.dao.UserDao;
+import org.example.user.dao.UserDaoJdbc;
 import org.example.user.domain.Level;
 import org.example.user.domain.User;
+import org.example.user.domain.UserBatch;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -14,10 +18,19 @@ import org.springframework.mail.SimpleMailMessage;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
+import javax.sql.DataSource;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
 
 import static org.example.user.service.UserServiceImpl.MIN_LOGIN_COUNT_FOR_SILVER;
 import static org.example.user.service.UserServiceImpl.MIN_RECOMMEND_COUNT_FOR_GOLD;
@@ -42,6 +55,9 @@ public class UserServiceTest {
     @Autowired
     PlatformTransactionManager transactionManager;
 
+    @Autowired
+    DataSource dataSource;
+
     @Autowired
     MailSender mailSender;
 
@@ -64,7 +80,7 @@ public class UserServiceTest {
 
         // 다이나믹한 목 오브젝트 생성과 메서드의 리턴 값을 설정한 후 DI를 진행
         UserDao mockUserDao = mock(UserDao.class);
-        when(mockUserDao.getAll()).thenReturn(this.users);
+        when(mockUserDao.getAfter(null, UserServiceImpl.DEFAULT_CHUNK_SIZE)).thenReturn(this.users);
         userServiceImpl.setUserDao(mockUserDao);
 
         // 리턴 값이 없는 메서드를 가진 목 오브젝트는 더욱 간단하게 생성이 가능
@@ -74,10 +90,15 @@ public class UserServiceTest {
         userServiceImpl.upgradeLevels(); // 테스트 대상 실행
 
         // 목 오브젝트가 제공하는 검증 기능을 통해서 어떤 메서드가 몇 번 호출되었는지 파라미터는 무엇인지 확인 가능
-        verify(mockUserDao, times(2)).update(any(User.class));
-        verify(mockUserDao).update(users.get(1));
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<User>> updatedArg = (ArgumentCaptor<List<User>>) (ArgumentCaptor<?>) ArgumentCaptor.forClass(List.class);
+        verify(mockUserDao).batchUpdate(updatedArg.capture());
+        verify(mockUserDao, never()).update(any(User.class));
+        List<User> updated = updatedArg.getValue();
+        assertThat(updated.size(), is(2));
+        assertThat(updated.get(0), is(users.get(1)));
         assertThat(users.get(1).getLevel(), is(Level.SILVER));
-        verify(mockUserDao).update(users.get(3));
+        assertThat(updated.get(1), is(users.get(3)));
         assertThat(users.get(3).getLevel(), is(Level.GOLD));
 
         ArgumentCaptor<SimpleMailMessage> mailMessageArg =
@@ -113,11 +134,95 @@ public class UserServiceTest {
         assertThat(userWithoutLevelRead.getLevel(), is(Level.BASIC));
     }
 
+    @Test
+    public void importUsersFromCsv() {
+        userDao.deleteAll();
+
+        String csv = "id,name,password,level,login,recommend,email\n"
+                + "hoon,훈,p1234,,1,0,a@kakao.com\n"
+                + "you,\"유, \"\"you\"\"\",p1234,SILVER,60,0,b@kakao.com\n"
+                + "min,민,p1234,3,100,40,\n";
+        final List<Long> progress = new ArrayList<>();
+
+        long imported = userService.importUsers(new StringReader(csv), new ImportProgressListener() {
+            @Override
+            public void progress(long imported, long elapsedNanos) {
+                progress.add(imported);
+            }
+        });
+
+        assertThat(imported, is(3L));
+        assertThat(progress, is(Collections.singletonList(3L)));
+        assertThat(userDao.get("hoon").getLevel(), is(Level.BASIC));
+        assertThat(userDao.get("you").getName(), is("유, \"you\""));
+        assertThat(userDao.get("min").getLevel(), is(Level.GOLD));
+    }
+
+    @Test
+    public void importUsersInChunks() {
+        UserServiceImpl userServiceImpl = new UserServiceImpl();
+        UserDao mockUserDao = mock(UserDao.class);
+        userServiceImpl.setUserDao(mockUserDao);
+        userServiceImpl.setChunkSize(2);
+        ImportProgressListener listener = mock(ImportProgressListener.class);
+
+        long imported = userServiceImpl.importUsers(users.iterator(), listener);
+
+        assertThat(imported, is((long) users.size()));
+        verify(mockUserDao, times(3)).batchAdd(anyList());
+        verify(listener).progress(eq(2L), anyLong());
+        verify(listener).progress(eq(4L), anyLong());
+        verify(listener).progress(eq(5L), anyLong());
+    }
+
+    @Test
+    public void importCommitsPerChunk() {
+        UserServiceImpl userServiceImpl = new UserServiceImpl();
+        userServiceImpl.setUserDao(mock(UserDao.class));
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        userServiceImpl.setTransactionManager(transactionManager);
+        userServiceImpl.setChunkSize(2);
+
+        userServiceImpl.importUsers(users.iterator(), null);
+
+        verify(transactionManager, times(3)).getTransaction(any(TransactionDefinition.class));
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    public void csvWithoutHeader() {
+        UserCsvReader reader = new UserCsvReader(new StringReader("id,아이디,p1234,basic,1,0,\nhoon,훈,p1234,2,1,0,\n"));
+        assertThat(reader.next().getId(), is("id")); // 헤더와 똑같지 않은 첫 줄은 사용자로 읽는다.
+        assertThat(reader.next().getLevel(), is(Level.SILVER));
+        assertThat(reader.hasNext(), is(false));
+
+        reader = new UserCsvReader(new StringReader("ID, Name, Password, Level, Login, Recommend, Email\nhoon,훈,p1234,2,1,0,\n"));
+        assertThat(reader.next().getId(), is("hoon"));
+
+        reader = new UserCsvReader(new StringReader("아이디,이름,비밀번호,레벨,로그인,추천,메일\nhoon,훈,p1234,2,1,0,\n"));
+        reader.setSkipHeader(true);
+        assertThat(reader.next().getId(), is("hoon"));
+    }
+
     @Test
     public void upgradeAllOrNothing() {
+        final List<String> written = new ArrayList<>();
+        UserDaoJdbc recordingUserDao = new UserDaoJdbc() {
+            @Override
+            public void batchUpdate(List<User> upgraded) {
+                super.batchUpdate(upgraded);
+                for (User user : upgraded) {
+                    written.add(user.getId());
+                }
+            }
+        };
+        recordingUserDao.setJdbcTemplate(dataSource);
+
         TestUserService testUserService = new TestUserService(users.get(3).getId()); // 4번째 user에서 예외 발생
-        testUserService.setUserDao(userDao); // 수동으로 DI를 진행
+        testUserService.setUserDao(recordingUserDao); // 수동으로 DI를 진행
         testUserService.setMailSender(mailSender);
+        // id 순서는 hoon, min, sun, you, young이다. 두 명씩 처리하면 you를 올린 청크가 DB에 쓰인 뒤 young에서 예외가 난다.
+        testUserService.setChunkSize(2);
 
         // 트랜잭션 처리 부분을 위한 수동 DI 설정
         UserServiceTx userServiceTx = new UserServiceTx();
@@ -136,7 +241,368 @@ public class UserServiceTest {
 
         }
 
-        checkLevelUpgraded(users.get(1), false); // 변경 전 데이터와 동일한지 확인
+        assertThat(written, is(Collections.singletonList(users.get(1).getId()))); // 예외 전에 DB에 쓴 사용자
+        checkLevelUpgraded(users.get(1), false); // 롤백되어 변경 전 데이터와 동일한지 확인
+    }
+
+    @Test
+    public void upgradeAllOrNothingWithTxProxy() {
+        TestUserService testUserService = new TestUserService(users.get(3).getId());
+        testUserService.setUserDao(userDao);
+        testUserService.setMailSender(mailSender);
+        testUserService.setChunkSize(2); // 앞 청크가 DB에 쓰인 뒤에 예외가 나도록 한다.
+
+        TxProxyFactoryBean txProxyFactoryBean = new TxProxyFactoryBean();
+        txProxyFactoryBean.setTarget(testUserService);
+        txProxyFactoryBean.setTransactionManager(transactionManager);
+        txProxyFactoryBean.setServiceInterface(UserService.class);
+        Properties methodRules = new Properties();
+        methodRules.setProperty("upgrade*", "PROPAGATION_REQUIRED");
+        txProxyFactoryBean.setMethodRules(methodRules);
+        UserService txUserService = (UserService) txProxyFactoryBean.getObject();
+
+        userDao.deleteAll();
+        for (User user : users) {
+            userDao.add(user);
+        }
+
+        try {
+            txUserService.upgradeLevels();
+            fail("TestUserServiceException expected");
+        } catch (TestUserServiceException e) {
+
+        }
+
+        checkLevelUpgraded(users.get(1), false);
+    }
+
+    @Test
+    public void upgradeCommitPerChunkAndResume() {
+        TestUserService testUserService = new TestUserService(users.get(3).getId()); // id 순서로 마지막 청크에서 예외 발생
+        testUserService.setUserDao(userDao);
+        testUserService.setMailSender(mailSender);
+        testUserService.setChunkSize(2);
+
+        UserServiceTx userServiceTx = new UserServiceTx();
+        userServiceTx.setTransactionManager(transactionManager);
+        userServiceTx.setUserService(testUserService);
+        userServiceTx.setCommitPerChunk(true);
+
+        userDao.deleteAll();
+        for (User user : users) {
+            userDao.add(user);
+        }
+
+        try {
+            userServiceTx.upgradeLevels();
+            fail("TestUserServiceException expected");
+        } catch (TestUserServiceException e) {
+
+        }
+
+        // 앞선 청크들은 이미 커밋되어 있어야 한다.
+        checkLevelUpgraded(users.get(1), true);
+        checkLevelUpgraded(users.get(3), false);
+        assertThat(userServiceTx.getLastCommittedId(), is(users.get(1).getId()));
+
+        // 마지막으로 커밋된 id 다음부터 이어서 처리한다.
+        UserServiceImpl resumedService = new UserServiceImpl();
+        resumedService.setUserDao(userDao);
+        resumedService.setMailSender(mailSender);
+        resumedService.setChunkSize(2);
+        userServiceTx.setUserService(resumedService);
+        userServiceTx.upgradeLevels();
+
+        checkLevelUpgraded(users.get(3), true);
+        assertThat(userDao.get(users.get(1).getId()).getLevel(), is(Level.SILVER)); // 다시 업그레이드되지 않음
+        assertThat(userServiceTx.getLastCommittedId(), is((String) null));
+    }
+
+    @Test
+    public void resumeFromPersistedCheckpoint() {
+        CheckpointDaoJdbc checkpointDao = new CheckpointDaoJdbc();
+        checkpointDao.setJdbcTemplate(dataSource);
+        checkpointDao.saveLastId("upgradeLevels", null);
+
+        TestUserService testUserService = new TestUserService(users.get(3).getId());
+        testUserService.setUserDao(userDao);
+        testUserService.setMailSender(mailSender);
+        testUserService.setChunkSize(2);
+
+        UserServiceTx userServiceTx = new UserServiceTx();
+        userServiceTx.setTransactionManager(transactionManager);
+        userServiceTx.setUserService(testUserService);
+        userServiceTx.setCommitPerChunk(true);
+        userServiceTx.setCheckpointDao(checkpointDao);
+
+        userDao.deleteAll();
+        for (User user : users) {
+            userDao.add(user);
+        }
+
+        try {
+            userServiceTx.upgradeLevels();
+            fail("TestUserServiceException expected");
+        } catch (TestUserServiceException e) {
+
+        }
+        assertThat(checkpointDao.getLastId("upgradeLevels"), is(users.get(1).getId()));
+
+        // 다시 시작한 프로세스처럼 새 UserServiceTx로 실행해도 저장된 id 다음부터 이어서 처리한다.
+        UserServiceImpl resumedService = new UserServiceImpl();
+        resumedService.setUserDao(userDao);
+        resumedService.setMailSender(mailSender);
+        resumedService.setChunkSize(2);
+        UserServiceTx restarted = new UserServiceTx();
+        restarted.setTransactionManager(transactionManager);
+        restarted.setUserService(resumedService);
+        restarted.setCommitPerChunk(true);
+        restarted.setCheckpointDao(checkpointDao);
+        restarted.upgradeLevels();
+
+        checkLevelUpgraded(users.get(3), true);
+        assertThat(userDao.get(users.get(1).getId()).getLevel(), is(Level.SILVER));
+        assertThat(checkpointDao.getLastId("upgradeLevels"), is((String) null));
+    }
+
+    @Test
+    public void upgradeInParallelPartitions() {
+        TestUserService testUserService = new TestUserService(users.get(3).getId()); // 마지막 파티션에서 예외 발생
+        testUserService.setUserDao(userDao);
+        testUserService.setMailSender(mailSender);
+        testUserService.setChunkSize(1);
+
+        UserServiceTx userServiceTx = new UserServiceTx();
+        userServiceTx.setTransactionManager(transactionManager);
+        userServiceTx.setUserService(testUserService);
+        userServiceTx.setParallelism(2);
+
+        userDao.deleteAll();
+        for (User user : users) {
+            userDao.add(user);
+        }
+
+        // id 순서는 hoon, min, sun, you, young 이므로 (null, min], (min, null] 두 파티션으로 나뉜다.
+        assertThat(userServiceTx.getPartitionKeys(2), is(Arrays.asList("min")));
+
+        try {
+            userServiceTx.upgradeLevels();
+            fail("PartitionedUpgradeException expected");
+        } catch (PartitionedUpgradeException e) {
+            assertThat(e.getFailures().size(), is(1));
+            assertThat(e.getFailures().get("(min, null]") instanceof TestUserServiceException, is(true));
+            assertThat(e.getSuppressed().length, is(1));
+        }
+
+        // 실패한 파티션에서도 예외 전에 커밋된 청크는 남아 있다.
+        checkLevelUpgraded(users.get(1), true);
+        checkLevelUpgraded(users.get(3), false);
+    }
+
+    @Test
+    public void sqlUpgradeRejectsChunkedRuns() {
+        SqlUpgradeUserService sqlService = new SqlUpgradeUserService();
+        sqlService.setUserDao(userDao);
+        sqlService.setMailSender(new DummyMailSender());
+
+        UserServiceTx userServiceTx = new UserServiceTx();
+        userServiceTx.setTransactionManager(transactionManager);
+        userServiceTx.setUserService(sqlService);
+        userServiceTx.setCommitPerChunk(true);
+        try {
+            userServiceTx.upgradeLevels();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+        }
+
+        userServiceTx.setCommitPerChunk(false);
+        userServiceTx.setParallelism(2);
+        try {
+            userServiceTx.upgradeLevels();
+            fail("UnsupportedOperationException expected");
+        } catch (UnsupportedOperationException e) {
+        }
+
+        try {
+            sqlService.setIncremental(true);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void sqlUpgradeMatchesPerRowUpgrade() {
+        MockMailSender perRowMailSender = new MockMailSender();
+        Map<String, Level> perRowLevels = upgradeFixture(new UserServiceImpl(), perRowMailSender);
+
+        MockMailSender sqlMailSender = new MockMailSender();
+        Map<String, Level> sqlLevels = upgradeFixture(new SqlUpgradeUserService(), sqlMailSender);
+
+        assertThat(sqlLevels, is(perRowLevels));
+
+        List<String> perRowRequests = new ArrayList<>(perRowMailSender.getRequests());
+        List<String> sqlRequests = new ArrayList<>(sqlMailSender.getRequests());
+        Collections.sort(perRowRequests);
+        Collections.sort(sqlRequests);
+        assertThat(perRowRequests.size(), is(2));
+        assertThat(sqlRequests, is(perRowRequests));
+    }
+
+    @Test
+    public void chainedPolicyUpgradesMultipleLevels() {
+        users = new ArrayList<>(users);
+        users.add(new User("jin", "진", "p1234", Level.BASIC, MIN_LOGIN_COUNT_FOR_SILVER, MIN_RECOMMEND_COUNT_FOR_GOLD, "f@kakao.com"));
+
+        UpgradePolicy chainedPolicy = UpgradePolicy.standard();
+        chainedPolicy.setChained(true);
+
+        UserServiceImpl perRowService = new UserServiceImpl();
+        perRowService.setUpgradePolicy(chainedPolicy);
+        MockMailSender perRowMailSender = new MockMailSender();
+        Map<String, Level> perRowLevels = upgradeFixture(perRowService, perRowMailSender);
+
+        SqlUpgradeUserService sqlService = new SqlUpgradeUserService();
+        sqlService.setUpgradePolicy(chainedPolicy);
+        MockMailSender sqlMailSender = new MockMailSender();
+        Map<String, Level> sqlLevels = upgradeFixture(sqlService, sqlMailSender);
+
+        assertThat(perRowLevels.get("jin"), is(Level.GOLD));
+        assertThat(perRowLevels.get("you"), is(Level.SILVER));
+        assertThat(sqlLevels, is(perRowLevels));
+
+        // 두 단계를 한 번에 올라간 jin에게도 메일은 한 통만 보낸다.
+        List<String> perRowRequests = new ArrayList<>(perRowMailSender.getRequests());
+        List<String> sqlRequests = new ArrayList<>(sqlMailSender.getRequests());
+        Collections.sort(perRowRequests);
+        Collections.sort(sqlRequests);
+        assertThat(Collections.frequency(sqlRequests, "f@kakao.com"), is(1));
+        assertThat(sqlRequests, is(perRowRequests));
+    }
+
+    private Map<String, Level> upgradeFixture(UserServiceImpl upgradeService, MailSender mailSender) {
+        upgradeService.setUserDao(userDao);
+        upgradeService.setMailSender(mailSender);
+
+        UserServiceTx userServiceTx = new UserServiceTx();
+        userServiceTx.setTransactionManager(transactionManager);
+        userServiceTx.setUserService(upgradeService);
+
+        userDao.deleteAll();
+        for (User user : users) {
+            userDao.add(user);
+        }
+
+        userServiceTx.upgradeLevels();
+
+        Map<String, Level> levels = new HashMap<>();
+        for (User user : userDao.getAll()) {
+            levels.put(user.getId(), user.getLevel());
+        }
+        return levels;
+    }
+
+    @Test
+    public void incrementalUpgradeMatchesFullScan() {
+        UserDaoJdbc trackingUserDao = new UserDaoJdbc();
+        trackingUserDao.setJdbcTemplate(dataSource);
+        trackingUserDao.setChangeTracking(true);
+
+        List<Map<String, Level>> full = upgradeRounds(trackingUserDao, false, false);
+        List<Map<String, Level>> incremental = upgradeRounds(trackingUserDao, true, false);
+
+        assertThat(incremental, is(full));
+        assertThat(trackingUserDao.getLastChangeSeq() > 0, is(true));
+        assertThat(trackingUserDao.pollChanged(Long.MAX_VALUE, 1000).size() > 0, is(true)); // 마지막 업그레이드분은 다음 실행 몫으로 남는다.
+    }
+
+    @Test
+    public void columnarScanMatchesRowScan() {
+        UserDaoJdbc userDaoJdbc = new UserDaoJdbc();
+        userDaoJdbc.setJdbcTemplate(dataSource);
+
+        List<Map<String, Level>> rowScan = upgradeRounds(userDaoJdbc, false, false);
+        List<Map<String, Level>> columnarScan = upgradeRounds(userDaoJdbc, false, true);
+
+        assertThat(columnarScan, is(rowScan));
+    }
+
+    @Test
+    public void retryUpgradeAfterConcurrentChanges() {
+        final UserDaoJdbc concurrentUserDao = new UserDaoJdbc() {
+            private boolean interfered = false;
+
+            @Override
+            public void batchUpdate(List<User> upgraded) {
+                if (!interfered) { // 업그레이드 대상을 읽은 뒤, 반영하기 전에 다른 곳에서 바꾼다.
+                    interfered = true;
+                    incrementLogin("you"); // 로그인
+
+                    User young = get("young"); // 다른 작업자가 먼저 업그레이드
+                    young.upgradeLevel();
+                    update(young);
+                }
+                super.batchUpdate(upgraded);
+            }
+        };
+        concurrentUserDao.setJdbcTemplate(dataSource);
+        concurrentUserDao.deleteAll();
+        concurrentUserDao.batchAdd(users);
+
+        UserServiceImpl upgradeService = new UserServiceImpl();
+        upgradeService.setUserDao(concurrentUserDao);
+        MockMailSender mockMailSender = new MockMailSender();
+        upgradeService.setMailSender(mockMailSender);
+        upgradeService.upgradeLevels();
+
+        User you = concurrentUserDao.get("you");
+        assertThat(you.getLevel(), is(Level.SILVER));
+        assertThat(you.getLogin(), is(MIN_LOGIN_COUNT_FOR_SILVER + 1)); // 로그인이 덮어써지지 않는다.
+        assertThat(concurrentUserDao.get("young").getLevel(), is(Level.GOLD)); // 두 번 올리지 않는다.
+        assertThat(concurrentUserDao.get("min").getLevel(), is(Level.SILVER));
+        assertThat(mockMailSender.getRequests(), is(Arrays.asList("b@kakao.com")));
+    }
+
+    /**
+     * 같은 초기 데이터와 같은 변경을 주면서 업그레이드를 여러 번 돌리고, 매 실행 후의 레벨을 모아서 돌려준다.
+     */
+    private List<Map<String, Level>> upgradeRounds(UserDaoJdbc trackingUserDao, boolean incremental, boolean columnarScan) {
+        Random random = new Random(15);
+        trackingUserDao.deleteAll();
+        List<User> initial = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            initial.add(new User(String.format("u%04d", i), "유저" + i, "p1234", Level.valueOf(random.nextInt(3) + 1),
+                    random.nextInt(60), random.nextInt(40), "u" + i + "@kakao.com"));
+        }
+        trackingUserDao.batchAdd(initial);
+
+        UserServiceImpl upgradeService = new UserServiceImpl();
+        upgradeService.setUserDao(trackingUserDao);
+        upgradeService.setMailSender(new DummyMailSender());
+        upgradeService.setChunkSize(50);
+        upgradeService.setIncremental(incremental);
+        upgradeService.setColumnarScan(columnarScan);
+        UserServiceTx userServiceTx = new UserServiceTx();
+        userServiceTx.setTransactionManager(transactionManager);
+        userServiceTx.setUserService(upgradeService);
+
+        List<Map<String, Level>> rounds = new ArrayList<>();
+        for (int round = 0; round < 4; round++) {
+            userServiceTx.upgradeLevels();
+
+            Map<String, Level> levels = new HashMap<>();
+            for (User user : trackingUserDao.getAll()) {
+                levels.put(user.getId(), user.getLevel());
+            }
+            rounds.add(levels);
+
+            for (int i = 0; i < 20; i++) { // 일부 사용자만 로그인/추천 수가 늘어난다.
+                User user = trackingUserDao.get(String.format("u%04d", random.nextInt(initial.size())));
+                user.setLogin(user.getLogin() + random.nextInt(20));
+                user.setRecommend(user.getRecommend() + random.nextInt(10));
+                trackingUserDao.update(user);
+            }
+        }
+        return rounds;
     }
 
     private void checkLevelUpgraded(User user, boolean upgraded) {
@@ -157,11 +623,11 @@ public class UserServiceTest {
         }
 
         @Override
-        protected void upgradeLevel(User user) {
+        protected void upgradeLevel(User user, Level target) {
             if (user.getId().equals(this.id)) {
                 throw new TestUserServiceException();
             }
-            super.upgradeLevel(user);
+            super.upgradeLevel(user, target);
         }
     }
 
@@ -205,11 +671,61 @@ public class UserServiceTest {
             return this.users; // 스텁 기능을 제공한다.
         }
 
+        @Override
+        public List<User> getAfter(String lastId, int limit) {
+            return lastId == null ? this.users : new ArrayList<User>();
+        }
+
+        @Override
+        public List<User> getRange(String lastId, String toId, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getRange(String lastId, String toId, int limit, UserBatch batch) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> getPartitionKeys(int partitions) {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public void update(User user) {
             updated.add(user); // 목 오브젝트 기능을 제공
         }
 
+        @Override
+        public void batchUpdate(List<User> users) {
+            updated.addAll(users);
+        }
+
+        @Override
+        public void batchAdd(List<User> users) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public User getForUpdate(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void incrementLogin(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void incrementRecommend(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<User> upgradeLevels(Level currentLevel, int minLogin, int minRecommend) {
+            throw new UnsupportedOperationException();
+        }
+
         // 테스트에 사용되지 않는 메서드들을 정리 (인터페이스 상속을 위해서 꼭 구현은 해놔야 함)
         @Override
         public void add(User user) {
@@ -221,6 +737,36 @@ public class UserServiceTest {
             throw new UnsupportedOperationException();
         }
 
+        @Override
+        public Optional<User> find(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean exists(String id) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEach(UserCallback callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void forEach(Level level, UserCallback callback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getLastChangeSeq() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<User> pollChanged(long uptoSeq, int limit) {
+            throw new UnsupportedOperationException();
+        }
+
         @Override
         public void deleteAll() {
             throw new UnsupportedOperationException();
@@ -0,0 +1,25 @@
+-- 임베디드 DB(H2, MySQL 모드)로 테스트와 벤치마크를 돌릴 때 사용하는 users 테이블
+-- id는 바이너리 콜레이션으로 정렬한다. MySQL 기본 콜레이션은 대소문자를 구분하지 않아서
+-- String.compareTo로 샤드 결과를 병합하는 ShardedUserDao와 순서가 달라진다. H2는 이 절을 받아들이고 원래대로 바이너리 순서로 정렬한다.
+create table if not exists users (
+    id varchar(10) character set utf8mb4 collate utf8mb4_bin primary key,
+    name varchar(20) not null,
+    password varchar(10) not null,
+    level tinyint not null,
+    login int not null,
+    recommend int not null,
+    email varchar(100),
+    version int not null default 0
+);
+
+-- UserDaoJdbc.setChangeTracking(true)일 때 추가/수정된 사용자의 id를 쌓는 변경 로그
+create table if not exists user_changes (
+    seq bigint auto_increment primary key,
+    user_id varchar(10) not null
+);
+
+-- UserServiceTx가 청크마다 커밋하며 업그레이드할 때 마지막으로 커밋한 id. 다시 시작하면 여기서부터 이어서 처리한다.
+create table if not exists batch_checkpoints (
+    name varchar(50) primary key,
+    last_id varchar(10) not null
+);